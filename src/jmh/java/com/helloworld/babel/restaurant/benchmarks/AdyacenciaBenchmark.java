@@ -0,0 +1,81 @@
+package com.helloworld.babel.restaurant.benchmarks;
+
+import com.helloworld.babel.restaurant.daos.model.Plato;
+import com.helloworld.babel.restaurant.daos.model.Restaurante;
+import com.helloworld.babel.restaurant.daos.platos.PlatosDaoImpl;
+import com.helloworld.babel.restaurant.daos.restaurantes.RestaurantesDaoImpl;
+import com.helloworld.babel.restaurant.servicios.catalogo.AdyacenciaCartas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Platos de un local y locales de un plato: joins sobre restaurante_plato frente a la relacion en memoria,
+ * que solo deja para la base de datos la lectura por clave primaria. Con indiceCif=false se quita el indice
+ * secundario para medir el join sin el; en H2 queda el indice que crea para la clave ajena cif_restaurante.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdyacenciaBenchmark {
+
+	// La aplicacion ya no busca locales por plato con un join: la consulta de referencia vive solo aqui
+	private static final String LOCALES_DE_PLATO = "SELECT r.cif, r.nombre, r.direccion, r.telefono " +
+			"FROM restaurante r JOIN restaurante_plato rp ON rp.cif_restaurante = r.cif " +
+			"WHERE rp.id_plato = ? ORDER BY r.cif";
+
+	@Param({"true", "false"})
+	public boolean indiceCif;
+
+	@Setup(Level.Trial)
+	public void preparar(Catalogo catalogo) {
+		if (!indiceCif) {
+			catalogo.bean(JdbcTemplate.class).execute("DROP INDEX IF EXISTS idx_restaurante_plato_cif");
+		}
+	}
+
+	@Benchmark
+	public List<Restaurante> localesDePlatoJoin(Catalogo catalogo) {
+		return catalogo.bean(JdbcTemplate.class).query(LOCALES_DE_PLATO, (rs, rowNum) -> new Restaurante(
+				rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4)), catalogo.platoAleatorio());
+	}
+
+	@Benchmark
+	public List<Restaurante> localesDePlatoAdyacencia(Catalogo catalogo) {
+		List<String> cifs = catalogo.bean(AdyacenciaCartas.class).getLocales(catalogo.platoAleatorio());
+		return catalogo.bean(RestaurantesDaoImpl.class).getRestaurantesByCifs(cifs, Restaurante::new);
+	}
+
+	@Benchmark
+	public List<String> localesDePlatoSoloAdyacencia(Catalogo catalogo) {
+		return catalogo.bean(AdyacenciaCartas.class).getLocales(catalogo.platoAleatorio());
+	}
+
+	@Benchmark
+	public List<Plato> platosDeLocalJoin(Catalogo catalogo) {
+		return catalogo.bean(PlatosDaoImpl.class).getPlatosByRestauranteCif(catalogo.cifAleatorio(), Plato::new);
+	}
+
+	@Benchmark
+	public List<Plato> platosDeLocalAdyacencia(Catalogo catalogo) {
+		int[] ids = catalogo.bean(AdyacenciaCartas.class).getPlatos(catalogo.cifAleatorio());
+		return catalogo.bean(PlatosDaoImpl.class).getPlatosByIds(Arrays.stream(ids).boxed().toList(), Plato::new);
+	}
+}
@@ -0,0 +1,89 @@
+package com.helloworld.babel.restaurant.benchmarks;
+
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.Plato.Categoria;
+import com.helloworld.babel.restaurant.servicios.busqueda.ConsultaPlatos;
+import com.helloworld.babel.restaurant.servicios.busqueda.IndicePlatos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Busquedas sobre el indice en memoria, sin base de datos: el indice se llena con los mismos eventos
+ * que publica el catalogo al crear platos y cambiar cartas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class BusquedaBenchmark {
+
+	private static final String[] BASES = {"pollo", "ternera", "merluza", "bacalao", "cordero", "pimientos", "patatas",
+			"tortilla", "croquetas", "ensalada", "arroz", "paella", "gazpacho", "salmorejo", "pulpo", "calamares",
+			"flan", "natillas", "tarta", "helado", "piña", "manzana", "crema", "sopa", "lentejas", "garbanzos"};
+	private static final String[] ESTILOS = {"asado", "frito", "a la plancha", "al horno", "guisado", "rebozado",
+			"con tomate", "al ajillo", "a la gallega", "de la casa", "con patatas", "de temporada"};
+
+	@Param({"1000000"})
+	public int platos;
+
+	private IndicePlatos indice;
+
+	@Setup
+	public void preparar() {
+		Random random = new Random(42);
+		indice = new IndicePlatos(null, null);
+		List<Plato> lote = new ArrayList<>(10_000);
+		for (int id = 1; id <= platos; id++) {
+			String nombre = BASES[random.nextInt(BASES.length)] + " " + ESTILOS[random.nextInt(ESTILOS.length)];
+			lote.add(new Plato(id, nombre, 1 + random.nextInt(4000) / 100.0, Categoria.values()[random.nextInt(3)]));
+			if (lote.size() == 10_000) {
+				indice.platosCreados(lote);
+				lote = new ArrayList<>(10_000);
+			}
+		}
+		indice.platosCreados(lote);
+		for (int local = 0; local < 1000; local++) {
+			List<Plato> carta = new ArrayList<>();
+			for (int i = 0; i < 20; i++) {
+				carta.add(new Plato(1 + random.nextInt(platos), "", 0, Categoria.POSTRE));
+			}
+			indice.cartaActualizada(String.format("B%08d", local), carta, List.of());
+		}
+	}
+
+	@Benchmark
+	public Object palabraSelectiva() {
+		return indice.buscar(new ConsultaPlatos("pina gallega", null, null, null, null, 20));
+	}
+
+	@Benchmark
+	public Object prefijoConCategoriaYPrecio() {
+		return indice.buscar(new ConsultaPlatos("croq", Categoria.PRIMER_PLATO, 5.0, 10.0, null, 20));
+	}
+
+	@Benchmark
+	public Object soloRangoDePrecio() {
+		return indice.buscar(new ConsultaPlatos(null, null, 12.0, 12.5, null, 20));
+	}
+
+	@Benchmark
+	public Object cartaDeUnLocal() {
+		return indice.buscar(new ConsultaPlatos(null, null, null, null, "B00000500", 20));
+	}
+}
@@ -0,0 +1,43 @@
+package com.helloworld.babel.restaurant.benchmarks;
+
+import com.helloworld.babel.restaurant.daos.platos.PlatosDaoImpl;
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.Plato.Categoria;
+import com.helloworld.babel.restaurant.servicios.locales.FiltroCarta;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * La carta de un local sin cachear filtrada por categoria y precio, ordenada por precio y cortada a 10 platos:
+ * leyendola entera y filtrando en memoria, o con el filtro en la consulta.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartaFiltradaBenchmark {
+
+	private static final FiltroCarta FILTRO = new FiltroCarta(Categoria.SEGUNDO_PLATO, 10.0, 20.0,
+			FiltroCarta.Orden.PRECIO, 10);
+
+	@Benchmark
+	public List<Plato> enMemoria(Catalogo catalogo) {
+		return FILTRO.aplicar(catalogo.bean(PlatosDaoImpl.class)
+				.getPlatosByRestauranteCif(catalogo.cifAleatorio(), Plato::fromFila));
+	}
+
+	@Benchmark
+	public List<Plato> enSql(Catalogo catalogo) {
+		return catalogo.bean(PlatosDaoImpl.class)
+				.getPlatosByRestauranteCif(catalogo.cifAleatorio(), FILTRO.toFiltroPlatos(), Plato::fromFila);
+	}
+}
@@ -0,0 +1,100 @@
+package com.helloworld.babel.restaurant.benchmarks;
+
+import com.helloworld.babel.restaurant.RestaurantApplication;
+import com.helloworld.babel.restaurant.servicios.busqueda.IndicePlatos;
+import com.helloworld.babel.restaurant.servicios.catalogo.AdyacenciaCartas;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Aplicacion sobre una base H2 propia con N locales, M platos y D platos por local.
+ */
+@State(Scope.Benchmark)
+public class Catalogo {
+
+	@Param({"100", "1000"})
+	public int locales;
+
+	@Param({"1000", "10000"})
+	public int platos;
+
+	@Param({"20"})
+	public int densidad;
+
+	private ConfigurableApplicationContext context;
+	private List<String> cifs;
+
+	@Setup(Level.Trial)
+	public void arrancar() {
+		context = new SpringApplicationBuilder(RestaurantApplication.class)
+				.web(WebApplicationType.NONE)
+				.properties(
+						"spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+						"spring.main.banner-mode=off",
+						"logging.level.root=WARN")
+				.run();
+		poblar(context.getBean(JdbcTemplate.class));
+		// Los indices en memoria se construyeron al arrancar, con la base de data.sql
+		context.getBean(AdyacenciaCartas.class).reconstruir();
+		context.getBean(IndicePlatos.class).reconstruir();
+	}
+
+	@TearDown(Level.Trial)
+	public void parar() {
+		context.close();
+	}
+
+	public <T> T bean(Class<T> tipo) {
+		return context.getBean(tipo);
+	}
+
+	public String cifAleatorio() {
+		return cifs.get(ThreadLocalRandom.current().nextInt(cifs.size()));
+	}
+
+	public int platoAleatorio() {
+		return 1 + ThreadLocalRandom.current().nextInt(platos);
+	}
+
+	private void poblar(JdbcTemplate jdbcTemplate) {
+		// data.sql ya deja 9 platos y 3 locales; se parte de una base limpia
+		jdbcTemplate.update("DELETE FROM restaurante_plato");
+		jdbcTemplate.update("DELETE FROM restaurante");
+		jdbcTemplate.update("DELETE FROM plato");
+		jdbcTemplate.execute("ALTER SEQUENCE plato_id_seq RESTART WITH 1");
+
+		Random random = new Random(42);
+		List<Object[]> filasPlatos = new ArrayList<>(platos);
+		for (int i = 0; i < platos; i++) {
+			filasPlatos.add(new Object[]{"Plato " + i, 5 + random.nextInt(2500) / 100.0, 1 + random.nextInt(3)});
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO plato(nombre, precio, categoria) VALUES(?, ?, ?)", filasPlatos);
+
+		cifs = new ArrayList<>(locales);
+		List<Object[]> filasLocales = new ArrayList<>(locales);
+		List<Object[]> filasCartas = new ArrayList<>(locales * densidad);
+		for (int i = 0; i < locales; i++) {
+			String cif = String.format("B%08d", i);
+			cifs.add(cif);
+			filasLocales.add(new Object[]{cif, "Local " + i, "Calle Benchmark, " + i, "600000000"});
+			random.ints(1, platos + 1).distinct().limit(Math.min(densidad, platos))
+					.forEach(plato -> filasCartas.add(new Object[]{plato, cif}));
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO restaurante(cif, nombre, direccion, telefono) VALUES(?, ?, ?, ?)", filasLocales);
+		jdbcTemplate.batchUpdate("INSERT INTO restaurante_plato(id_plato, cif_restaurante) VALUES(?, ?)", filasCartas);
+	}
+}
@@ -0,0 +1,70 @@
+package com.helloworld.babel.restaurant.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.helloworld.babel.restaurant.model.Local;
+import com.helloworld.babel.restaurant.servicios.locales.LocalesService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Codificacion del listado completo de locales en cada formato, sin comprimir y con gzip como lo comprime Tomcat.
+ * Los bytes de cada formato no dependen de la iteracion: se escriben una vez al preparar el benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatosBenchmark {
+
+	@Param({"json", "smile", "cbor"})
+	public String formato;
+
+	private ObjectMapper mapper;
+	private List<Local> locales;
+
+	@Setup(Level.Trial)
+	public void preparar(Catalogo catalogo) throws IOException {
+		mapper = switch (formato) {
+			case "smile" -> catalogo.bean(MappingJackson2SmileHttpMessageConverter.class).getObjectMapper();
+			case "cbor" -> catalogo.bean(MappingJackson2CborHttpMessageConverter.class).getObjectMapper();
+			default -> catalogo.bean(ObjectMapper.class);
+		};
+		locales = catalogo.bean(LocalesService.class).getLocales();
+		System.out.printf("%n%s, %d locales: %d bytes, %d bytes con gzip%n",
+				formato, locales.size(), codificar().length, comprimir().length);
+	}
+
+	@Benchmark
+	public byte[] codificar() throws IOException {
+		return mapper.writeValueAsBytes(locales);
+	}
+
+	@Benchmark
+	public byte[] comprimir() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+			mapper.writeValue(gzip, locales);
+		}
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,75 @@
+package com.helloworld.babel.restaurant.benchmarks;
+
+import com.helloworld.babel.restaurant.daos.instantanea.InstantaneaDao;
+import com.helloworld.babel.restaurant.daos.model.Instantanea;
+import com.helloworld.babel.restaurant.servicios.instantanea.FormatoInstantanea;
+import com.helloworld.babel.restaurant.servicios.instantanea.InstantaneaService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escritura y lectura del fichero de instantanea, y la carga completa al arrancar: base de datos, caches y modelos
+ * de lectura. La carga sustituye el catalogo por el mismo, asi que cada iteracion parte del mismo estado.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstantaneaBenchmark {
+
+	private InstantaneaService instantaneaService;
+	private Instantanea instantanea;
+	private Path directorio;
+	private Path fichero;
+
+	@Setup(Level.Trial)
+	public void preparar(Catalogo catalogo) throws IOException {
+		instantaneaService = catalogo.bean(InstantaneaService.class);
+		instantanea = new TransactionTemplate(catalogo.bean(PlatformTransactionManager.class))
+				.execute(estado -> catalogo.bean(InstantaneaDao.class).leer());
+		directorio = Files.createTempDirectory("instantanea");
+		fichero = directorio.resolve("catalogo.instantanea");
+		System.out.printf("%n%d platos, %d locales: %d bytes%n", instantanea.platos().size(),
+				instantanea.locales().size(), FormatoInstantanea.escribir(instantanea, fichero));
+	}
+
+	@TearDown(Level.Trial)
+	public void limpiar() throws IOException {
+		Files.deleteIfExists(fichero);
+		Files.deleteIfExists(directorio);
+	}
+
+	@Benchmark
+	public long escribir() throws IOException {
+		return FormatoInstantanea.escribir(instantanea, directorio.resolve("escrita.instantanea"));
+	}
+
+	@Benchmark
+	public Instantanea leer() throws IOException {
+		return FormatoInstantanea.leer(fichero);
+	}
+
+	@Benchmark
+	public long cargar() throws IOException {
+		return instantaneaService.cargar(fichero).getMilisegundos();
+	}
+}
@@ -0,0 +1,69 @@
+package com.helloworld.babel.restaurant.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.helloworld.babel.restaurant.model.Local;
+import com.helloworld.babel.restaurant.model.Plato;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModeloBenchmark {
+
+	@Param({"20", "200"})
+	public int platosPorCarta;
+
+	private com.helloworld.babel.restaurant.daos.model.Plato[] platosDao;
+	private Plato[] platos;
+	private Local local;
+	private ObjectMapper objectMapper;
+
+	@Setup
+	public void preparar() {
+		platosDao = new com.helloworld.babel.restaurant.daos.model.Plato[platosPorCarta];
+		platos = new Plato[platosPorCarta];
+		local = new Local("B00000001", "Local Benchmark", "Calle Benchmark, 1", "600000000");
+		for (int i = 0; i < platosPorCarta; i++) {
+			platosDao[i] = new com.helloworld.babel.restaurant.daos.model.Plato(i + 1, "Plato " + i, 5 + i % 20, 1 + i % 3);
+			platos[i] = Plato.fromPlatoDAO(platosDao[i]);
+			local.addPlato(platos[i]);
+		}
+		objectMapper = new ObjectMapper();
+	}
+
+	@Benchmark
+	public void fromPlatoDAO(Blackhole blackhole) {
+		for (com.helloworld.babel.restaurant.daos.model.Plato plato : platosDao) {
+			blackhole.consume(Plato.fromPlatoDAO(plato));
+		}
+	}
+
+	@Benchmark
+	public void toPlatoDAO(Blackhole blackhole) {
+		for (Plato plato : platos) {
+			blackhole.consume(plato.toPlatoDAO());
+		}
+	}
+
+	@Benchmark
+	public byte[] serializarLocal() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(local);
+	}
+}
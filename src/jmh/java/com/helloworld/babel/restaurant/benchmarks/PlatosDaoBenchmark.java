@@ -0,0 +1,60 @@
+package com.helloworld.babel.restaurant.benchmarks;
+
+import com.helloworld.babel.restaurant.daos.model.Plato;
+import com.helloworld.babel.restaurant.daos.platos.PlatosDaoImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlatosDaoBenchmark {
+
+	@Benchmark
+	public List<Plato> getPlatos(Catalogo catalogo) {
+		return catalogo.bean(PlatosDaoImpl.class).getPlatos(Plato::new);
+	}
+
+	@Benchmark
+	public List<com.helloworld.babel.restaurant.model.Plato> getPlatosModelo(Catalogo catalogo) {
+		return catalogo.bean(PlatosDaoImpl.class).getPlatos(com.helloworld.babel.restaurant.model.Plato::fromFila);
+	}
+
+	@Benchmark
+	public List<com.helloworld.babel.restaurant.model.Plato> getPlatosModeloEnDosPasos(Catalogo catalogo) {
+		return catalogo.bean(PlatosDaoImpl.class).getPlatos(Plato::new).stream()
+				.map(com.helloworld.babel.restaurant.model.Plato::fromPlatoDAO)
+				.toList();
+	}
+
+	@Benchmark
+	public Optional<Plato> getPlatosById(Catalogo catalogo) {
+		return catalogo.bean(PlatosDaoImpl.class).getPlatosById(catalogo.platoAleatorio());
+	}
+
+	@Benchmark
+	public Optional<Long> getVersion(Catalogo catalogo) {
+		return catalogo.bean(PlatosDaoImpl.class).getVersion(catalogo.platoAleatorio());
+	}
+
+	@Benchmark
+	public List<Plato> getPlatosPagina(Catalogo catalogo) {
+		return catalogo.bean(PlatosDaoImpl.class).getPlatos(catalogo.platoAleatorio(), 20, Plato::new);
+	}
+
+	@Benchmark
+	public List<Plato> getPlatosByRestauranteCif(Catalogo catalogo) {
+		return catalogo.bean(PlatosDaoImpl.class).getPlatosByRestauranteCif(catalogo.cifAleatorio(), Plato::new);
+	}
+}
@@ -0,0 +1,89 @@
+package com.helloworld.babel.restaurant.benchmarks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prueba de carga contra una instancia arrancada: N clientes concurrentes lanzan GETs
+ * durante el tiempo indicado y se informa del throughput y de los percentiles de latencia.
+ * <p>
+ * java -cp target/test-classes com.helloworld.babel.restaurant.benchmarks.PruebaCarga URL CLIENTES SEGUNDOS
+ */
+public class PruebaCarga {
+
+	public static void main(String[] args) throws Exception {
+		URI uri = URI.create(args.length > 0 ? args[0] : "http://localhost:8080/restaurante/locales");
+		int clientes = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		Duration duracion = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 30);
+
+		HttpClient http = HttpClient.newBuilder().executor(Executors.newFixedThreadPool(8)).build();
+		HttpRequest peticion = HttpRequest.newBuilder(uri).GET().build();
+
+		// Calentamiento para que el JIT y el pool de conexiones esten listos
+		ejecutar(http, peticion, clientes, Duration.ofSeconds(5));
+		Resultado resultado = ejecutar(http, peticion, clientes, duracion);
+
+		long[] latencias = resultado.latencias();
+		Arrays.sort(latencias);
+		System.out.printf("url=%s clientes=%d segundos=%d%n", uri, clientes, duracion.toSeconds());
+		System.out.printf("peticiones=%d errores=%d throughput=%.1f req/s%n",
+				latencias.length, resultado.errores(), latencias.length / (double) duracion.toSeconds());
+		System.out.printf("p50=%.2f ms p99=%.2f ms max=%.2f ms%n",
+				percentil(latencias, 0.50), percentil(latencias, 0.99), percentil(latencias, 1.0));
+		System.exit(0);
+	}
+
+	private static Resultado ejecutar(HttpClient http, HttpRequest peticion, int clientes, Duration duracion) throws Exception {
+		long fin = System.nanoTime() + duracion.toNanos();
+		AtomicInteger errores = new AtomicInteger();
+		ExecutorService hilos = Executors.newFixedThreadPool(clientes);
+		List<Future<long[]>> trabajos = new ArrayList<>(clientes);
+		for (int i = 0; i < clientes; i++) {
+			trabajos.add(hilos.submit(() -> {
+				long[] latencias = new long[1024];
+				int n = 0;
+				while (System.nanoTime() < fin) {
+					long inicio = System.nanoTime();
+					HttpResponse<Void> respuesta = http.send(peticion, HttpResponse.BodyHandlers.discarding());
+					if (respuesta.statusCode() != 200) {
+						errores.incrementAndGet();
+						continue;
+					}
+					if (n == latencias.length) {
+						latencias = Arrays.copyOf(latencias, n * 2);
+					}
+					latencias[n++] = System.nanoTime() - inicio;
+				}
+				return Arrays.copyOf(latencias, n);
+			}));
+		}
+		List<long[]> parciales = new ArrayList<>(clientes);
+		for (Future<long[]> trabajo : trabajos) {
+			parciales.add(trabajo.get());
+		}
+		hilos.shutdown();
+		long[] todas = parciales.stream().flatMapToLong(Arrays::stream).toArray();
+		return new Resultado(todas, errores.get());
+	}
+
+	private static double percentil(long[] ordenadas, double percentil) {
+		if (ordenadas.length == 0) {
+			return Double.NaN;
+		}
+		int indice = (int) Math.ceil(percentil * ordenadas.length) - 1;
+		return ordenadas[Math.max(0, indice)] / 1_000_000.0;
+	}
+
+	private record Resultado(long[] latencias, int errores) {
+	}
+}
@@ -0,0 +1,62 @@
+package com.helloworld.babel.restaurant.benchmarks;
+
+import com.helloworld.babel.restaurant.daos.model.Restaurante;
+import com.helloworld.babel.restaurant.daos.restaurantes.RestaurantesDaoImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RestaurantesDaoBenchmark {
+
+	// Plato que no esta en ninguna carta, para anadirlo y quitarlo sin chocar con la clave primaria
+	private int platoLibre;
+
+	@Setup(Level.Trial)
+	public void preparar(Catalogo catalogo) {
+		JdbcTemplate jdbcTemplate = catalogo.bean(JdbcTemplate.class);
+		jdbcTemplate.update("INSERT INTO plato(nombre, precio, categoria) VALUES('Plato libre', 10, 1)");
+		platoLibre = jdbcTemplate.queryForObject("SELECT MAX(id) FROM plato", Integer.class);
+	}
+
+	@Benchmark
+	public Optional<Restaurante> getRestauranteById(Catalogo catalogo) {
+		return catalogo.bean(RestaurantesDaoImpl.class).getRestauranteById(catalogo.cifAleatorio());
+	}
+
+	@Benchmark
+	public Optional<Long> getVersion(Catalogo catalogo) {
+		return catalogo.bean(RestaurantesDaoImpl.class).getVersion(catalogo.cifAleatorio());
+	}
+
+	@Benchmark
+	public List<Restaurante> getRestaurantesPagina(Catalogo catalogo) {
+		return catalogo.bean(RestaurantesDaoImpl.class).getRestaurantes(catalogo.cifAleatorio(), 20, Restaurante::new);
+	}
+
+	@Benchmark
+	public int addPlatoYRemovePlato(Catalogo catalogo) {
+		RestaurantesDaoImpl dao = catalogo.bean(RestaurantesDaoImpl.class);
+		String cif = catalogo.cifAleatorio();
+		dao.addPlato(cif, platoLibre);
+		return dao.removePlato(cif, platoLibre);
+	}
+}
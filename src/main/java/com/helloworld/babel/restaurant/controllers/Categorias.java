@@ -0,0 +1,26 @@
+package com.helloworld.babel.restaurant.controllers;
+
+import com.helloworld.babel.restaurant.model.Plato;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+public final class Categorias {
+
+	private Categorias() {
+	}
+
+	/**
+	 * Acepta la descripcion que aparece en el JSON de los platos o el nombre de la constante.
+	 */
+	public static Plato.Categoria desde(String categoria) {
+		if (categoria == null) {
+			return null;
+		}
+		for (Plato.Categoria valor : Plato.Categoria.values()) {
+			if (valor.getDescripcion().equalsIgnoreCase(categoria) || valor.name().equalsIgnoreCase(categoria)) {
+				return valor;
+			}
+		}
+		throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Categoria no valida: " + categoria);
+	}
+}
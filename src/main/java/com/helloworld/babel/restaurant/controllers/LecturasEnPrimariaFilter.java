@@ -0,0 +1,65 @@
+package com.helloworld.babel.restaurant.controllers;
+
+import com.helloworld.babel.restaurant.daos.replicas.LecturasEnPrimaria;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Un cliente que escribe lee de la primaria durante la ventana siguiente, para ver sus cambios aunque las replicas
+ * aun no los tengan. Las peticiones que no son GET, HEAD ni OPTIONS dejan una cookie que dura la ventana; mientras
+ * el cliente la envie, sus lecturas tambien van a la primaria.
+ */
+@Component
+@ConditionalOnProperty("restaurant.replicas.urls")
+public class LecturasEnPrimariaFilter extends OncePerRequestFilter {
+
+	public static final String COOKIE = "restaurant-primaria";
+
+	private final Duration ventana;
+
+	public LecturasEnPrimariaFilter(@Value("${restaurant.replicas.ventana-primaria:5s}") Duration ventana) {
+		this.ventana = ventana;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		String metodo = request.getMethod();
+		// Los :batchGet son POST pero solo leen
+		boolean escribe = !HttpMethod.GET.matches(metodo) && !HttpMethod.HEAD.matches(metodo)
+				&& !HttpMethod.OPTIONS.matches(metodo) && !request.getRequestURI().endsWith(":batchGet");
+		if (escribe) {
+			// Antes de atender la peticion: despues la respuesta puede estar ya enviada
+			response.addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(COOKIE, "1")
+					.path("/")
+					.maxAge(ventana)
+					.httpOnly(true)
+					.build().toString());
+		}
+		Cookie cookie = WebUtils.getCookie(request, COOKIE);
+		if (!escribe && cookie == null) {
+			chain.doFilter(request, response);
+			return;
+		}
+		LecturasEnPrimaria.activar();
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			LecturasEnPrimaria.desactivar();
+		}
+	}
+}
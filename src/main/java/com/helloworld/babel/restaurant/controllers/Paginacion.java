@@ -0,0 +1,48 @@
+package com.helloworld.babel.restaurant.controllers;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.List;
+import java.util.function.Function;
+
+public final class Paginacion {
+
+	public static final int LIMITE_POR_DEFECTO = 100;
+	public static final int LIMITE_MAXIMO = 1000;
+
+	private Paginacion() {
+	}
+
+	public static int limite(Integer limit) {
+		if (limit == null) {
+			return LIMITE_POR_DEFECTO;
+		}
+		if (limit < 1 || limit > LIMITE_MAXIMO) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+					"El limite debe estar entre 1 y " + LIMITE_MAXIMO);
+		}
+		return limit;
+	}
+
+	/**
+	 * Devuelve la pagina con una cabecera Link rel="next" apuntando al ultimo
+	 * elemento cuando la pagina esta completa.
+	 */
+	public static <T> ResponseEntity<List<T>> pagina(List<T> elementos, int limite, Function<T, Object> cursor) {
+		ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+		if (elementos.size() == limite) {
+			String siguiente = ServletUriComponentsBuilder
+					.fromCurrentRequest()
+					.replaceQueryParam("after", cursor.apply(elementos.get(elementos.size() - 1)))
+					.replaceQueryParam("limit", limite)
+					.build()
+					.toUriString();
+			respuesta.header(HttpHeaders.LINK, "<" + siguiente + ">; rel=\"next\"");
+		}
+		return respuesta.body(elementos);
+	}
+}
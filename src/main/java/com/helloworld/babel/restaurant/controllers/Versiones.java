@@ -0,0 +1,73 @@
+package com.helloworld.babel.restaurant.controllers;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Los ETag de platos y locales son su version entre comillas. Un PUT con If-Match solo se aplica si el recurso
+ * sigue en esa version, o si existe con *: la comprobacion va en el propio UPDATE, sin bloqueos ni lecturas previas.
+ */
+public final class Versiones {
+
+	private Versiones() {
+	}
+
+	/**
+	 * Lo que pide If-Match: una version concreta, o cualquiera con *, que solo exige que el recurso exista.
+	 *
+	 * @param version la version esperada, o null con *
+	 */
+	public record Condicion(Long version) {
+	}
+
+	/**
+	 * If-Match puede ser * o una lista de ETags separados por comas (RFC 9110). Con * o un solo ETag no se lee
+	 * nada; con varios se lee la version actual y se pide la que coincide, o cualquiera de ellas si ninguna lo
+	 * hace, para que el UPDATE falle y se responda igual que con un ETag antiguo.
+	 *
+	 * @param actual version del recurso, que solo se lee con varios ETags
+	 * @return la condicion que pide If-Match, o vacio si no hay cabecera
+	 */
+	public static Optional<Condicion> esperada(String ifMatch, Supplier<Optional<Long>> actual) {
+		if (ifMatch == null) {
+			return Optional.empty();
+		}
+		if (ifMatch.trim().equals("*")) {
+			return Optional.of(new Condicion(null));
+		}
+		List<Long> versiones = new ArrayList<>();
+		for (String etag : ifMatch.split(",")) {
+			version(etag.trim()).ifPresent(versiones::add);
+		}
+		if (versiones.isEmpty()) {
+			throw noCumplida("If-Match no corresponde a ninguna version: " + ifMatch);
+		}
+		if (versiones.size() == 1) {
+			return Optional.of(new Condicion(versiones.get(0)));
+		}
+		return Optional.of(new Condicion(actual.get().filter(versiones::contains).orElse(versiones.get(0))));
+	}
+
+	/**
+	 * If-Match compara ETags fuertes: uno debil nunca coincide.
+	 */
+	private static Optional<Long> version(String etag) {
+		if (etag.length() > 2 && etag.startsWith("\"") && etag.endsWith("\"")) {
+			try {
+				return Optional.of(Long.parseLong(etag.substring(1, etag.length() - 1)));
+			} catch (NumberFormatException e) {
+				// No es un ETag de este servicio
+			}
+		}
+		return Optional.empty();
+	}
+
+	public static ResponseStatusException noCumplida(String mensaje) {
+		return new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, mensaje);
+	}
+}
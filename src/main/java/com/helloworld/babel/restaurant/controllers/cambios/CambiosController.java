@@ -0,0 +1,9 @@
+package com.helloworld.babel.restaurant.controllers.cambios;
+
+import com.helloworld.babel.restaurant.model.ResultadoCambios;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface CambiosController {
+	CompletableFuture<ResultadoCambios> getCambios(Long desde, Integer limit, boolean esperar);
+}
@@ -0,0 +1,71 @@
+package com.helloworld.babel.restaurant.controllers.cambios;
+
+import com.helloworld.babel.restaurant.controllers.Paginacion;
+import com.helloworld.babel.restaurant.model.ResultadoCambios;
+import com.helloworld.babel.restaurant.servicios.cambios.CambiosService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CompletableFuture;
+
+@Tag(name = "Cambios", description = "Registro de cambios del catalogo para replicarlo")
+@SecurityRequirement(name = "basicAuth")
+@RestController
+@RequestMapping("restaurante")
+public class CambiosControllerImpl implements CambiosController {
+
+    private final CambiosService cambiosService;
+
+    public CambiosControllerImpl(CambiosService cambiosService) {
+        this.cambiosService = cambiosService;
+    }
+
+    @Override
+    @GetMapping("cambios")
+    @Operation(summary = "Cambios del catalogo desde un numero",
+            description = "Devuelve en orden los cambios de platos, locales y cartas posteriores a desde. Si aun no " +
+                    "hay ninguno la peticion espera al siguiente, hasta restaurant.cambios.espera, y se responde sin " +
+                    "cambios si no llega; con esperar=false se responde enseguida. El campo ultimo es el desde de la " +
+                    "siguiente peticion. Sin desde solo se devuelve el ultimo numero: se pide antes de descargar el " +
+                    "catalogo completo y desde ahi se siguen los cambios",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Cambios posteriores a desde, posiblemente ninguno",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = ResultadoCambios.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "desde negativo o limite fuera de rango",
+                            content = @Content(mediaType = "application/json")
+                    ),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal Server Error",
+                            content = @Content(mediaType = "application/json")
+                    )
+            })
+    public CompletableFuture<ResultadoCambios> getCambios(@RequestParam(required = false) Long desde,
+                                                          @RequestParam(required = false) Integer limit,
+                                                          @RequestParam(defaultValue = "true") boolean esperar) {
+        int limite = Paginacion.limite(limit);
+        if (desde != null && desde < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "desde no puede ser negativo");
+        }
+        if (desde == null || !esperar) {
+            return CompletableFuture.completedFuture(cambiosService.getCambios(desde, limite));
+        }
+        return cambiosService.esperarCambios(desde, limite);
+    }
+}
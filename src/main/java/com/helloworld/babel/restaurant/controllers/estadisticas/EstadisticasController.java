@@ -0,0 +1,11 @@
+package com.helloworld.babel.restaurant.controllers.estadisticas;
+
+import com.helloworld.babel.restaurant.model.Estadisticas;
+
+import java.util.Map;
+
+public interface EstadisticasController {
+	Estadisticas getEstadisticas();
+	Estadisticas getEstadisticasLocal(String cif);
+	Map<String, Boolean> reconstruirEstadisticas();
+}
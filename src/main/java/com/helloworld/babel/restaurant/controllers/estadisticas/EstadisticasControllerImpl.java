@@ -0,0 +1,107 @@
+package com.helloworld.babel.restaurant.controllers.estadisticas;
+
+import com.helloworld.babel.restaurant.model.Estadisticas;
+import com.helloworld.babel.restaurant.servicios.estadisticas.EstadisticasService;
+import com.helloworld.babel.restaurant.servicios.exceptions.NotFoundException;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+
+@Tag(name = "Estadisticas", description = "Estadisticas de precios de las cartas")
+@SecurityRequirement(name = "basicAuth")
+@RestController
+@RequestMapping("restaurante")
+public class EstadisticasControllerImpl implements EstadisticasController {
+
+    private final EstadisticasService estadisticasService;
+
+    public EstadisticasControllerImpl(EstadisticasService estadisticasService) {
+        this.estadisticasService = estadisticasService;
+    }
+
+    @Override
+    @GetMapping("estadisticas")
+    @Operation(summary = "Estadisticas de todas las cartas",
+            description = "Numero de platos, precio medio, minimo, maximo e histograma de precios por categoria " +
+                    "de todas las cartas juntas. Un plato cuenta una vez por cada carta en la que esta",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Estadisticas obtenidas exitosamente",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = Estadisticas.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal Server Error",
+                            content = @Content(mediaType = "application/json")
+                    )
+            })
+    public Estadisticas getEstadisticas() {
+        return estadisticasService.getEstadisticas();
+    }
+
+    @Override
+    @GetMapping("locales/{cif}/estadisticas")
+    @Operation(summary = "Estadisticas de la carta de un local",
+            description = "Numero de platos, precio medio, minimo, maximo e histograma de precios por categoria " +
+                    "de la carta del local cuyo CIF coincide con el parametro",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Estadisticas obtenidas exitosamente",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = Estadisticas.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Local no encontrado",
+                            content = @Content(mediaType = "application/json")
+                    ),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal Server Error",
+                            content = @Content(mediaType = "application/json")
+                    )
+            })
+    public Estadisticas getEstadisticasLocal(@PathVariable String cif) {
+        try {
+            return estadisticasService.getEstadisticasLocal(cif);
+        } catch (NotFoundException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    @Override
+    @PostMapping("estadisticas:reconstruir")
+    @Operation(summary = "Reconstruye las estadisticas desde la base de datos",
+            description = "Vuelve a calcular las estadisticas con las cartas guardadas y las sustituye. " +
+                    "Indica si coincidian con las mantenidas a partir de los cambios del catalogo",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Estadisticas reconstruidas",
+                            content = @Content(mediaType = "application/json")
+                    ),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal Server Error",
+                            content = @Content(mediaType = "application/json")
+                    )
+            })
+    public Map<String, Boolean> reconstruirEstadisticas() {
+        return Map.of("coincidian", estadisticasService.reconstruirEstadisticas());
+    }
+}
@@ -0,0 +1,11 @@
+package com.helloworld.babel.restaurant.controllers.importacion;
+
+import com.helloworld.babel.restaurant.model.ResultadoImportacion;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface ImportacionController {
+	ResultadoImportacion<Long> importarPlatos(InputStream platos) throws IOException;
+	ResultadoImportacion<String> importarLocales(InputStream locales) throws IOException;
+}
@@ -0,0 +1,76 @@
+package com.helloworld.babel.restaurant.controllers.importacion;
+
+import com.helloworld.babel.restaurant.model.ResultadoImportacion;
+import com.helloworld.babel.restaurant.servicios.importacion.ImportacionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@Tag(name = "Importacion", description = "Carga masiva de platos y locales")
+@SecurityRequirement(name = "basicAuth")
+@RestController
+@RequestMapping("restaurante")
+public class ImportacionControllerImpl implements ImportacionController {
+
+    private final ImportacionService importacionService;
+
+    public ImportacionControllerImpl(ImportacionService importacionService) {
+        this.importacionService = importacionService;
+    }
+
+    @Override
+    @PostMapping(value = "platos:bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(summary = "Importacion masiva de platos",
+            description = "Recibe un array JSON o NDJSON de platos y los inserta por lotes. " +
+                    "Devuelve los IDs generados en el orden de las filas y los errores de cada fila",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Importacion terminada, puede contener errores por fila",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = ResultadoImportacion.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal Server Error",
+                            content = @Content(mediaType = "application/json")
+                    )
+            })
+    public ResultadoImportacion<Long> importarPlatos(InputStream platos) throws IOException {
+        return importacionService.importarPlatos(platos);
+    }
+
+    @Override
+    @PostMapping(value = "locales:bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(summary = "Importacion masiva de locales",
+            description = "Recibe un array JSON o NDJSON de locales y los inserta por lotes. " +
+                    "Devuelve los CIFs insertados en el orden de las filas y los errores de cada fila",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Importacion terminada, puede contener errores por fila",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = ResultadoImportacion.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal Server Error",
+                            content = @Content(mediaType = "application/json")
+                    )
+            })
+    public ResultadoImportacion<String> importarLocales(InputStream locales) throws IOException {
+        return importacionService.importarLocales(locales);
+    }
+}
@@ -0,0 +1,9 @@
+package com.helloworld.babel.restaurant.controllers.instantanea;
+
+import com.helloworld.babel.restaurant.model.ResumenInstantanea;
+
+import java.io.IOException;
+
+public interface InstantaneaController {
+	ResumenInstantanea exportarInstantanea() throws IOException;
+}
@@ -0,0 +1,51 @@
+package com.helloworld.babel.restaurant.controllers.instantanea;
+
+import com.helloworld.babel.restaurant.model.ResumenInstantanea;
+import com.helloworld.babel.restaurant.servicios.instantanea.InstantaneaService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@Tag(name = "Instantaneas", description = "Copias binarias del catalogo para arrancar otras instancias")
+@SecurityRequirement(name = "basicAuth")
+@RestController
+@RequestMapping("restaurante")
+public class InstantaneaControllerImpl implements InstantaneaController {
+
+    private final InstantaneaService instantaneaService;
+
+    public InstantaneaControllerImpl(InstantaneaService instantaneaService) {
+        this.instantaneaService = instantaneaService;
+    }
+
+    @Override
+    @PostMapping("catalogo:instantanea")
+    @Operation(summary = "Escribe una instantanea del catalogo",
+            description = "Guarda platos, locales y cartas en el fichero de restaurant.instantanea.fichero, " +
+                    "en un formato binario compacto. Otra instancia arrancada con restaurant.instantanea.cargar " +
+                    "apuntando al fichero empieza con el mismo catalogo y las mismas versiones",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Instantanea escrita",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = ResumenInstantanea.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "No se pudo escribir el fichero",
+                            content = @Content(mediaType = "application/json")
+                    )
+            })
+    public ResumenInstantanea exportarInstantanea() throws IOException {
+        return instantaneaService.exportar();
+    }
+}
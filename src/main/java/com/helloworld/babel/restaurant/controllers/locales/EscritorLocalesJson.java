@@ -0,0 +1,96 @@
+package com.helloworld.babel.restaurant.controllers.locales;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.helloworld.babel.restaurant.model.Plato.Categoria;
+import com.helloworld.babel.restaurant.servicios.locales.LectorLocales;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Escribe el listado de locales segun llegan las filas, con la misma forma que Jackson da a
+ * {@link com.helloworld.babel.restaurant.model.Local} y {@link com.helloworld.babel.restaurant.model.Plato}.
+ * Solo se mantiene en memoria el buffer del generador, que se vacia cada {@value #LOCALES_POR_ENVIO} locales.
+ * Con un generador de Smile o CBOR escribe los mismos campos en binario.
+ */
+final class EscritorLocalesJson implements LectorLocales {
+
+    private static final int LOCALES_POR_ENVIO = 100;
+
+    private static final SerializedString CIF = new SerializedString("cif");
+    private static final SerializedString NOMBRE = new SerializedString("nombre");
+    private static final SerializedString DIRECCION = new SerializedString("direccion");
+    private static final SerializedString TELEFONO = new SerializedString("telefono");
+    private static final SerializedString CARTA = new SerializedString("carta");
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString PRECIO = new SerializedString("precio");
+    private static final SerializedString CATEGORIA = new SerializedString("categoria");
+
+    private final JsonGenerator json;
+    private int locales;
+    // Hay un local abierto esperando sus platos
+    private boolean enLocal;
+
+    EscritorLocalesJson(JsonGenerator json) throws IOException {
+        this.json = json;
+        json.writeStartArray();
+    }
+
+    @Override
+    public void local(String cif, String nombre, String direccion, String telefono) {
+        try {
+            cerrarLocal();
+            if (locales > 0 && locales % LOCALES_POR_ENVIO == 0) {
+                json.flush();
+            }
+            json.writeStartObject();
+            json.writeFieldName(CIF);
+            json.writeString(cif);
+            json.writeFieldName(NOMBRE);
+            json.writeString(nombre);
+            json.writeFieldName(DIRECCION);
+            json.writeString(direccion);
+            json.writeFieldName(TELEFONO);
+            json.writeString(telefono);
+            json.writeFieldName(CARTA);
+            json.writeStartArray();
+            enLocal = true;
+            locales++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void plato(int id, String nombre, double precio, Categoria categoria) {
+        try {
+            json.writeStartObject();
+            json.writeFieldName(ID);
+            json.writeNumber(id);
+            json.writeFieldName(NOMBRE);
+            json.writeString(nombre);
+            json.writeFieldName(PRECIO);
+            json.writeNumber(precio);
+            json.writeFieldName(CATEGORIA);
+            json.writeString(categoria.getDescripcion());
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void terminar() throws IOException {
+        cerrarLocal();
+        json.writeEndArray();
+        json.flush();
+    }
+
+    private void cerrarLocal() throws IOException {
+        if (enLocal) {
+            json.writeEndArray();
+            json.writeEndObject();
+            enLocal = false;
+        }
+    }
+}
@@ -1,17 +1,27 @@
 package com.helloworld.babel.restaurant.controllers.locales;
 
+import com.helloworld.babel.restaurant.model.CambioCarta;
 import com.helloworld.babel.restaurant.model.Local;
 import com.helloworld.babel.restaurant.model.Plato;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.List;
 
 public interface LocalesController {
-	List<Local> getLocales();
-	Local getLocalByCif(String cif);
-	ResponseEntity<Void> createOrUpdateLocal(String cif, Local local);
+	ResponseEntity<List<Local>> getLocales(String after, Integer limit, String accept, HttpServletResponse response)
+			throws IOException, HttpMediaTypeNotAcceptableException;
+	StreamingResponseBody exportLocales();
+	Local getLocalByCif(String cif, WebRequest request);
+	ResponseEntity<Local> createOrUpdateLocal(String cif, String ifMatch, Local local);
 	ResponseEntity<Void> deleteLocal(String cif);
-	List<Plato> getPlatos(String cif);
+	List<Plato> getPlatos(String cif, String categoria, Double minPrecio, Double maxPrecio, String sort, Integer limit);
 	ResponseEntity<Void> addPlato(String cif, int plato);
 	ResponseEntity<Void> removePlato(String cif, int plato);
+	List<Plato> replaceCarta(String cif, List<Integer> platos);
+	List<Plato> updateCarta(String cif, CambioCarta cambio);
 }
@@ -1,8 +1,22 @@
 package com.helloworld.babel.restaurant.controllers.locales;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.helloworld.babel.restaurant.controllers.Categorias;
+import com.helloworld.babel.restaurant.controllers.FormatosConfig;
+import com.helloworld.babel.restaurant.controllers.Paginacion;
+import com.helloworld.babel.restaurant.controllers.Versiones;
+import com.helloworld.babel.restaurant.model.CambioCarta;
 import com.helloworld.babel.restaurant.model.Local;
 import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.servicios.exceptions.ConflictoVersionException;
 import com.helloworld.babel.restaurant.servicios.exceptions.NotFoundException;
+import com.helloworld.babel.restaurant.servicios.locales.FiltroCarta;
 import com.helloworld.babel.restaurant.servicios.locales.LocalesService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -11,13 +25,28 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Tag(name = "Locales", description = "Operaciones relacionadas con los locales")
@@ -27,25 +56,46 @@ import java.util.Optional;
 public class LocalesControllerImpl implements LocalesController {
 
     private final LocalesService localesService;
+    private final ObjectWriter ndjsonWriter;
+    // Formatos del listado en streaming, por orden de preferencia si Accept admite varios
+    private final Map<MediaType, JsonFactory> generadores = new LinkedHashMap<>();
+    private final boolean listadoEnStreaming;
 
-    public LocalesControllerImpl(LocalesService localesService) {
+    public LocalesControllerImpl(LocalesService localesService, ObjectMapper objectMapper,
+                                 MappingJackson2SmileHttpMessageConverter smile,
+                                 MappingJackson2CborHttpMessageConverter cbor,
+                                 @Value("${restaurant.locales.respuesta:objetos}") String respuesta) {
         this.localesService = localesService;
+        this.ndjsonWriter = objectMapper
+                .writerFor(Local.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n");
+        this.generadores.put(MediaType.APPLICATION_JSON, objectMapper.getFactory());
+        this.generadores.put(FormatosConfig.APPLICATION_SMILE, smile.getObjectMapper().getFactory());
+        this.generadores.put(MediaType.APPLICATION_CBOR, cbor.getObjectMapper().getFactory());
+        this.listadoEnStreaming = "streaming".equals(respuesta);
     }
 
 
     @Override
     @GetMapping("")
     @Operation(summary = "Listado de locales",
-            description = "Obtiene una lista de todos los locales registrados en el sistema",
+            description = "Obtiene una lista de todos los locales registrados en el sistema. " +
+                    "Con los parametros after y limit se pagina por CIF. Con restaurant.locales.respuesta=streaming " +
+                    "el listado completo se escribe segun se lee de la base de datos, con el mismo JSON. " +
+                    "Con Accept application/x-jackson-smile o application/cbor se responde en binario",
             responses = {
                     @ApiResponse(
                             responseCode = "200",
                             description = "Listado de locales obtenido exitosamente",
-                            content = @Content(mediaType = "application/json",
-                                    array = @ArraySchema(
-                                            schema = @Schema(implementation = Local.class)
-                                    )
-                            )
+                            content = {
+                                    @Content(mediaType = "application/json",
+                                            array = @ArraySchema(schema = @Schema(implementation = Local.class))),
+                                    @Content(mediaType = "application/x-jackson-smile",
+                                            array = @ArraySchema(schema = @Schema(implementation = Local.class))),
+                                    @Content(mediaType = "application/cbor",
+                                            array = @ArraySchema(schema = @Schema(implementation = Local.class)))
+                            }
                     ),
                     @ApiResponse(
                             responseCode = "204",
@@ -63,14 +113,90 @@ public class LocalesControllerImpl implements LocalesController {
                             content = @Content(mediaType = "application/json")
                     )
             })
-    public List<Local> getLocales() {
-        return localesService.getLocales();
+    public ResponseEntity<List<Local>> getLocales(@RequestParam(required = false) String after,
+                                                  @RequestParam(required = false) Integer limit,
+                                                  @RequestHeader(value = HttpHeaders.ACCEPT, defaultValue = MediaType.ALL_VALUE) String accept,
+                                                  HttpServletResponse response)
+            throws IOException, HttpMediaTypeNotAcceptableException {
+        if (after == null && limit == null) {
+            if (listadoEnStreaming) {
+                escribirLocales(formato(accept), response);
+                return null;
+            }
+            return ResponseEntity.ok(localesService.getLocales());
+        }
+        int limite = Paginacion.limite(limit);
+        List<Local> locales = localesService.getLocales(after == null ? "" : after, limite);
+        return Paginacion.pagina(locales, limite, Local::getCif);
+    }
+
+    /**
+     * El primer formato del listado en streaming que admite Accept, siguiendo el orden de la cabecera.
+     */
+    private MediaType formato(String accept) throws HttpMediaTypeNotAcceptableException {
+        List<MediaType> aceptados;
+        try {
+            aceptados = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            throw new HttpMediaTypeNotAcceptableException(e.getMessage());
+        }
+        for (MediaType aceptado : aceptados) {
+            for (MediaType formato : generadores.keySet()) {
+                if (aceptado.includes(formato)) {
+                    return formato;
+                }
+            }
+        }
+        throw new HttpMediaTypeNotAcceptableException(List.copyOf(generadores.keySet()));
+    }
+
+    private void escribirLocales(MediaType formato, HttpServletResponse response) throws IOException {
+        // Se escribe en la respuesta segun llegan las filas; Spring no la vuelve a tratar al devolver null
+        response.setContentType(formato.toString());
+        try (JsonGenerator json = generadores.get(formato).createGenerator(response.getOutputStream(), JsonEncoding.UTF8)) {
+            EscritorLocalesJson escritor = new EscritorLocalesJson(json);
+            localesService.leerLocales(escritor);
+            escritor.terminar();
+        }
+    }
+
+    @Override
+    @GetMapping(value = "", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Exportacion de locales",
+            description = "Devuelve todos los locales con su carta en formato NDJSON, un local por linea, " +
+                    "escribiendo cada local segun se lee de la base de datos",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Exportacion de locales en curso",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = Local.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal Server Error",
+                            content = @Content(mediaType = "application/json")
+                    )
+            })
+    public StreamingResponseBody exportLocales() {
+        return out -> {
+            try (SequenceWriter writer = ndjsonWriter.writeValues(out)) {
+                localesService.forEachLocal(local -> {
+                    try {
+                        writer.write(local);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
     }
 
     @Override
     @GetMapping("/{cif}")
     @Operation(summary = "Get local por su CIF",
-            description = "Obtenemos un local por su CIF de identificacion",
+            description = "Obtenemos un local por su CIF de identificacion. " +
+                    "La respuesta lleva un ETag con la version del local; con If-None-Match se responde 304 si no ha cambiado",
             responses = {
                     @ApiResponse(
                             responseCode = "200",
@@ -78,6 +204,10 @@ public class LocalesControllerImpl implements LocalesController {
                             content = @Content(mediaType = "application/json",
                                     schema = @Schema(implementation = Local.class))
                     ),
+                    @ApiResponse(
+                            responseCode = "304",
+                            description = "Local sin cambios respecto al ETag de If-None-Match"
+                    ),
                     @ApiResponse(
                             responseCode = "404",
                             description = "Local no encontrado",
@@ -94,7 +224,15 @@ public class LocalesControllerImpl implements LocalesController {
                             content = @Content(mediaType = "application/json")
                     )
             })
-    public Local getLocalByCif(@PathVariable String cif) {
+    public Local getLocalByCif(@PathVariable String cif, WebRequest request) {
+        Optional<Long> version = localesService.getVersion(cif);
+        if (version.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Local no encontrado");
+        }
+        // La version se lee antes que el local: si cambia entre medias el ETag queda antiguo y se revalida
+        if (request.checkNotModified(String.valueOf(version.get()))) {
+            return null;
+        }
         Optional<Local> local = localesService.getLocalByCif(cif);
         if (local.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Local no encontrado");
@@ -106,7 +244,9 @@ public class LocalesControllerImpl implements LocalesController {
     @Override
     @PutMapping("/{cif}")
     @Operation(summary = "Actualizar o crear un local a partir de su CIF",
-            description = "Si el local existe se actualiza y si no existe se crea a partir del CIF",
+            description = "Si el local existe se actualiza y si no existe se crea a partir del CIF. " +
+                    "Con If-Match y el ETag de una lectura anterior solo se actualiza si el local y su carta no han " +
+                    "cambiado desde entonces; la respuesta lleva el ETag de la nueva version",
             responses = {
                     @ApiResponse(
                             responseCode = "201",
@@ -133,6 +273,17 @@ public class LocalesControllerImpl implements LocalesController {
                             description = "Error de validación en los datos enviados",
                             content = @Content(mediaType = "application/json")
                     ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "El local ha cambiado desde el ETag de If-Match. Se devuelve el local actual con su ETag",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = Local.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "412",
+                            description = "Con If-Match, el local no existe o el ETag no es valido",
+                            content = @Content(mediaType = "application/json")
+                    ),
                     @ApiResponse(
                             responseCode = "500",
                             description = "Internal Server Error",
@@ -140,11 +291,26 @@ public class LocalesControllerImpl implements LocalesController {
                     )
             }
     )
-    public ResponseEntity<Void> createOrUpdateLocal(@PathVariable String cif, @RequestBody Local local) {
+    public ResponseEntity<Local> createOrUpdateLocal(@PathVariable String cif,
+                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                     @RequestBody Local local) {
         local.setCif(cif);
-        Optional<Local> updatedLocal = localesService.updateLocal(local);
-        if (updatedLocal.isEmpty()) {
-            localesService.createLocal(local);
+        Optional<Versiones.Condicion> condicion = Versiones.esperada(ifMatch, () -> localesService.getVersion(cif));
+        if (condicion.isPresent()) {
+            try {
+                long nueva = localesService.updateLocal(local, condicion.get().version());
+                return ResponseEntity.
+                        noContent().
+                        eTag(String.valueOf(nueva)).
+                        header("Content-Location", "/restaurante/locales/" + local.getCif()).
+                        build();
+            } catch (NotFoundException e) {
+                throw Versiones.noCumplida(e.getMessage());
+            } catch (ConflictoVersionException e) {
+                return conflicto(cif);
+            }
+        }
+        if (localesService.upsertLocal(local)) {
             return ResponseEntity.
                     created(URI.create("/restaurante/locales/" + local.getCif())).
                     build();
@@ -156,6 +322,19 @@ public class LocalesControllerImpl implements LocalesController {
         }
     }
 
+    private ResponseEntity<Local> conflicto(String cif) {
+        // Como en getLocalByCif, la version se lee antes que el local: un ETag antiguo no pisa cambios
+        Optional<Long> version = localesService.getVersion(cif);
+        Optional<Local> local = localesService.getLocalByCif(cif);
+        if (version.isEmpty() || local.isEmpty()) {
+            throw Versiones.noCumplida("Local no encontrado");
+        }
+        return ResponseEntity.
+                status(HttpStatus.CONFLICT).
+                eTag(String.valueOf(version.get())).
+                body(local.get());
+    }
+
     @Override
     @DeleteMapping("/{cif}")
     @Operation(summary = "Eliminando local a partir de su CIF",
@@ -189,7 +368,9 @@ public class LocalesControllerImpl implements LocalesController {
     @Override
     @GetMapping("/{cif}/platos")
     @Operation(summary = "Listado de platos",
-            description = "Devuelve la lista de platos que hay en el local con este CIF",
+            description = "Devuelve la lista de platos que hay en el local con este CIF. Se puede filtrar por " +
+                    "categoria y rango de precio, ordenar por precio o nombre y limitar el numero de platos; " +
+                    "sin sort los platos salen en el orden de la carta",
             responses = {
                     @ApiResponse(
                             responseCode = "200",
@@ -207,7 +388,7 @@ public class LocalesControllerImpl implements LocalesController {
                     ),
                     @ApiResponse(
                             responseCode = "400",
-                            description = "Solicitud incorrecta",
+                            description = "Categoria, rango de precio, orden o limite no validos",
                             content = @Content(mediaType = "application/json")
                     ),
                     @ApiResponse(
@@ -217,14 +398,36 @@ public class LocalesControllerImpl implements LocalesController {
                     )
             }
     )
-    public List<Plato> getPlatos(@PathVariable String cif) {
+    public List<Plato> getPlatos(@PathVariable String cif,
+                                 @RequestParam(required = false) String categoria,
+                                 @RequestParam(required = false) Double minPrecio,
+                                 @RequestParam(required = false) Double maxPrecio,
+                                 @RequestParam(required = false) String sort,
+                                 @RequestParam(required = false) Integer limit) {
+        if (minPrecio != null && maxPrecio != null && minPrecio > maxPrecio) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "minPrecio no puede ser mayor que maxPrecio");
+        }
+        // Sin limit la carta sale entera, como antes de poder filtrarla
+        FiltroCarta filtro = new FiltroCarta(Categorias.desde(categoria), minPrecio, maxPrecio, toOrden(sort),
+                limit == null ? null : Paginacion.limite(limit));
         try {
-            return localesService.getPlatosByLocal(cif);
+            return localesService.getPlatosByLocal(cif, filtro);
         } catch (NotFoundException e) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
         }
     }
 
+    private static FiltroCarta.Orden toOrden(String sort) {
+        if (sort == null) {
+            return null;
+        }
+        return switch (sort) {
+            case "precio" -> FiltroCarta.Orden.PRECIO;
+            case "nombre" -> FiltroCarta.Orden.NOMBRE;
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "sort debe ser precio o nombre");
+        };
+    }
+
     @Override
     @PostMapping("/{cif}/platos")
     @Operation(summary = "Añadiendo plato en el local segun el cif",
@@ -299,4 +502,95 @@ public class LocalesControllerImpl implements LocalesController {
         }
         return ResponseEntity.noContent().build();
     }
+
+    @Override
+    @PutMapping("/{cif}/platos")
+    @Operation(summary = "Sustituir la carta del local",
+            description = "La carta del local pasa a tener exactamente los platos indicados. " +
+                    "Los cambios se aplican en una sola transaccion",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Carta actualizada",
+                            content = @Content(mediaType = "application/json",
+                                    array = @ArraySchema(
+                                            schema = @Schema(implementation = Plato.class)
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "La lista de platos contiene valores nulos",
+                            content = @Content(mediaType = "application/json")
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Local o platos no encontrados",
+                            content = @Content(mediaType = "application/json")
+                    ),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal Server Error",
+                            content = @Content(mediaType = "application/json")
+                    )
+            })
+    public List<Plato> replaceCarta(@PathVariable String cif, @RequestBody List<Integer> platos) {
+        comprobarIds(platos);
+        try {
+            return localesService.replaceCarta(cif, new LinkedHashSet<>(platos));
+        } catch (NotFoundException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    @Override
+    @PatchMapping("/{cif}/platos")
+    @Operation(summary = "Añadir y quitar platos de la carta del local",
+            description = "Añade y quita varios platos de la carta en una sola transaccion. " +
+                    "Los platos que ya estaban o que no estaban se ignoran",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Carta actualizada",
+                            content = @Content(mediaType = "application/json",
+                                    array = @ArraySchema(
+                                            schema = @Schema(implementation = Plato.class)
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Un mismo plato aparece para añadir y quitar, o las listas contienen valores nulos",
+                            content = @Content(mediaType = "application/json")
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Local o platos no encontrados",
+                            content = @Content(mediaType = "application/json")
+                    ),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal Server Error",
+                            content = @Content(mediaType = "application/json")
+                    )
+            })
+    public List<Plato> updateCarta(@PathVariable String cif, @RequestBody CambioCarta cambio) {
+        comprobarIds(cambio.getAnadir());
+        comprobarIds(cambio.getQuitar());
+        try {
+            return localesService.updateCarta(cif,
+                    new LinkedHashSet<>(cambio.getAnadir()),
+                    new LinkedHashSet<>(cambio.getQuitar()));
+        } catch (NotFoundException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private static void comprobarIds(List<Integer> platos) {
+        if (platos == null || platos.contains(null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "La lista de platos no puede ser nula ni contener valores nulos");
+        }
+    }
 }
@@ -0,0 +1,12 @@
+package com.helloworld.babel.restaurant.controllers.lotes;
+
+import com.helloworld.babel.restaurant.model.Local;
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.ResultadoLote;
+
+import java.util.List;
+
+public interface LotesController {
+	ResultadoLote<Plato, Integer> getPlatosByIds(List<Integer> ids);
+	ResultadoLote<Local, String> getLocalesByCifs(List<String> cifs);
+}
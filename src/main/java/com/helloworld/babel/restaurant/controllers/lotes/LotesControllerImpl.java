@@ -0,0 +1,106 @@
+package com.helloworld.babel.restaurant.controllers.lotes;
+
+import com.helloworld.babel.restaurant.controllers.Paginacion;
+import com.helloworld.babel.restaurant.model.Local;
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.ResultadoLote;
+import com.helloworld.babel.restaurant.servicios.locales.LocalesService;
+import com.helloworld.babel.restaurant.servicios.platos.PlatosService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@Tag(name = "Lotes", description = "Consulta de varios platos o locales en una sola llamada")
+@SecurityRequirement(name = "basicAuth")
+@RestController
+@RequestMapping("restaurante")
+public class LotesControllerImpl implements LotesController {
+
+    private final PlatosService platosService;
+    private final LocalesService localesService;
+
+    public LotesControllerImpl(PlatosService platosService, LocalesService localesService) {
+        this.platosService = platosService;
+        this.localesService = localesService;
+    }
+
+    @Override
+    @GetMapping(value = "platos", params = "ids")
+    @Operation(summary = "Platos por ID",
+            description = "Obtiene los platos de la lista de IDs separados por comas, como mucho " +
+                    Paginacion.LIMITE_MAXIMO + ". Los IDs que no existen se devuelven aparte sin fallar la peticion",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Platos encontrados e IDs inexistentes",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = ResultadoLote.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "ID inválido o demasiados IDs",
+                            content = @Content(mediaType = "application/json")
+                    ),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal Server Error",
+                            content = @Content(mediaType = "application/json")
+                    )
+            })
+    public ResultadoLote<Plato, Integer> getPlatosByIds(@RequestParam List<Integer> ids) {
+        comprobarTamano(ids);
+        return platosService.getPlatosByIds(ids);
+    }
+
+    @Override
+    @PostMapping("locales:batchGet")
+    @Operation(summary = "Locales por CIF",
+            description = "Recibe un array JSON de CIFs, como mucho " + Paginacion.LIMITE_MAXIMO +
+                    ", y devuelve esos locales con sus cartas. Los CIFs que no existen se devuelven aparte " +
+                    "sin fallar la peticion",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Locales encontrados y CIFs inexistentes",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = ResultadoLote.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Cuerpo inválido o demasiados CIFs",
+                            content = @Content(mediaType = "application/json")
+                    ),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal Server Error",
+                            content = @Content(mediaType = "application/json")
+                    )
+            })
+    public ResultadoLote<Local, String> getLocalesByCifs(@RequestBody List<String> cifs) {
+        comprobarTamano(cifs);
+        return localesService.getLocalesByCifs(cifs);
+    }
+
+    private static void comprobarTamano(List<?> claves) {
+        if (claves.size() > Paginacion.LIMITE_MAXIMO) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "No se pueden pedir mas de " + Paginacion.LIMITE_MAXIMO + " elementos a la vez");
+        }
+        if (claves.contains(null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "La lista contiene valores nulos");
+        }
+    }
+}
@@ -1,14 +1,21 @@
 package com.helloworld.babel.restaurant.controllers.platos;
 
+import com.helloworld.babel.restaurant.model.Local;
 import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.ResultadoBusqueda;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
 public interface PlatosController {
-	List<Plato> getPlatos();
-	Plato getPlatosById(String id);
-	ResponseEntity<Void> updatePlato(int id, Plato plato);
+	ResponseEntity<List<Plato>> getPlatos(Integer after, Integer limit);
+	StreamingResponseBody exportPlatos();
+	ResultadoBusqueda buscarPlatos(String q, String categoria, Double minPrecio, Double maxPrecio, String cif, Integer limit);
+	Plato getPlatosById(String id, WebRequest request);
+	List<Local> getLocalesByPlato(int id);
+	ResponseEntity<Plato> updatePlato(int id, String ifMatch, Plato plato);
 	ResponseEntity<Void> deletePlato(int id);
 	ResponseEntity<Long> createPlato(Plato plato);
 }
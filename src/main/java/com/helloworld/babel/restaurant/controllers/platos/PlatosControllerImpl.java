@@ -1,7 +1,19 @@
 package com.helloworld.babel.restaurant.controllers.platos;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.helloworld.babel.restaurant.controllers.Categorias;
+import com.helloworld.babel.restaurant.controllers.Paginacion;
+import com.helloworld.babel.restaurant.controllers.Versiones;
 import com.helloworld.babel.restaurant.model.Local;
 import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.ResultadoBusqueda;
+import com.helloworld.babel.restaurant.servicios.busqueda.ConsultaPlatos;
+import com.helloworld.babel.restaurant.servicios.exceptions.ConflictoVersionException;
+import com.helloworld.babel.restaurant.servicios.exceptions.NotFoundException;
+import com.helloworld.babel.restaurant.servicios.locales.LocalesService;
 import com.helloworld.babel.restaurant.servicios.platos.PlatosService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -10,11 +22,17 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.util.List;
 import java.util.Optional;
@@ -26,25 +44,37 @@ import java.util.Optional;
 public class PlatosControllerImpl implements PlatosController {
 
     private final PlatosService platosService;
+    private final LocalesService localesService;
+    private final ObjectWriter ndjsonWriter;
 
-    public PlatosControllerImpl(PlatosService platosService) {
+    public PlatosControllerImpl(PlatosService platosService, LocalesService localesService, ObjectMapper objectMapper) {
         this.platosService = platosService;
+        this.localesService = localesService;
+        this.ndjsonWriter = objectMapper
+                .writerFor(Plato.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n");
     }
 
 
     @Override
     @GetMapping("")
     @Operation(summary = "Listado de platos",
-            description = "Obtiene una lista de todos los platos registrados en el sistema",
+            description = "Obtiene una lista de todos los platos registrados en el sistema. " +
+                    "Con los parametros after y limit se pagina por ID. " +
+                    "Con Accept application/x-jackson-smile o application/cbor se responde en binario",
             responses = {
                     @ApiResponse(
                             responseCode = "200",
                             description = "Listado de platos obtenido exitosamente",
-                            content = @Content(mediaType = "application/json",
-                                    array = @ArraySchema(
-                                            schema = @Schema(implementation = Local.class)
-                                    )
-                            )
+                            content = {
+                                    @Content(mediaType = "application/json",
+                                            array = @ArraySchema(schema = @Schema(implementation = Plato.class))),
+                                    @Content(mediaType = "application/x-jackson-smile",
+                                            array = @ArraySchema(schema = @Schema(implementation = Plato.class))),
+                                    @Content(mediaType = "application/cbor",
+                                            array = @ArraySchema(schema = @Schema(implementation = Plato.class)))
+                            }
                     ),
                     @ApiResponse(
                             responseCode = "204",
@@ -62,16 +92,91 @@ public class PlatosControllerImpl implements PlatosController {
                             content = @Content(mediaType = "application/json")
                     )
             })
-    public List<Plato> getPlatos() {
-        List<Plato> platos = platosService.getPlatos();
-        return platos;
+    public ResponseEntity<List<Plato>> getPlatos(@RequestParam(required = false) Integer after,
+                                                 @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(platosService.getPlatos());
+        }
+        int limite = Paginacion.limite(limit);
+        List<Plato> platos = platosService.getPlatos(after == null ? 0 : after, limite);
+        return Paginacion.pagina(platos, limite, Plato::getId);
     }
 
+    @Override
+    @GetMapping(value = "", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Exportacion de platos",
+            description = "Devuelve todos los platos en formato NDJSON, un plato por linea, " +
+                    "escribiendo cada fila segun se lee de la base de datos",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Exportacion de platos en curso",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = Plato.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal Server Error",
+                            content = @Content(mediaType = "application/json")
+                    )
+            })
+    public StreamingResponseBody exportPlatos() {
+        return out -> {
+            try (SequenceWriter writer = ndjsonWriter.writeValues(out)) {
+                platosService.forEachPlato(plato -> {
+                    try {
+                        writer.write(plato);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+    }
+
+
+    @Override
+    @GetMapping("/search")
+    @Operation(summary = "Busqueda de platos",
+            description = "Busca por palabras o comienzos de palabra del nombre, sin distinguir mayusculas ni tildes, " +
+                    "y filtra por categoria, rango de precio y carta de un local. " +
+                    "Devuelve el total, el numero de platos por categoria y los primeros platos hasta el limite",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Resultado de la busqueda",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = ResultadoBusqueda.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Categoria, rango de precio o limite no validos",
+                            content = @Content(mediaType = "application/json")
+                    ),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal Server Error",
+                            content = @Content(mediaType = "application/json")
+                    )
+            })
+    public ResultadoBusqueda buscarPlatos(@RequestParam(required = false) String q,
+                                          @RequestParam(required = false) String categoria,
+                                          @RequestParam(required = false) Double minPrecio,
+                                          @RequestParam(required = false) Double maxPrecio,
+                                          @RequestParam(required = false) String cif,
+                                          @RequestParam(required = false) Integer limit) {
+        if (minPrecio != null && maxPrecio != null && minPrecio > maxPrecio) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "minPrecio no puede ser mayor que maxPrecio");
+        }
+        return platosService.buscarPlatos(new ConsultaPlatos(
+                q, Categorias.desde(categoria), minPrecio, maxPrecio, cif, Paginacion.limite(limit)));
+    }
 
     @Override
     @GetMapping("/{id}")
     @Operation(summary = "Obtener el plato por su Id",
-            description = "Obtenemos un plato por su ID de identificacion",
+            description = "Obtenemos un plato por su ID de identificacion. " +
+                    "La respuesta lleva un ETag con la version del plato; con If-None-Match se responde 304 si no ha cambiado",
             responses = {
                     @ApiResponse(
                             responseCode = "200",
@@ -79,6 +184,10 @@ public class PlatosControllerImpl implements PlatosController {
                             content = @Content(mediaType = "application/json",
                                     schema = @Schema(implementation = Plato.class))
                     ),
+                    @ApiResponse(
+                            responseCode = "304",
+                            description = "Plato sin cambios respecto al ETag de If-None-Match"
+                    ),
                     @ApiResponse(
                             responseCode = "404",
                             description = "Plato no encontrado",
@@ -95,8 +204,16 @@ public class PlatosControllerImpl implements PlatosController {
                             content = @Content(mediaType = "application/json")
                     )
             })
-    public Plato getPlatosById(@PathVariable String id) {
-        Optional<Plato> plato = platosService.getPlatosById(Integer.parseInt(id));
+    public Plato getPlatosById(@PathVariable String id, WebRequest request) {
+        int platoId = Integer.parseInt(id);
+        Optional<Long> version = platosService.getVersion(platoId);
+        if (version.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Plato no encontrado");
+        }
+        if (request.checkNotModified(String.valueOf(version.get()))) {
+            return null;
+        }
+        Optional<Plato> plato = platosService.getPlatosById(platoId);
         if (plato.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Plato no encontrado");
         } else {
@@ -104,10 +221,50 @@ public class PlatosControllerImpl implements PlatosController {
         }
     }
 
+    @Override
+    @GetMapping("/{id}/locales")
+    @Operation(summary = "Locales que sirven el plato",
+            description = "Obtiene los locales que tienen el plato en su carta, ordenados por CIF",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Listado de locales obtenido exitosamente",
+                            content = @Content(mediaType = "application/json",
+                                    array = @ArraySchema(
+                                            schema = @Schema(implementation = Local.class)
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Plato no encontrado",
+                            content = @Content(mediaType = "application/json")
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "ID inválido",
+                            content = @Content(mediaType = "application/json")
+                    ),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal Server Error",
+                            content = @Content(mediaType = "application/json")
+                    )
+            })
+    public List<Local> getLocalesByPlato(@PathVariable int id) {
+        try {
+            return localesService.getLocalesByPlato(id);
+        } catch (NotFoundException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
     @Override
     @PutMapping("/{id}")
     @Operation(summary = "Crea o actualiza el plato por su id",
-            description = "Si el plato existe se actualiza y si no existe se crea a partir del ID",
+            description = "Si el plato existe se actualiza y si no existe se crea a partir del ID, en una sola sentencia. " +
+                    "Con If-Match y el ETag de una lectura anterior solo se actualiza si el plato no ha cambiado desde " +
+                    "entonces; la respuesta lleva el ETag de la nueva version",
             responses = {
                     @ApiResponse(
                             responseCode = "201",
@@ -125,13 +282,19 @@ public class PlatosControllerImpl implements PlatosController {
                             content = @Content(mediaType = "application/json")
                     ),
                     @ApiResponse(
-                            responseCode = "404",
-                            description = "Plato no encontrado",
+                            responseCode = "405",
+                            description = "Error de validación en los datos enviados",
                             content = @Content(mediaType = "application/json")
                     ),
                     @ApiResponse(
-                            responseCode = "405",
-                            description = "Error de validación en los datos enviados",
+                            responseCode = "409",
+                            description = "El plato ha cambiado desde el ETag de If-Match. Se devuelve el plato actual con su ETag",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = Plato.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "412",
+                            description = "Con If-Match, el plato no existe o el ETag no es valido",
                             content = @Content(mediaType = "application/json")
                     ),
                     @ApiResponse(
@@ -141,11 +304,29 @@ public class PlatosControllerImpl implements PlatosController {
                     )
             }
     )
-    public ResponseEntity<Void> updatePlato(@PathVariable int id, @RequestBody Plato plato) {
+    public ResponseEntity<Plato> updatePlato(@PathVariable int id,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                             @RequestBody Plato plato) {
         plato.setId(id);
-        Optional<Plato> updatedPlato = platosService.updatePlato(plato);
-        if (updatedPlato.isEmpty()) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Plato a actualizar no encontrado");
+        Optional<Versiones.Condicion> condicion = Versiones.esperada(ifMatch, () -> platosService.getVersion(id));
+        if (condicion.isPresent()) {
+            try {
+                long nueva = platosService.updatePlato(plato, condicion.get().version());
+                return ResponseEntity.
+                        noContent().
+                        eTag(String.valueOf(nueva)).
+                        header("Content-Location", "/restaurante/platos/" + plato.getId()).
+                        build();
+            } catch (NotFoundException e) {
+                throw Versiones.noCumplida(e.getMessage());
+            } catch (ConflictoVersionException e) {
+                return conflicto(id);
+            }
+        }
+        if (platosService.upsertPlato(plato)) {
+            return ResponseEntity.
+                    created(URI.create("/restaurante/platos/" + plato.getId())).
+                    build();
         } else {
             return ResponseEntity.
                     noContent().
@@ -154,6 +335,20 @@ public class PlatosControllerImpl implements PlatosController {
         }
     }
 
+    private ResponseEntity<Plato> conflicto(int id) {
+        // La version se lee antes que el plato: si cambia entre medias el ETag es el antiguo y el reintento
+        // vuelve a dar conflicto en lugar de pisar el cambio
+        Optional<Long> version = platosService.getVersion(id);
+        Optional<Plato> plato = platosService.getPlatosById(id);
+        if (version.isEmpty() || plato.isEmpty()) {
+            throw Versiones.noCumplida("Plato no encontrado");
+        }
+        return ResponseEntity.
+                status(HttpStatus.CONFLICT).
+                eTag(String.valueOf(version.get())).
+                body(plato.get());
+    }
+
     @Override
     @DeleteMapping("/{id}")
     @Operation(summary = "Borrar el plato a partir de su id",
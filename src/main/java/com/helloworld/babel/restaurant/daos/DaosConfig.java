@@ -0,0 +1,19 @@
+package com.helloworld.babel.restaurant.daos;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+
+@Configuration
+public class DaosConfig {
+
+	@Bean
+	public DialectoSql dialectoSql(DataSource dataSource) throws MetaDataAccessException {
+		return DialectoSql.fromProductName(
+				JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName));
+	}
+}
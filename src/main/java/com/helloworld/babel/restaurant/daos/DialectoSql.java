@@ -0,0 +1,128 @@
+package com.helloworld.babel.restaurant.daos;
+
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Sentencias que cambian entre bases de datos. Las consultas de upsert devuelven una sola fila con
+ * 1 si la fila ya existia y se ha actualizado, o 0 si se ha creado.
+ */
+public enum DialectoSql {
+
+	H2 {
+		@Override
+		public String nuevaVersion() {
+			return "NEXT VALUE FOR " + SECUENCIA_VERSION;
+		}
+
+		@Override
+		public String upsert(String tabla, String clave, Map<String, String> valores) {
+			// OLD TABLE solo contiene la fila previa cuando MERGE actualiza
+			return "SELECT COUNT(*) FROM OLD TABLE (MERGE INTO " + tabla +
+				   " (" + String.join(", ", valores.keySet()) + ") KEY(" + clave + ")" +
+				   " VALUES (" + String.join(", ", valores.values()) + "))";
+		}
+
+		@Override
+		public String actualizarDevolviendo(String update, String columna) {
+			return "SELECT " + columna + " FROM FINAL TABLE (" + update + ")";
+		}
+
+		@Override
+		public synchronized void ajustarIdentidad(NamedParameterJdbcTemplate jdbcTemplate, String tabla, String columna, long usado) {
+			// ALTER SEQUENCE se aplica al momento y no se deshace: se comprueba y se adelanta bajo el mismo bloqueo
+			String secuencia = tabla + "_" + columna + "_seq";
+			List<Long> siguiente = jdbcTemplate.queryForList(
+					"SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = :secuencia",
+					new MapSqlParameterSource("secuencia", secuencia.toUpperCase()), Long.class);
+			if (!siguiente.isEmpty() && siguiente.get(0) != null && usado >= siguiente.get(0)) {
+				jdbcTemplate.getJdbcTemplate().execute("ALTER SEQUENCE " + secuencia + " RESTART WITH " + (usado + 1));
+			}
+		}
+	},
+
+	POSTGRESQL {
+		@Override
+		public String nuevaVersion() {
+			return "nextval('" + SECUENCIA_VERSION + "')";
+		}
+
+		@Override
+		public String upsert(String tabla, String clave, Map<String, String> valores) {
+			String actualizar = valores.keySet().stream()
+					.filter(columna -> !columna.equals(clave))
+					.map(columna -> columna + " = EXCLUDED." + columna)
+					.collect(Collectors.joining(", "));
+			// xmax es distinto de 0 cuando ON CONFLICT ha actualizado una fila existente
+			return "INSERT INTO " + tabla + " (" + String.join(", ", valores.keySet()) + ")" +
+				   " VALUES (" + String.join(", ", valores.values()) + ")" +
+				   " ON CONFLICT (" + clave + ") DO UPDATE SET " + actualizar +
+				   " RETURNING (xmax <> 0)::int";
+		}
+
+		@Override
+		public String actualizarDevolviendo(String update, String columna) {
+			return update + " RETURNING " + columna;
+		}
+
+		@Override
+		public void ajustarIdentidad(NamedParameterJdbcTemplate jdbcTemplate, String tabla, String columna, long usado) {
+			// pg_get_serial_sequence solo encuentra las secuencias de SERIAL o IDENTITY, no las de un DEFAULT
+			// explicito como el de plato.id: se usa el nombre de la secuencia, igual que en H2
+			MapSqlParameterSource params = new MapSqlParameterSource()
+					.addValue("secuencia", tabla + "_" + columna + "_seq")
+					.addValue("usado", usado);
+			jdbcTemplate.queryForList(
+					"SELECT setval(CAST(:secuencia AS regclass), :usado) " +
+					"WHERE :usado > (SELECT COALESCE(last_value, 0) FROM pg_sequences " +
+					"WHERE schemaname = current_schema() AND sequencename = :secuencia)",
+					params, Long.class);
+		}
+	};
+
+	public static final String SECUENCIA_VERSION = "catalogo_version_seq";
+
+	/**
+	 * Lee la fila que devuelve {@link #upsert}.
+	 */
+	public static final ResultSetExtractor<Integer> FILAS_ACTUALIZADAS = rs -> {
+		rs.next();
+		return rs.getInt(1);
+	};
+
+	/**
+	 * Expresion que toma el siguiente valor de la secuencia de versiones.
+	 */
+	public abstract String nuevaVersion();
+
+	/**
+	 * @param valores columnas en orden con la expresion de su valor, normalmente un parametro con nombre
+	 */
+	public abstract String upsert(String tabla, String clave, Map<String, String> valores);
+
+	/**
+	 * Consulta que ejecuta el UPDATE y devuelve la columna indicada de cada fila actualizada, con su valor nuevo.
+	 */
+	public abstract String actualizarDevolviendo(String update, String columna);
+
+	/**
+	 * Tras insertar un ID explicito en una columna generada, avanza su secuencia para que no lo vuelva a generar.
+	 * La secuencia se llama tabla_columna_seq, como plato_id_seq. No confirma la transaccion en curso.
+	 */
+	public abstract void ajustarIdentidad(NamedParameterJdbcTemplate jdbcTemplate, String tabla, String columna, long usado);
+
+	public static DialectoSql fromProductName(String productName) {
+		if (productName.toLowerCase().contains("postgres")) {
+			return POSTGRESQL;
+		}
+		if (productName.equalsIgnoreCase("H2")) {
+			return H2;
+		}
+		throw new IllegalStateException("Base de datos no soportada: " + productName);
+	}
+}
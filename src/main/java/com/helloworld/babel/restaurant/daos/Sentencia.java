@@ -0,0 +1,91 @@
+package com.helloworld.babel.restaurant.daos;
+
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.jdbc.core.namedparam.EmptySqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sentencia con parametros con nombre que se analiza una sola vez, al crear el DAO. Cada llamada solo aporta
+ * los valores, en el orden en que aparece cada nombre por primera vez, sin mapas de parametros ni sustituir
+ * los nombres por ? de nuevo.
+ * <p>
+ * No admite colecciones como valor ({@code IN (:ids)}): cambian el numero de ? en cada llamada y esas
+ * consultas siguen pasando por {@link org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate}.
+ */
+public final class Sentencia {
+
+	/**
+	 * Filas que pide cada viaje a la base de datos en las lecturas por cursor.
+	 */
+	public static final int FILAS_POR_BLOQUE = 500;
+
+	private final PreparedStatementCreatorFactory factoria;
+	private final List<String> nombres = new ArrayList<>();
+	// Para cada ? del SQL, la posicion de su nombre en los valores recibidos
+	private final int[] posiciones;
+
+	public Sentencia(String sql, String... columnasGeneradas) {
+		ParsedSql analizada = NamedParameterUtils.parseSqlStatement(sql);
+		List<SqlParameter> parametros = NamedParameterUtils.buildSqlParameterList(
+				analizada, EmptySqlParameterSource.INSTANCE);
+		this.posiciones = new int[parametros.size()];
+		for (int i = 0; i < parametros.size(); i++) {
+			String nombre = parametros.get(i).getName();
+			if (!nombres.contains(nombre)) {
+				nombres.add(nombre);
+			}
+			posiciones[i] = nombres.indexOf(nombre);
+		}
+		this.factoria = new PreparedStatementCreatorFactory(
+				NamedParameterUtils.substituteNamedParameters(analizada, null), parametros);
+		if (columnasGeneradas.length > 0) {
+			factoria.setGeneratedKeysColumnNames(columnasGeneradas);
+		}
+	}
+
+	public PreparedStatementCreator con(Object... valores) {
+		if (valores.length != nombres.size()) {
+			throw new IllegalArgumentException("Se esperaban los valores de " + nombres + " y hay " + valores.length);
+		}
+		Object[] argumentos = new Object[posiciones.length];
+		for (int i = 0; i < posiciones.length; i++) {
+			argumentos[i] = valores[posiciones[i]];
+		}
+		return factoria.newPreparedStatementCreator(argumentos);
+	}
+
+	/**
+	 * Como {@link #con} pero leyendo el resultado por bloques de {@link #FILAS_POR_BLOQUE} filas. Sin fetch size
+	 * pgjdbc carga el resultado entero antes de devolver la primera fila; con el solo lee por bloques dentro de una
+	 * transaccion, asi que quien recorre el resultado debe abrirla. H2 embebido guarda el resultado en memoria
+	 * hasta MAX_MEMORY_ROWS y el resto en disco, con o sin fetch size.
+	 */
+	public PreparedStatementCreator porBloques(Object... valores) {
+		return new PorBloques(con(valores));
+	}
+
+	private record PorBloques(PreparedStatementCreator creador) implements PreparedStatementCreator, SqlProvider {
+
+		@Override
+		public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+			PreparedStatement ps = creador.createPreparedStatement(con);
+			ps.setFetchSize(FILAS_POR_BLOQUE);
+			return ps;
+		}
+
+		@Override
+		public String getSql() {
+			return creador instanceof SqlProvider sql ? sql.getSql() : null;
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package com.helloworld.babel.restaurant.daos;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reparte las claves de una consulta {@code IN (:ids)} en trozos de como mucho {@value #TAMANO}. Asi ninguna
+ * sentencia pasa del limite de parametros de la base de datos y el SQL solo cambia en el ultimo trozo.
+ */
+public final class TrozosIn {
+
+	public static final int TAMANO = 500;
+
+	private TrozosIn() {
+	}
+
+	/**
+	 * @param consulta se llama una vez por trozo, sin claves repetidas
+	 */
+	public static <K> void porTrozos(Collection<K> claves, Consumer<List<K>> consulta) {
+		List<K> distintas = new ArrayList<>(new LinkedHashSet<>(claves));
+		for (int desde = 0; desde < distintas.size(); desde += TAMANO) {
+			consulta.accept(distintas.subList(desde, Math.min(desde + TAMANO, distintas.size())));
+		}
+	}
+}
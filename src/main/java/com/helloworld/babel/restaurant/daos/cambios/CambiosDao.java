@@ -0,0 +1,21 @@
+package com.helloworld.babel.restaurant.daos.cambios;
+
+import com.helloworld.babel.restaurant.daos.model.Cambio;
+
+import java.util.List;
+
+public interface CambiosDao {
+	/**
+	 * Guarda los cambios sin numero, ignorando su seq, dentro de la transaccion del cambio. No bloquea a las
+	 * demas transacciones: hasta que {@link #numerar} los numera no se leen.
+	 */
+	void registrar(List<Cambio> cambios);
+	/**
+	 * Numera en orden los cambios confirmados que aun no tienen numero. Debe llamarse dentro de una transaccion:
+	 * la fila de cambio_ultimo queda bloqueada hasta el commit y las numeraciones se confirman una tras otra.
+	 * @return cuantos cambios ha numerado
+	 */
+	int numerar();
+	List<Cambio> getCambios(long desde, int limit);
+	long getUltimo();
+}
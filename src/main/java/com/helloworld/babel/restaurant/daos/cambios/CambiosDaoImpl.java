@@ -0,0 +1,104 @@
+package com.helloworld.babel.restaurant.daos.cambios;
+
+import com.helloworld.babel.restaurant.daos.Sentencia;
+import com.helloworld.babel.restaurant.daos.model.Cambio;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SingleColumnRowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+@Repository
+public class CambiosDaoImpl implements CambiosDao {
+
+	private static final String INSERTAR = "INSERT INTO cambio (tipo, plato, cif, datos) VALUES (?, ?, ?, ?)";
+	private static final String NUMERAR = "UPDATE cambio SET seq = ? WHERE id = ?";
+
+	private final JdbcOperations jdbc;
+
+	private final Sentencia hayPendientes;
+	private final Sentencia bloquear;
+	private final Sentencia pendientes;
+	private final Sentencia avanzar;
+	private final Sentencia ultimo;
+	private final Sentencia desde;
+
+	private final SingleColumnRowMapper<Long> seqRowMapper = new SingleColumnRowMapper<>(Long.class);
+	private final RowMapper<Cambio> cambioRowMapper = (rs, rowNum) -> new Cambio(
+			rs.getLong(1), rs.getString(2), rs.getObject(3, Integer.class), rs.getString(4), rs.getString(5));
+
+	public CambiosDaoImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+		this.jdbc = jdbcTemplate.getJdbcOperations();
+
+		hayPendientes = new Sentencia("SELECT id FROM cambio WHERE seq IS NULL LIMIT 1");
+		bloquear = new Sentencia("SELECT seq FROM cambio_ultimo FOR UPDATE");
+		pendientes = new Sentencia("SELECT id FROM cambio WHERE seq IS NULL ORDER BY id");
+		avanzar = new Sentencia("UPDATE cambio_ultimo SET seq = :seq");
+		ultimo = new Sentencia("SELECT seq FROM cambio_ultimo");
+		desde = new Sentencia("SELECT seq, tipo, plato, cif, datos FROM cambio WHERE seq > :desde ORDER BY seq LIMIT :limit");
+	}
+
+	@Override
+	public void registrar(List<Cambio> cambios) {
+		jdbc.batchUpdate(INSERTAR, new BatchPreparedStatementSetter() {
+			@Override
+			public void setValues(PreparedStatement ps, int i) throws SQLException {
+				Cambio cambio = cambios.get(i);
+				ps.setString(1, cambio.tipo());
+				if (cambio.plato() != null) {
+					ps.setInt(2, cambio.plato());
+				} else {
+					ps.setNull(2, Types.INTEGER);
+				}
+				ps.setString(3, cambio.cif());
+				ps.setString(4, cambio.datos());
+			}
+
+			@Override
+			public int getBatchSize() {
+				return cambios.size();
+			}
+		});
+	}
+
+	@Override
+	public int numerar() {
+		// Sin nada pendiente no se toma el bloqueo, que es lo habitual al leer
+		if (jdbc.query(hayPendientes.con(), seqRowMapper).isEmpty()) {
+			return 0;
+		}
+		// Los pendientes se leen ya con el bloqueo: quien numeraba antes ha confirmado y no se numeran dos veces
+		long ultimoNumerado = jdbc.query(bloquear.con(), seqRowMapper).get(0);
+		List<Long> ids = jdbc.query(pendientes.con(), seqRowMapper);
+		jdbc.batchUpdate(NUMERAR, new BatchPreparedStatementSetter() {
+			@Override
+			public void setValues(PreparedStatement ps, int i) throws SQLException {
+				ps.setLong(1, ultimoNumerado + i + 1);
+				ps.setLong(2, ids.get(i));
+			}
+
+			@Override
+			public int getBatchSize() {
+				return ids.size();
+			}
+		});
+		jdbc.update(avanzar.con(ultimoNumerado + ids.size()));
+		return ids.size();
+	}
+
+	@Override
+	public List<Cambio> getCambios(long desde, int limit) {
+		return jdbc.query(this.desde.con(desde, limit), cambioRowMapper);
+	}
+
+	@Override
+	public long getUltimo() {
+		return jdbc.query(ultimo.con(), seqRowMapper).get(0);
+	}
+}
@@ -0,0 +1,17 @@
+package com.helloworld.babel.restaurant.daos.instantanea;
+
+import com.helloworld.babel.restaurant.daos.model.Instantanea;
+
+public interface InstantaneaDao {
+	/**
+	 * Para una foto coherente debe llamarse en una transaccion REPEATABLE_READ.
+	 */
+	Instantanea leer();
+	/**
+	 * Sustituye platos, locales y cartas por los de la instantanea, sin pasar por el registro de cambios. La
+	 * instantanea no lleva el registro: se vacia, porque sus cambios son de un catalogo que ya no existe, y el
+	 * siguiente numero queda por encima del de la instantanea y de cualquiera ya servido. Quien replica desde la
+	 * instantanea sigue desde su ultimoCambio; quien replicaba el catalogo anterior tiene que volver a empezar.
+	 */
+	void cargar(Instantanea instantanea);
+}
@@ -0,0 +1,164 @@
+package com.helloworld.babel.restaurant.daos.instantanea;
+
+import com.helloworld.babel.restaurant.daos.DialectoSql;
+import com.helloworld.babel.restaurant.daos.Sentencia;
+import com.helloworld.babel.restaurant.daos.model.Instantanea;
+import com.helloworld.babel.restaurant.daos.model.Instantanea.FilaLocal;
+import com.helloworld.babel.restaurant.daos.model.Instantanea.FilaPlato;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SingleColumnRowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class InstantaneaDaoImpl implements InstantaneaDao {
+
+	private static final int TAMANO_LOTE = 1000;
+	private static final int[] SIN_CARTA = new int[0];
+
+	private final NamedParameterJdbcTemplate jdbcTemplate;
+	private final JdbcOperations jdbc;
+	private final DialectoSql dialecto;
+
+	private final Sentencia platos;
+	private final Sentencia locales;
+	private final Sentencia cartas;
+	private final Sentencia ultimoCambio;
+	private final Sentencia siguienteVersion;
+	private final Sentencia avanzarCambios;
+
+	private final SingleColumnRowMapper<Long> longRowMapper = new SingleColumnRowMapper<>(Long.class);
+	private final RowMapper<FilaPlato> platoRowMapper = (rs, rowNum) -> new FilaPlato(
+			rs.getInt(1), rs.getString(2), rs.getBigDecimal(3).movePointRight(2).longValueExact(), rs.getInt(4), rs.getLong(5));
+
+	public InstantaneaDaoImpl(NamedParameterJdbcTemplate jdbcTemplate, DialectoSql dialecto) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.jdbc = jdbcTemplate.getJdbcOperations();
+		this.dialecto = dialecto;
+
+		platos = new Sentencia("SELECT id, nombre, precio, categoria, version FROM plato ORDER BY id");
+		locales = new Sentencia("SELECT cif, nombre, direccion, telefono, version FROM restaurante ORDER BY cif");
+		cartas = new Sentencia("SELECT cif_restaurante, id_plato FROM restaurante_plato ORDER BY cif_restaurante, id_plato");
+		ultimoCambio = new Sentencia("SELECT seq FROM cambio_ultimo");
+		siguienteVersion = new Sentencia("SELECT " + dialecto.nuevaVersion());
+		avanzarCambios = new Sentencia("UPDATE cambio_ultimo SET seq = :seq WHERE seq < :seq");
+	}
+
+	@Override
+	public Instantanea leer() {
+		long cambio = jdbc.query(ultimoCambio.con(), longRowMapper).get(0);
+		List<FilaPlato> filasPlatos = jdbc.query(platos.con(), platoRowMapper);
+
+		Cartas agrupadas = new Cartas();
+		jdbc.query(cartas.con(), agrupadas);
+		Map<String, int[]> cartasPorCif = agrupadas.terminar();
+
+		List<FilaLocal> filasLocales = jdbc.query(locales.con(), (rs, rowNum) -> new FilaLocal(
+				rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getLong(5),
+				cartasPorCif.getOrDefault(rs.getString(1), SIN_CARTA)));
+		return new Instantanea(cambio, filasPlatos, filasLocales);
+	}
+
+	@Override
+	public void cargar(Instantanea instantanea) {
+		jdbc.update("DELETE FROM restaurante_plato");
+		jdbc.update("DELETE FROM restaurante");
+		jdbc.update("DELETE FROM plato");
+
+		jdbc.batchUpdate("INSERT INTO plato (id, nombre, precio, categoria, version) VALUES (?, ?, ?, ?, ?)",
+				instantanea.platos(), TAMANO_LOTE, (ps, plato) -> {
+					ps.setInt(1, plato.id());
+					ps.setString(2, plato.nombre());
+					ps.setBigDecimal(3, BigDecimal.valueOf(plato.centimos(), 2));
+					ps.setInt(4, plato.categoria());
+					ps.setLong(5, plato.version());
+				});
+		jdbc.batchUpdate("INSERT INTO restaurante (cif, nombre, direccion, telefono, version) VALUES (?, ?, ?, ?, ?)",
+				instantanea.locales(), TAMANO_LOTE, (ps, local) -> {
+					ps.setString(1, local.cif());
+					ps.setString(2, local.nombre());
+					ps.setString(3, local.direccion());
+					ps.setString(4, local.telefono());
+					ps.setLong(5, local.version());
+				});
+		List<Object[]> enlaces = new ArrayList<>(TAMANO_LOTE);
+		long maxVersion = 0;
+		for (FilaLocal local : instantanea.locales()) {
+			maxVersion = Math.max(maxVersion, local.version());
+			for (int plato : local.carta()) {
+				enlaces.add(new Object[]{local.cif(), plato});
+				if (enlaces.size() == TAMANO_LOTE) {
+					jdbc.batchUpdate("INSERT INTO restaurante_plato (cif_restaurante, id_plato) VALUES (?, ?)", enlaces);
+					enlaces.clear();
+				}
+			}
+		}
+		if (!enlaces.isEmpty()) {
+			jdbc.batchUpdate("INSERT INTO restaurante_plato (cif_restaurante, id_plato) VALUES (?, ?)", enlaces);
+		}
+		jdbc.update("DELETE FROM cambio");
+		// cambio_ultimo nunca baja: los numeros ya servidos no se repiten aunque la instantanea sea anterior
+		jdbc.update(avanzarCambios.con(instantanea.ultimoCambio()));
+
+		// Al final: adelantar una secuencia no se deshace con la transaccion si la carga falla antes
+		int maxId = 0;
+		for (FilaPlato plato : instantanea.platos()) {
+			maxId = Math.max(maxId, plato.id());
+			maxVersion = Math.max(maxVersion, plato.version());
+		}
+		if (maxId > 0) {
+			dialecto.ajustarIdentidad(jdbcTemplate, "plato", "id", maxId);
+		}
+		// Las versiones cargadas no se pueden repetir en los ETags de cambios posteriores
+		if (jdbc.query(siguienteVersion.con(), longRowMapper).get(0) <= maxVersion) {
+			jdbc.execute("ALTER SEQUENCE " + DialectoSql.SECUENCIA_VERSION + " RESTART WITH " + (maxVersion + 1));
+		}
+	}
+
+	/**
+	 * Las filas llegan ordenadas por CIF: cada carta se acumula en un array hasta que cambia el CIF.
+	 */
+	private static final class Cartas implements RowCallbackHandler {
+
+		private final Map<String, int[]> porCif = new HashMap<>();
+		private String cif;
+		private int[] carta = new int[16];
+		private int total;
+
+		@Override
+		public void processRow(ResultSet rs) throws SQLException {
+			String fila = rs.getString(1);
+			if (!fila.equals(cif)) {
+				cerrar();
+				cif = fila;
+			}
+			if (total == carta.length) {
+				carta = Arrays.copyOf(carta, total * 2);
+			}
+			carta[total++] = rs.getInt(2);
+		}
+
+		Map<String, int[]> terminar() {
+			cerrar();
+			return porCif;
+		}
+
+		private void cerrar() {
+			if (total > 0) {
+				porCif.put(cif, Arrays.copyOf(carta, total));
+			}
+			total = 0;
+		}
+	}
+}
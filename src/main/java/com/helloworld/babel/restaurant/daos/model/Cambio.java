@@ -0,0 +1,7 @@
+package com.helloworld.babel.restaurant.daos.model;
+
+/**
+ * Fila del registro de cambios; datos es el JSON del plato o local tras el cambio, si lo hay.
+ */
+public record Cambio(long seq, String tipo, Integer plato, String cif, String datos) {
+}
@@ -0,0 +1,10 @@
+package com.helloworld.babel.restaurant.daos.model;
+
+/**
+ * Construye el objeto de cada fila de plato directamente con los valores de las columnas, sin pasar por
+ * {@link Plato}. {@code Plato::new} devuelve los registros de los DAOs.
+ */
+@FunctionalInterface
+public interface FabricaPlato<T> {
+	T crear(int id, String nombre, double precio, int categoria);
+}
@@ -0,0 +1,10 @@
+package com.helloworld.babel.restaurant.daos.model;
+
+/**
+ * Construye el objeto de cada fila de restaurante directamente con los valores de las columnas, sin pasar por
+ * {@link Restaurante}. {@code Restaurante::new} devuelve los registros de los DAOs.
+ */
+@FunctionalInterface
+public interface FabricaRestaurante<T> {
+	T crear(String cif, String nombre, String direccion, String telefono);
+}
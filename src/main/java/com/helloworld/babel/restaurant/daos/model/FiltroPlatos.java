@@ -0,0 +1,23 @@
+package com.helloworld.babel.restaurant.daos.model;
+
+/**
+ * Filtros, orden y limite de una lista de platos; los que son null no se aplican. Sin orden los platos salen en el
+ * que devuelva la base de datos.
+ */
+public record FiltroPlatos(Integer categoria, Double minPrecio, Double maxPrecio, Orden orden, Integer limite) {
+
+	public enum Orden {
+		PRECIO("precio"),
+		NOMBRE("nombre");
+
+		private final String columna;
+
+		Orden(String columna) {
+			this.columna = columna;
+		}
+
+		public String getColumna() {
+			return columna;
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package com.helloworld.babel.restaurant.daos.model;
+
+import java.util.List;
+
+/**
+ * Catalogo completo con la version de cada fila. Los platos van ordenados por ID, los locales por CIF y cada carta
+ * son los IDs de sus platos ordenados.
+ *
+ * @param ultimoCambio ultimo numero del registro de cambios incluido
+ */
+public record Instantanea(long ultimoCambio, List<FilaPlato> platos, List<FilaLocal> locales) {
+
+	/**
+	 * @param centimos el precio exacto, sin pasar por double
+	 */
+	public record FilaPlato(int id, String nombre, long centimos, int categoria, long version) {
+	}
+
+	public record FilaLocal(String cif, String nombre, String direccion, String telefono, long version, int[] carta) {
+	}
+}
@@ -0,0 +1,10 @@
+package com.helloworld.babel.restaurant.daos.model;
+
+/**
+ * Recibe las filas de los locales con su carta segun se leen, en orden de CIF: cada local llega antes que sus
+ * platos y un local sin platos no recibe ninguno.
+ */
+public interface LectorCartas {
+	void local(String cif, String nombre, String direccion, String telefono);
+	void plato(int id, String nombre, double precio, int categoria);
+}
@@ -0,0 +1,169 @@
+package com.helloworld.babel.restaurant.daos.platos;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.helloworld.babel.restaurant.daos.model.FabricaPlato;
+import com.helloworld.babel.restaurant.daos.model.FiltroPlatos;
+import com.helloworld.babel.restaurant.daos.model.Plato;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Cache de lectura delante de {@link PlatosDaoImpl} para las consultas por ID.
+ * Caffeine desaloja con W-TinyLFU al llegar al tamaño maximo y caduca las entradas tras el TTL.
+ */
+@Primary
+@Repository
+public class CachedPlatosDao implements PlatosDao {
+
+	private final PlatosDao platosDao;
+	private final Cache<Integer, Plato> platos;
+
+	public CachedPlatosDao(PlatosDaoImpl platosDao,
+						   @Value("${restaurant.cache.platos.maximum-size:10000}") long maximumSize,
+						   @Value("${restaurant.cache.platos.expire-after-write:10m}") Duration expireAfterWrite) {
+		this.platosDao = platosDao;
+		this.platos = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(expireAfterWrite)
+				.recordStats()
+				.build();
+	}
+
+	public Cache<Integer, Plato> getCache() {
+		return platos;
+	}
+
+	public CacheStats getStats() {
+		return platos.stats();
+	}
+
+	@Override
+	public <T> List<T> getPlatos(FabricaPlato<T> fabrica) {
+		return platosDao.getPlatos(fabrica);
+	}
+
+	@Override
+	public <T> List<T> getPlatos(int after, int limit, FabricaPlato<T> fabrica) {
+		return platosDao.getPlatos(after, limit, fabrica);
+	}
+
+	@Override
+	public <T> void streamPlatos(FabricaPlato<T> fabrica, Consumer<? super T> consumer) {
+		platosDao.streamPlatos(fabrica, consumer);
+	}
+
+	@Override
+	public Optional<Plato> getPlatosById(int id) {
+		// Los platos inexistentes no se guardan: un ID creado despues se vera en la siguiente lectura
+		return Optional.ofNullable(platos.get(id, platoId -> platosDao.getPlatosById(platoId).orElse(null)));
+	}
+
+	@Override
+	public Optional<Long> getVersion(int id) {
+		return platosDao.getVersion(id);
+	}
+
+	private List<Plato> porIds(Collection<Integer> ids) {
+		// Solo los IDs que no estan en cache llegan a la consulta; los inexistentes no se guardan
+		return List.copyOf(platos.getAll(ids, faltan -> platosDao.getPlatosByIds(List.copyOf(faltan), Plato::new).stream()
+				.collect(Collectors.toMap(Plato::id, Function.identity()))).values());
+	}
+
+	@Override
+	public <T> List<T> getPlatosByIds(Collection<Integer> ids, FabricaPlato<T> fabrica) {
+		return porIds(ids).stream()
+				.map(plato -> fabrica.crear(plato.id(), plato.nombre(), plato.precio(), plato.categoria()))
+				.toList();
+	}
+
+	@Override
+	public <T> List<T> getPlatosByRestauranteCif(String cif, FabricaPlato<T> fabrica) {
+		return platosDao.getPlatosByRestauranteCif(cif, fabrica);
+	}
+
+	@Override
+	public <T> List<T> getPlatosByRestauranteCif(String cif, FiltroPlatos filtro, FabricaPlato<T> fabrica) {
+		return platosDao.getPlatosByRestauranteCif(cif, filtro, fabrica);
+	}
+
+	@Override
+	public <T> Map<String, List<T>> getPlatosGroupedByRestauranteCif(FabricaPlato<T> fabrica) {
+		return platosDao.getPlatosGroupedByRestauranteCif(fabrica);
+	}
+
+	@Override
+	public <T> Map<String, List<T>> getPlatosGroupedByRestauranteCif(String afterCif, String lastCif,
+																	  FabricaPlato<T> fabrica) {
+		return platosDao.getPlatosGroupedByRestauranteCif(afterCif, lastCif, fabrica);
+	}
+
+	@Override
+	public <T> Map<String, List<T>> getPlatosGroupedByRestauranteCif(Collection<String> cifs, FabricaPlato<T> fabrica) {
+		return platosDao.getPlatosGroupedByRestauranteCif(cifs, fabrica);
+	}
+
+	@Override
+	public Optional<Long> updatePlato(Plato plato, Long version) {
+		Optional<Long> nueva = platosDao.updatePlato(plato, version);
+		invalidar(plato.id());
+		return nueva;
+	}
+
+	@Override
+	public boolean upsertPlato(Plato plato) {
+		boolean creado = platosDao.upsertPlato(plato);
+		invalidar(plato.id());
+		return creado;
+	}
+
+	@Override
+	public int deletePlato(int id) {
+		int deletes = platosDao.deletePlato(id);
+		invalidar(id);
+		return deletes;
+	}
+
+	@Override
+	public int removeRestaurantesFromPlato(int id) {
+		return platosDao.removeRestaurantesFromPlato(id);
+	}
+
+	@Override
+	public long createPlato(Plato plato) {
+		long id = platosDao.createPlato(plato);
+		invalidar((int) id);
+		return id;
+	}
+
+	@Override
+	public List<Long> createPlatos(List<Plato> platos) {
+		return platosDao.createPlatos(platos);
+	}
+
+	private void invalidar(int id) {
+		platos.invalidate(id);
+		// Dentro de una transaccion otra peticion podria recargar la fila antigua antes del commit
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					platos.invalidate(id);
+				}
+			});
+		}
+	}
+}
@@ -1,16 +1,41 @@
 package com.helloworld.babel.restaurant.daos.platos;
 
+import com.helloworld.babel.restaurant.daos.model.FabricaPlato;
+import com.helloworld.babel.restaurant.daos.model.FiltroPlatos;
 import com.helloworld.babel.restaurant.daos.model.Plato;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface PlatosDao {
-	List<Plato> getPlatos();
+	<T> List<T> getPlatos(FabricaPlato<T> fabrica);
+	<T> List<T> getPlatos(int after, int limit, FabricaPlato<T> fabrica);
+	<T> void streamPlatos(FabricaPlato<T> fabrica, Consumer<? super T> consumer);
 	Optional<Plato> getPlatosById(int id);
-	List<Plato> getPlatosByRestauranteCif(String cif);
-	int updatePlato(Plato plato);
+	Optional<Long> getVersion(int id);
+	<T> List<T> getPlatosByIds(Collection<Integer> ids, FabricaPlato<T> fabrica);
+	<T> List<T> getPlatosByRestauranteCif(String cif, FabricaPlato<T> fabrica);
+	/**
+	 * Carta del local filtrada, ordenada y cortada por la base de datos.
+	 */
+	<T> List<T> getPlatosByRestauranteCif(String cif, FiltroPlatos filtro, FabricaPlato<T> fabrica);
+	<T> Map<String, List<T>> getPlatosGroupedByRestauranteCif(FabricaPlato<T> fabrica);
+	<T> Map<String, List<T>> getPlatosGroupedByRestauranteCif(String afterCif, String lastCif, FabricaPlato<T> fabrica);
+	<T> Map<String, List<T>> getPlatosGroupedByRestauranteCif(Collection<String> cifs, FabricaPlato<T> fabrica);
+	/**
+	 * Actualiza el plato solo si sigue en la version indicada, o si existe con la version a null.
+	 * @return la nueva version, o vacio si el plato no existe o tiene otra version
+	 */
+	Optional<Long> updatePlato(Plato plato, Long version);
+	/**
+	 * @return true si el plato no existia y se ha creado con su ID, false si se ha actualizado
+	 */
+	boolean upsertPlato(Plato plato);
 	int deletePlato(int id);
 	int removeRestaurantesFromPlato(int id);
 	long createPlato(Plato plato);
+	List<Long> createPlatos(List<Plato> platos);
 }
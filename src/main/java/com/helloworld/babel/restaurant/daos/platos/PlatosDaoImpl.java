@@ -1,103 +1,269 @@
 package com.helloworld.babel.restaurant.daos.platos;
 
+import com.helloworld.babel.restaurant.daos.DialectoSql;
+import com.helloworld.babel.restaurant.daos.Sentencia;
+import com.helloworld.babel.restaurant.daos.TrozosIn;
+import com.helloworld.babel.restaurant.daos.model.FabricaPlato;
+import com.helloworld.babel.restaurant.daos.model.FiltroPlatos;
 import com.helloworld.babel.restaurant.daos.model.Plato;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SingleColumnRowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Repository
 public class PlatosDaoImpl implements PlatosDao {
 
 	private NamedParameterJdbcTemplate jdbcTemplate;
+	private JdbcOperations jdbc;
+	private DialectoSql dialecto;
 
-	private RowMapper<Plato> platoRowMapper = (rs, rowNum) ->
-		{
-			int id = rs.getInt("id");
-			String nombre = rs.getString("nombre");
-			double precio = rs.getDouble("precio");
-			int categoria = rs.getInt("categoria");
+	// Sentencias analizadas al crear el DAO; las que reciben listas siguen con NamedParameterJdbcTemplate
+	private final Sentencia todos;
+	private final Sentencia pagina;
+	private final Sentencia todosPorId;
+	private final Sentencia porId;
+	private final Sentencia version;
+	private final Sentencia porRestaurante;
+	private final Sentencia agrupados;
+	private final Sentencia agrupadosEntre;
+	private final Sentencia actualizarVersion;
+	private final Sentencia actualizarExistente;
+	private final Sentencia upsert;
+	private final Sentencia borrar;
+	private final Sentencia quitarDeRestaurantes;
+	private final Sentencia crear;
 
-			return new Plato(id, nombre, precio, categoria);
+	private final SingleColumnRowMapper<Long> versionRowMapper = new SingleColumnRowMapper<>(Long.class);
+
+	private final RowMapper<Plato> platoRowMapper = platoRowMapper(Plato::new);
+
+	// Todas las consultas de platos empiezan por id, nombre, precio y categoria: se leen por posicion
+	private static <T> RowMapper<T> platoRowMapper(FabricaPlato<T> fabrica) {
+		return (rs, rowNum) -> fabrica.crear(rs.getInt(1), rs.getString(2), rs.getDouble(3), rs.getInt(4));
+	}
+
+	private static <T> ResultSetExtractor<Map<String, List<T>>> platosPorRestauranteExtractor(FabricaPlato<T> fabrica) {
+		return rs -> {
+			Map<String, List<T>> platosPorRestaurante = new LinkedHashMap<>();
+			while (rs.next()) {
+				String cif = rs.getString(5);
+				platosPorRestaurante
+						.computeIfAbsent(cif, k -> new ArrayList<>())
+						.add(fabrica.crear(rs.getInt(1), rs.getString(2), rs.getDouble(3), rs.getInt(4)));
+			}
+			return platosPorRestaurante;
 		};
+	}
 
-	public PlatosDaoImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+	public PlatosDaoImpl(NamedParameterJdbcTemplate jdbcTemplate, DialectoSql dialecto) {
 		this.jdbcTemplate = jdbcTemplate;
+		this.jdbc = jdbcTemplate.getJdbcOperations();
+		this.dialecto = dialecto;
+
+		todos = new Sentencia("SELECT id, nombre, precio, categoria FROM plato");
+		pagina = new Sentencia("SELECT id, nombre, precio, categoria FROM plato WHERE id > :after ORDER BY id LIMIT :limit");
+		todosPorId = new Sentencia("SELECT id, nombre, precio, categoria FROM plato ORDER BY id");
+		porId = new Sentencia("SELECT id, nombre, precio, categoria FROM plato WHERE id = :id");
+		version = new Sentencia("SELECT version FROM plato WHERE id = :id");
+		porRestaurante = new Sentencia("SELECT p.id, p.nombre, p.precio, p.categoria " +
+				"FROM plato p JOIN restaurante_plato rp ON p.id = rp.id_plato WHERE rp.cif_restaurante = :cif");
+		agrupados = new Sentencia("SELECT p.id, p.nombre, p.precio, p.categoria, rp.cif_restaurante " +
+				"FROM plato p JOIN restaurante_plato rp ON p.id = rp.id_plato");
+		agrupadosEntre = new Sentencia("SELECT p.id, p.nombre, p.precio, p.categoria, rp.cif_restaurante " +
+				"FROM plato p JOIN restaurante_plato rp ON p.id = rp.id_plato " +
+				"WHERE rp.cif_restaurante > :after AND rp.cif_restaurante <= :last");
+		actualizarVersion = new Sentencia(dialecto.actualizarDevolviendo("UPDATE plato SET nombre = :nombre, " +
+				"precio = :precio, categoria = :categoria, version = " + dialecto.nuevaVersion() + " " +
+				"WHERE id = :id AND version = :version", "version"));
+		actualizarExistente = new Sentencia(dialecto.actualizarDevolviendo("UPDATE plato SET nombre = :nombre, " +
+				"precio = :precio, categoria = :categoria, version = " + dialecto.nuevaVersion() + " " +
+				"WHERE id = :id", "version"));
+		Map<String, String> valores = new LinkedHashMap<>();
+		valores.put("id", ":id");
+		valores.put("nombre", ":nombre");
+		valores.put("precio", ":precio");
+		valores.put("categoria", ":categoria");
+		valores.put("version", dialecto.nuevaVersion());
+		upsert = new Sentencia(dialecto.upsert("plato", "id", valores));
+		borrar = new Sentencia("DELETE FROM plato WHERE id = :id");
+		quitarDeRestaurantes = new Sentencia("DELETE FROM restaurante_plato WHERE id_plato = :id");
+		crear = new Sentencia("INSERT INTO plato (nombre, precio, categoria, version) " +
+				"VALUES (:nombre, :precio, :categoria, " + dialecto.nuevaVersion() + ")", "id");
+	}
+
+	@Override
+	public <T> List<T> getPlatos(FabricaPlato<T> fabrica) {
+		return jdbc.query(todos.con(), platoRowMapper(fabrica));
+	}
+
+	@Override
+	public <T> List<T> getPlatos(int after, int limit, FabricaPlato<T> fabrica) {
+		return jdbc.query(pagina.con(after, limit), platoRowMapper(fabrica));
 	}
 
 	@Override
-	public List<Plato> getPlatos() {
-		String query = "SELECT id, nombre, precio, categoria FROM plato";
-		return jdbcTemplate.query(query, platoRowMapper);
+	public <T> void streamPlatos(FabricaPlato<T> fabrica, Consumer<? super T> consumer) {
+		jdbc.query(todosPorId.porBloques(), (RowCallbackHandler) rs -> {
+			consumer.accept(fabrica.crear(rs.getInt(1), rs.getString(2), rs.getDouble(3), rs.getInt(4)));
+		});
 	}
 
 	@Override
 	public Optional<Plato> getPlatosById(int platoId) {
-		Map<String, Object> params = new HashMap<>();
-		params.put("id", platoId);
-		String query = "SELECT * FROM plato WHERE id = :id";
-		try {
-			return Optional.of(jdbcTemplate.queryForObject(query, params, platoRowMapper));
-		}catch(EmptyResultDataAccessException e) {
-			return Optional.empty();
+		return jdbc.query(porId.con(platoId), platoRowMapper).stream().findFirst();
+	}
+
+	@Override
+	public Optional<Long> getVersion(int id) {
+		return jdbc.query(version.con(id), versionRowMapper).stream().findFirst();
+	}
+
+	@Override
+	public <T> List<T> getPlatosByIds(Collection<Integer> ids, FabricaPlato<T> fabrica) {
+		String query = "SELECT id, nombre, precio, categoria FROM plato WHERE id IN (:ids)";
+		RowMapper<T> rowMapper = platoRowMapper(fabrica);
+		List<T> platos = new ArrayList<>(ids.size());
+		TrozosIn.porTrozos(ids, trozo -> platos.addAll(jdbcTemplate.query(query, Map.of("ids", trozo), rowMapper)));
+		return platos;
+	}
+
+	@Override
+	public <T> List<T> getPlatosByRestauranteCif(String cif, FabricaPlato<T> fabrica) {
+		return jdbc.query(porRestaurante.con(cif), platoRowMapper(fabrica));
+	}
+
+	@Override
+	public <T> List<T> getPlatosByRestauranteCif(String cif, FiltroPlatos filtro, FabricaPlato<T> fabrica) {
+		// Cada combinacion de filtros es una consulta distinta, con parametros; NamedParameterJdbcTemplate guarda
+		// cada una ya analizada
+		StringBuilder query = new StringBuilder("SELECT p.id, p.nombre, p.precio, p.categoria " +
+				"FROM plato p JOIN restaurante_plato rp ON p.id = rp.id_plato WHERE rp.cif_restaurante = :cif");
+		MapSqlParameterSource params = new MapSqlParameterSource("cif", cif);
+		if (filtro.categoria() != null) {
+			query.append(" AND p.categoria = :categoria");
+			params.addValue("categoria", filtro.categoria());
+		}
+		// Los precios como BigDecimal: con un double H2 pasa cada precio de la carta a double para compararlo
+		if (filtro.minPrecio() != null) {
+			query.append(" AND p.precio >= :minPrecio");
+			params.addValue("minPrecio", BigDecimal.valueOf(filtro.minPrecio()));
+		}
+		if (filtro.maxPrecio() != null) {
+			query.append(" AND p.precio <= :maxPrecio");
+			params.addValue("maxPrecio", BigDecimal.valueOf(filtro.maxPrecio()));
 		}
+		if (filtro.orden() != null) {
+			// El ID desempata: con limite, la misma consulta devuelve siempre los mismos platos
+			query.append(" ORDER BY p.").append(filtro.orden().getColumna()).append(", p.id");
+		}
+		if (filtro.limite() != null) {
+			query.append(" LIMIT :limite");
+			params.addValue("limite", filtro.limite());
+		}
+		return jdbcTemplate.query(query.toString(), params, platoRowMapper(fabrica));
+	}
+
+	@Override
+	public <T> Map<String, List<T>> getPlatosGroupedByRestauranteCif(FabricaPlato<T> fabrica) {
+		return jdbc.query(agrupados.con(), platosPorRestauranteExtractor(fabrica));
+	}
+
+	@Override
+	public <T> Map<String, List<T>> getPlatosGroupedByRestauranteCif(String afterCif, String lastCif,
+																	  FabricaPlato<T> fabrica) {
+		return jdbc.query(agrupadosEntre.con(afterCif, lastCif), platosPorRestauranteExtractor(fabrica));
 	}
 
 	@Override
-	public List<Plato> getPlatosByRestauranteCif(String cif) {
-		Map<String, Object> params = new HashMap<>();
-		params.put("cif", cif);
-		String query = "SELECT p.id, p.nombre, p.precio, p.categoria " +
-					   "FROM plato p JOIN restaurante_plato rp ON p.id = rp.id_plato WHERE rp.cif_restaurante = :cif";
-		return jdbcTemplate.query(query, params, platoRowMapper);
+	public <T> Map<String, List<T>> getPlatosGroupedByRestauranteCif(Collection<String> cifs, FabricaPlato<T> fabrica) {
+		String query = "SELECT p.id, p.nombre, p.precio, p.categoria, rp.cif_restaurante " +
+					   "FROM plato p JOIN restaurante_plato rp ON p.id = rp.id_plato " +
+					   "WHERE rp.cif_restaurante IN (:cifs)";
+		ResultSetExtractor<Map<String, List<T>>> extractor = platosPorRestauranteExtractor(fabrica);
+		Map<String, List<T>> platosPorRestaurante = new HashMap<>();
+		// Cada CIF esta en un solo trozo: las cartas no se mezclan entre consultas
+		TrozosIn.porTrozos(cifs, trozo -> platosPorRestaurante.putAll(
+				jdbcTemplate.query(query, Map.of("cifs", trozo), extractor)));
+		return platosPorRestaurante;
 	}
 
 	@Override
-	public int updatePlato(Plato plato) {
-		Map<String, Object> params = new HashMap<>();
-		params.put("id", plato.id());
-		params.put("nombre", plato.nombre());
-		params.put("precio", plato.precio());
-		params.put("categoria", plato.categoria());
-		String query = "UPDATE plato SET nombre = :nombre, precio = :precio, categoria = :categoria WHERE id = :id";
-		return jdbcTemplate.update(query, params);
+	public Optional<Long> updatePlato(Plato plato, Long version) {
+		PreparedStatementCreator sentencia = version == null
+				? actualizarExistente.con(plato.nombre(), plato.precio(), plato.categoria(), plato.id())
+				: actualizarVersion.con(plato.nombre(), plato.precio(), plato.categoria(), plato.id(), version);
+		return jdbc.query(sentencia, versionRowMapper).stream().findFirst();
+	}
+
+	@Override
+	public boolean upsertPlato(Plato plato) {
+		PreparedStatementCreator sentencia = upsert.con(plato.id(), plato.nombre(), plato.precio(), plato.categoria());
+		boolean creado;
+		try {
+			creado = jdbc.query(sentencia, DialectoSql.FILAS_ACTUALIZADAS) == 0;
+		} catch (DuplicateKeyException e) {
+			// En H2 dos MERGE concurrentes pueden insertar a la vez: el segundo ya encuentra la fila
+			creado = jdbc.query(sentencia, DialectoSql.FILAS_ACTUALIZADAS) == 0;
+		}
+		if (creado) {
+			dialecto.ajustarIdentidad(jdbcTemplate, "plato", "id", plato.id());
+		}
+		return creado;
 	}
 
 	@Override
 	public int deletePlato(int id) {
-		Map<String, Object> params = new HashMap<>();
-		params.put("id", id);
-		String query = "DELETE FROM plato WHERE id = :id";
-		return jdbcTemplate.update(query, params);
+		return jdbc.update(borrar.con(id));
 	}
 
 	@Override
 	public int removeRestaurantesFromPlato(int id) {
-		Map<String, Object> params = new HashMap<>();
-		params.put("id", id);
-		String query = "DELETE FROM restaurante_plato WHERE id_plato = :id";
-		return jdbcTemplate.update(query, params);
+		return jdbc.update(quitarDeRestaurantes.con(id));
 	}
 
 	@Override
 	public long createPlato(Plato plato) {
-		Map<String, Object> params = new HashMap<>();
-		params.put("nombre", plato.nombre());
-		params.put("precio", plato.precio());
-		params.put("categoria", plato.categoria());
+		KeyHolder kh = new GeneratedKeyHolder();
+		jdbc.update(crear.con(plato.nombre(), plato.precio(), plato.categoria()), kh);
+		return kh.getKey().longValue();
+	}
+
+	@Override
+	public List<Long> createPlatos(List<Plato> platos) {
+		SqlParameterSource[] params = platos.stream()
+				.map(plato -> new MapSqlParameterSource()
+						.addValue("nombre", plato.nombre())
+						.addValue("precio", plato.precio())
+						.addValue("categoria", plato.categoria()))
+				.toArray(SqlParameterSource[]::new);
 
 		KeyHolder kh = new GeneratedKeyHolder();
 
-		String query = "INSERT INTO plato (nombre, precio, categoria) VALUES (:nombre, :precio, :categoria)";
-		jdbcTemplate.update(query, new MapSqlParameterSource(params), kh);
-		return kh.getKey().longValue();
+		String query = "INSERT INTO plato (nombre, precio, categoria, version) " +
+					   "VALUES (:nombre, :precio, :categoria, " + dialecto.nuevaVersion() + ")";
+		jdbcTemplate.batchUpdate(query, params, kh, new String[]{"id"});
+		return kh.getKeyList().stream()
+				.map(key -> ((Number) key.values().iterator().next()).longValue())
+				.toList();
 	}
 }
@@ -0,0 +1,25 @@
+package com.helloworld.babel.restaurant.daos.replicas;
+
+/**
+ * Marca el hilo para que las transacciones de solo lectura tambien vayan a la primaria. Lo usa quien acaba de
+ * escribir y tiene que leer lo escrito antes de que llegue a las replicas.
+ */
+public final class LecturasEnPrimaria {
+
+	private static final ThreadLocal<Boolean> ACTIVAS = new ThreadLocal<>();
+
+	private LecturasEnPrimaria() {
+	}
+
+	public static void activar() {
+		ACTIVAS.set(Boolean.TRUE);
+	}
+
+	public static void desactivar() {
+		ACTIVAS.remove();
+	}
+
+	public static boolean activas() {
+		return ACTIVAS.get() != null;
+	}
+}
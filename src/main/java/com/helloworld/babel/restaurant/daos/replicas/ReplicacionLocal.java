@@ -0,0 +1,143 @@
+package com.helloworld.babel.restaurant.daos.replicas;
+
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sustituto local de la replicacion de la base de datos para probar con replicas H2 en memoria. Cada retraso
+ * copia las tablas de la primaria y las escribe en las replicas pasado otro retraso, asi que una replica va entre
+ * uno y dos retrasos por detras. Cada replica se reescribe en una transaccion: quien lee ve la copia anterior
+ * entera hasta el commit.
+ */
+public class ReplicacionLocal implements SmartLifecycle {
+
+	// En orden de claves ajenas; se borran en orden inverso
+	private static final List<String> TABLAS = List.of("plato", "restaurante", "restaurante_plato");
+
+	private final JdbcTemplate primaria;
+	private final List<Replica> replicas = new ArrayList<>();
+	private final Duration retraso;
+	// Numero de la ultima copia hecha y de la ultima escrita: una copia antigua no pisa a una mas reciente
+	private long copias;
+	private long aplicada;
+
+	private ScheduledExecutorService replicador;
+	private volatile boolean enMarcha;
+
+	public ReplicacionLocal(DataSource primaria, List<DataSource> replicas, Duration retraso) {
+		this.primaria = new JdbcTemplate(primaria);
+		for (DataSource replica : replicas) {
+			this.replicas.add(new Replica(replica));
+		}
+		this.retraso = retraso;
+	}
+
+	/**
+	 * Copia el estado actual de la primaria en las replicas sin esperar al retraso.
+	 */
+	public synchronized void sincronizar() {
+		aplicar(copiar());
+	}
+
+	private synchronized Copia copiar() {
+		Map<String, List<Object[]>> filas = new LinkedHashMap<>();
+		for (String tabla : TABLAS) {
+			filas.put(tabla, primaria.query("SELECT * FROM " + tabla, (rs, rowNum) -> {
+				Object[] fila = new Object[rs.getMetaData().getColumnCount()];
+				for (int i = 0; i < fila.length; i++) {
+					fila[i] = rs.getObject(i + 1);
+				}
+				return fila;
+			}));
+		}
+		return new Copia(++copias, filas);
+	}
+
+	private synchronized void aplicar(Copia copia) {
+		if (copia.numero() < aplicada) {
+			return;
+		}
+		aplicada = copia.numero();
+		Map<String, List<Object[]>> filas = copia.filas();
+		for (Replica replica : replicas) {
+			replica.transacciones.executeWithoutResult(estado -> {
+				List<String> inverso = new ArrayList<>(TABLAS);
+				Collections.reverse(inverso);
+				inverso.forEach(tabla -> replica.jdbc.update("DELETE FROM " + tabla));
+				filas.forEach((tabla, contenido) -> {
+					if (!contenido.isEmpty()) {
+						String parametros = String.join(", ", Collections.nCopies(contenido.get(0).length, "?"));
+						replica.jdbc.batchUpdate("INSERT INTO " + tabla + " VALUES (" + parametros + ")", contenido);
+					}
+				});
+			});
+		}
+	}
+
+	private void replicar() {
+		try {
+			Copia copia = copiar();
+			replicador.schedule(() -> aplicar(copia), retraso.toMillis(), TimeUnit.MILLISECONDS);
+		} catch (RuntimeException e) {
+			// Una excepcion cancelaria las copias periodicas; la siguiente lo vuelve a intentar
+		}
+	}
+
+	@Override
+	public void start() {
+		for (Replica replica : replicas) {
+			new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(replica.dataSource);
+		}
+		sincronizar();
+		replicador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+			Thread hilo = new Thread(tarea, "replicacion-local");
+			hilo.setDaemon(true);
+			return hilo;
+		});
+		long cada = retraso.toMillis();
+		replicador.scheduleAtFixedRate(this::replicar, cada, cada, TimeUnit.MILLISECONDS);
+		enMarcha = true;
+	}
+
+	@Override
+	public void stop() {
+		replicador.shutdownNow();
+		enMarcha = false;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return enMarcha;
+	}
+
+	private record Copia(long numero, Map<String, List<Object[]>> filas) {
+	}
+
+	private static final class Replica {
+
+		private final DataSource dataSource;
+		private final JdbcTemplate jdbc;
+		private final TransactionTemplate transacciones;
+
+		Replica(DataSource dataSource) {
+			this.dataSource = dataSource;
+			this.jdbc = new JdbcTemplate(dataSource);
+			this.transacciones = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		}
+	}
+}
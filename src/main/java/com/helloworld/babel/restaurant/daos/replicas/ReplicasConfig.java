@@ -0,0 +1,87 @@
+package com.helloworld.babel.restaurant.daos.replicas;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Con restaurant.replicas.urls las transacciones {@code readOnly} leen de las replicas y el resto va a la primaria,
+ * configurada como siempre con spring.datasource. La conexion se pide en la primera sentencia, cuando ya se sabe si
+ * la transaccion es de solo lectura; fuera de una transaccion todo va a la primaria.
+ */
+@Configuration
+@ConditionalOnProperty("restaurant.replicas.urls")
+public class ReplicasConfig {
+
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource primaria(DataSourceProperties properties) {
+		return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+	}
+
+	@Bean
+	public ReplicasDataSource replicas(@Qualifier("primaria") HikariDataSource primaria,
+									   DataSourceProperties properties,
+									   ObjectProvider<MeterRegistry> registry,
+									   @Value("${restaurant.replicas.urls}") List<String> urls) {
+		List<HikariDataSource> replicas = new ArrayList<>();
+		for (String url : urls) {
+			// Mismo pool que la primaria, en solo lectura
+			HikariConfig config = new HikariConfig();
+			primaria.copyStateTo(config);
+			config.setJdbcUrl(url);
+			config.setUsername(properties.determineUsername());
+			config.setPassword(properties.determinePassword());
+			config.setPoolName(nombrePool(primaria, replicas.size()));
+			config.setReadOnly(true);
+			registry.ifAvailable(r -> config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(r)));
+			replicas.add(new HikariDataSource(config));
+		}
+		return new ReplicasDataSource(primaria, replicas);
+	}
+
+	@Bean
+	@Primary
+	public LazyConnectionDataSourceProxy dataSource(@Qualifier("primaria") HikariDataSource primaria,
+													ReplicasDataSource replicas) {
+		LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaria);
+		dataSource.setReadOnlyDataSource(replicas);
+		return dataSource;
+	}
+
+	@Bean
+	@ConditionalOnProperty("restaurant.replicas.local.retraso")
+	public ReplicacionLocal replicacionLocal(@Qualifier("primaria") HikariDataSource primaria,
+											 DataSourceProperties properties,
+											 @Value("${restaurant.replicas.urls}") List<String> urls,
+											 @Value("${restaurant.replicas.local.retraso}") Duration retraso) {
+		// Escribe en las replicas con conexiones propias, fuera de sus pools de solo lectura
+		List<DataSource> replicas = urls.stream()
+				.<DataSource>map(url -> new DriverManagerDataSource(
+						url, properties.determineUsername(), properties.determinePassword()))
+				.toList();
+		return new ReplicacionLocal(primaria, replicas, retraso);
+	}
+
+	private static String nombrePool(HikariDataSource primaria, int replica) {
+		String prefijo = primaria.getPoolName() != null ? primaria.getPoolName() + "-" : "";
+		return prefijo + "replica-" + replica;
+	}
+}
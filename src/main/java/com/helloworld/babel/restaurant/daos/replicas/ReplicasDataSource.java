@@ -0,0 +1,56 @@
+package com.helloworld.babel.restaurant.daos.replicas;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Conexiones para las transacciones de solo lectura: una replica cada vez, por turnos, o la primaria si el hilo
+ * tiene {@link LecturasEnPrimaria} activas.
+ */
+public class ReplicasDataSource extends AbstractDataSource implements Closeable {
+
+	private final DataSource primaria;
+	private final List<? extends DataSource> replicas;
+	private final AtomicInteger siguiente = new AtomicInteger();
+
+	public ReplicasDataSource(DataSource primaria, List<? extends DataSource> replicas) {
+		if (replicas.isEmpty()) {
+			throw new IllegalArgumentException("Hace falta al menos una replica");
+		}
+		this.primaria = primaria;
+		this.replicas = replicas;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return destino().getConnection();
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return destino().getConnection(username, password);
+	}
+
+	private DataSource destino() {
+		if (LecturasEnPrimaria.activas()) {
+			return primaria;
+		}
+		return replicas.get(Math.floorMod(siguiente.getAndIncrement(), replicas.size()));
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (DataSource replica : replicas) {
+			if (replica instanceof Closeable pool) {
+				pool.close();
+			}
+		}
+	}
+}
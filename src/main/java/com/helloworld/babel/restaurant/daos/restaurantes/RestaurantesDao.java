@@ -1,17 +1,43 @@
 package com.helloworld.babel.restaurant.daos.restaurantes;
 
+import com.helloworld.babel.restaurant.daos.model.FabricaPlato;
+import com.helloworld.babel.restaurant.daos.model.FabricaRestaurante;
+import com.helloworld.babel.restaurant.daos.model.LectorCartas;
 import com.helloworld.babel.restaurant.daos.model.Restaurante;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.ObjIntConsumer;
 
 public interface RestaurantesDao {
-	List<Restaurante> getRestaurantes();
+	<T> List<T> getRestaurantes(FabricaRestaurante<T> fabrica);
+	<T> List<T> getRestaurantes(String after, int limit, FabricaRestaurante<T> fabrica);
+	<R, P> void streamRestaurantesConPlatos(FabricaRestaurante<R> fabricaRestaurante, FabricaPlato<P> fabricaPlato,
+											BiConsumer<? super R, List<P>> consumer);
+	void streamRestaurantesConPlatos(LectorCartas lector);
+	void streamCartas(ObjIntConsumer<String> consumer);
 	Optional<Restaurante> getRestauranteById(String cif);
-	int updateRestaurante(Restaurante restaurante);
+	<T> List<T> getRestaurantesByCifs(Collection<String> cifs, FabricaRestaurante<T> fabrica);
+	Optional<Long> getVersion(String cif);
+	int incrementVersion(String cif);
+	int incrementVersionByPlato(int plato);
+	/**
+	 * Actualiza el restaurante solo si sigue en la version indicada, o si existe con la version a null.
+	 * @return la nueva version, o vacio si el restaurante no existe o tiene otra version
+	 */
+	Optional<Long> updateRestaurante(Restaurante restaurante, Long version);
+	/**
+	 * @return true si el restaurante no existia y se ha creado, false si se ha actualizado
+	 */
+	boolean upsertRestaurante(Restaurante restaurante);
 	int deleteRestaurante(String cif);
 	int removePlatosFomRestaurante(String cif);
 	int createRestaurante(Restaurante restaurante);
+	int[] createRestaurantes(List<Restaurante> restaurantes);
 	int addPlato(String cif, int plato);
 	int removePlato(String cif, int plato);
+	int[] addPlatos(String cif, Collection<Integer> platos);
+	int removePlatos(String cif, Collection<Integer> platos);
 }
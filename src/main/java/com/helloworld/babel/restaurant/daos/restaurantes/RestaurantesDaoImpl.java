@@ -1,104 +1,302 @@
 package com.helloworld.babel.restaurant.daos.restaurantes;
 
+import com.helloworld.babel.restaurant.daos.DialectoSql;
+import com.helloworld.babel.restaurant.daos.Sentencia;
+import com.helloworld.babel.restaurant.daos.TrozosIn;
+import com.helloworld.babel.restaurant.daos.model.FabricaPlato;
+import com.helloworld.babel.restaurant.daos.model.FabricaRestaurante;
+import com.helloworld.babel.restaurant.daos.model.LectorCartas;
 import com.helloworld.babel.restaurant.daos.model.Restaurante;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SingleColumnRowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.ObjIntConsumer;
 
 @Repository
 public class RestaurantesDaoImpl implements RestaurantesDao {
 
 	private NamedParameterJdbcTemplate jdbcTemplate;
+	private JdbcOperations jdbc;
+	private DialectoSql dialecto;
 
-	private RowMapper<Restaurante> restauranteRowMapperRowMapper = (rs, rowNum) ->
-	{
-		String cif = rs.getString("cif");
-		String nombre = rs.getString("nombre");
-		String direccion = rs.getString("direccion");
-		String telefono = rs.getString("telefono");
+	// Sentencias analizadas al crear el DAO; las que reciben listas siguen con NamedParameterJdbcTemplate
+	private final Sentencia todos;
+	private final Sentencia pagina;
+	private final Sentencia conPlatos;
+	private final Sentencia cartas;
+	private final Sentencia porCif;
+	private final Sentencia version;
+	private final Sentencia nuevaVersion;
+	private final Sentencia nuevaVersionPorPlato;
+	private final Sentencia actualizarVersion;
+	private final Sentencia actualizarExistente;
+	private final Sentencia upsert;
+	private final Sentencia borrar;
+	private final Sentencia vaciarCarta;
+	private final Sentencia crear;
+	private final Sentencia anadirPlato;
+	private final Sentencia quitarPlato;
 
-		return new Restaurante(cif, nombre, direccion, telefono);
-	};
+	private final SingleColumnRowMapper<Long> versionRowMapper = new SingleColumnRowMapper<>(Long.class);
 
-	public RestaurantesDaoImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+	private final RowMapper<Restaurante> restauranteRowMapperRowMapper = restauranteRowMapper(Restaurante::new);
+
+	// Todas las consultas de restaurantes empiezan por cif, nombre, direccion y telefono: se leen por posicion
+	private static <T> RowMapper<T> restauranteRowMapper(FabricaRestaurante<T> fabrica) {
+		return (rs, rowNum) -> fabrica.crear(rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4));
+	}
+
+	public RestaurantesDaoImpl(NamedParameterJdbcTemplate jdbcTemplate, DialectoSql dialecto) {
 		this.jdbcTemplate = jdbcTemplate;
+		this.jdbc = jdbcTemplate.getJdbcOperations();
+		this.dialecto = dialecto;
+
+		todos = new Sentencia("SELECT cif, nombre, direccion, telefono FROM restaurante");
+		pagina = new Sentencia("SELECT cif, nombre, direccion, telefono FROM restaurante " +
+				"WHERE cif > :after ORDER BY cif LIMIT :limit");
+		conPlatos = new Sentencia("SELECT r.cif, r.nombre, r.direccion, r.telefono, p.id, p.nombre, p.precio, p.categoria " +
+				"FROM restaurante r " +
+				"LEFT JOIN restaurante_plato rp ON rp.cif_restaurante = r.cif " +
+				"LEFT JOIN plato p ON p.id = rp.id_plato " +
+				"ORDER BY r.cif, p.id");
+		cartas = new Sentencia("SELECT cif_restaurante, id_plato FROM restaurante_plato ORDER BY cif_restaurante, id_plato");
+		porCif = new Sentencia("SELECT cif, nombre, direccion, telefono FROM restaurante WHERE cif = :cif");
+		version = new Sentencia("SELECT version FROM restaurante WHERE cif = :cif");
+		nuevaVersion = new Sentencia("UPDATE restaurante SET version = " + dialecto.nuevaVersion() + " WHERE cif = :cif");
+		nuevaVersionPorPlato = new Sentencia("UPDATE restaurante SET version = " + dialecto.nuevaVersion() + " " +
+				"WHERE cif IN (SELECT cif_restaurante FROM restaurante_plato WHERE id_plato = :plato)");
+		actualizarVersion = new Sentencia(dialecto.actualizarDevolviendo("UPDATE restaurante SET nombre = :nombre, " +
+				"direccion = :direccion, telefono = :telefono, version = " + dialecto.nuevaVersion() + " " +
+				"WHERE cif = :cif AND version = :version", "version"));
+		actualizarExistente = new Sentencia(dialecto.actualizarDevolviendo("UPDATE restaurante SET nombre = :nombre, " +
+				"direccion = :direccion, telefono = :telefono, version = " + dialecto.nuevaVersion() + " " +
+				"WHERE cif = :cif", "version"));
+		Map<String, String> valores = new LinkedHashMap<>();
+		valores.put("cif", ":cif");
+		valores.put("nombre", ":nombre");
+		valores.put("direccion", ":direccion");
+		valores.put("telefono", ":telefono");
+		valores.put("version", dialecto.nuevaVersion());
+		upsert = new Sentencia(dialecto.upsert("restaurante", "cif", valores));
+		borrar = new Sentencia("DELETE FROM restaurante WHERE cif = :cif");
+		vaciarCarta = new Sentencia("DELETE FROM restaurante_plato WHERE cif_restaurante = :cif");
+		crear = new Sentencia("INSERT INTO restaurante (cif, nombre, direccion, telefono, version) " +
+				"VALUES (:cif, :nombre, :direccion, :telefono, " + dialecto.nuevaVersion() + ")");
+		anadirPlato = new Sentencia("INSERT INTO restaurante_plato (cif_restaurante, id_plato) VALUES (:cif, :plato)");
+		quitarPlato = new Sentencia("DELETE FROM restaurante_plato WHERE cif_restaurante = :cif AND id_plato = :plato");
 	}
 
 
 
 	@Override
-	public List<Restaurante> getRestaurantes() {
-		String sql = "SELECT cif, nombre, direccion, telefono FROM restaurante";
-		return jdbcTemplate.query(sql, restauranteRowMapperRowMapper);
+	public <T> List<T> getRestaurantes(FabricaRestaurante<T> fabrica) {
+		return jdbc.query(todos.con(), restauranteRowMapper(fabrica));
+	}
+
+	@Override
+	public <T> List<T> getRestaurantes(String after, int limit, FabricaRestaurante<T> fabrica) {
+		return jdbc.query(pagina.con(after, limit), restauranteRowMapper(fabrica));
+	}
+
+	@Override
+	public <R, P> void streamRestaurantesConPlatos(FabricaRestaurante<R> fabricaRestaurante, FabricaPlato<P> fabricaPlato,
+												   BiConsumer<? super R, List<P>> consumer) {
+		AgrupadorCartas<R, P> agrupador = new AgrupadorCartas<>(fabricaRestaurante, fabricaPlato, consumer);
+		streamRestaurantesConPlatos(agrupador);
+		agrupador.entregar();
+	}
+
+	@Override
+	public void streamRestaurantesConPlatos(LectorCartas lector) {
+		jdbc.query(conPlatos.porBloques(), (ResultSetExtractor<Void>) rs -> {
+			String cif = null;
+			while (rs.next()) {
+				String cifFila = rs.getString(1);
+				if (!cifFila.equals(cif)) {
+					cif = cifFila;
+					lector.local(cifFila, rs.getString(2), rs.getString(3), rs.getString(4));
+				}
+				int platoId = rs.getInt(5);
+				if (!rs.wasNull()) {
+					lector.plato(platoId, rs.getString(6), rs.getDouble(7), rs.getInt(8));
+				}
+			}
+			return null;
+		});
+	}
+
+	@Override
+	public void streamCartas(ObjIntConsumer<String> consumer) {
+		jdbc.query(cartas.porBloques(), (RowCallbackHandler) rs -> consumer.accept(rs.getString(1), rs.getInt(2)));
 	}
 
 	@Override
 	public Optional<Restaurante> getRestauranteById(String id) {
-		Map<String, Object> params = Map.of("cif", id);
-		String sql = "SELECT cif, nombre, direccion, telefono FROM restaurante WHERE cif = :cif";
-		try {
-			return Optional.of(jdbcTemplate.queryForObject(sql, params, restauranteRowMapperRowMapper));
-		} catch (Exception e) {
-			return Optional.empty();
-		}
+		return jdbc.query(porCif.con(id), restauranteRowMapperRowMapper).stream().findFirst();
 	}
 
 	@Override
-	public int updateRestaurante(Restaurante restaurante) {
-		Map<String, Object> params = new HashMap<>();
-		params.put("cif", restaurante.cif());
-		params.put("nombre", restaurante.nombre());
-		params.put("direccion", restaurante.direccion());
-		params.put("telefono", restaurante.telefono());
-		String sql = "UPDATE restaurante SET nombre = :nombre, direccion = :direccion, telefono = :telefono WHERE cif = :cif";
-		return jdbcTemplate.update(sql, params);
+	public <T> List<T> getRestaurantesByCifs(Collection<String> cifs, FabricaRestaurante<T> fabrica) {
+		String sql = "SELECT cif, nombre, direccion, telefono FROM restaurante WHERE cif IN (:cifs) ORDER BY cif";
+		RowMapper<T> rowMapper = restauranteRowMapper(fabrica);
+		List<T> restaurantes = new ArrayList<>(cifs.size());
+		// Cada trozo llega ordenado por CIF, pero el resultado completo solo lo esta si lo estaban las claves
+		TrozosIn.porTrozos(cifs, trozo -> restaurantes.addAll(jdbcTemplate.query(sql, Map.of("cifs", trozo), rowMapper)));
+		return restaurantes;
+	}
+
+	@Override
+	public Optional<Long> getVersion(String cif) {
+		return jdbc.query(version.con(cif), versionRowMapper).stream().findFirst();
+	}
+
+	@Override
+	public int incrementVersion(String cif) {
+		return jdbc.update(nuevaVersion.con(cif));
+	}
+
+	@Override
+	public int incrementVersionByPlato(int plato) {
+		return jdbc.update(nuevaVersionPorPlato.con(plato));
+	}
+
+	@Override
+	public Optional<Long> updateRestaurante(Restaurante restaurante, Long version) {
+		PreparedStatementCreator sentencia = version == null
+				? actualizarExistente.con(restaurante.nombre(), restaurante.direccion(), restaurante.telefono(),
+						restaurante.cif())
+				: actualizarVersion.con(restaurante.nombre(), restaurante.direccion(), restaurante.telefono(),
+						restaurante.cif(), version);
+		return jdbc.query(sentencia, versionRowMapper).stream().findFirst();
+	}
+
+	@Override
+	public boolean upsertRestaurante(Restaurante restaurante) {
+		PreparedStatementCreator sentencia = upsert.con(
+				restaurante.cif(), restaurante.nombre(), restaurante.direccion(), restaurante.telefono());
+		try {
+			return jdbc.query(sentencia, DialectoSql.FILAS_ACTUALIZADAS) == 0;
+		} catch (DuplicateKeyException e) {
+			// En H2 dos MERGE concurrentes pueden insertar a la vez: el segundo ya encuentra la fila
+			return jdbc.query(sentencia, DialectoSql.FILAS_ACTUALIZADAS) == 0;
+		}
 	}
 
 	@Override
 	public int deleteRestaurante(String cif) {
-		Map<String, Object> params = Map.of("cif", cif);
-		String sql = "DELETE FROM restaurante WHERE cif = :cif";
-		return jdbcTemplate.update(sql, params);
+		return jdbc.update(borrar.con(cif));
 	}
 
 	public int removePlatosFomRestaurante(String cif) {
-		Map<String, Object> params = Map.of("cif", cif);
-		String sql = "DELETE FROM restaurante_plato WHERE cif_restaurante = :cif";
-		return jdbcTemplate.update(sql, params);
+		return jdbc.update(vaciarCarta.con(cif));
 	}
 
 	@Override
 	public int createRestaurante(Restaurante restaurante) {
-		Map<String, Object> params = new HashMap<>();
-		params.put("cif", restaurante.cif());
-		params.put("nombre", restaurante.nombre());
-		params.put("direccion", restaurante.direccion());
-		params.put("telefono", restaurante.telefono());
-		String sql = "INSERT INTO restaurante (cif, nombre, direccion, telefono) VALUES (:cif, :nombre, :direccion, :telefono)";
-		return jdbcTemplate.update(sql, params);
+		return jdbc.update(crear.con(
+				restaurante.cif(), restaurante.nombre(), restaurante.direccion(), restaurante.telefono()));
+	}
+
+	@Override
+	public int[] createRestaurantes(List<Restaurante> restaurantes) {
+		SqlParameterSource[] params = restaurantes.stream()
+				.map(restaurante -> new MapSqlParameterSource()
+						.addValue("cif", restaurante.cif())
+						.addValue("nombre", restaurante.nombre())
+						.addValue("direccion", restaurante.direccion())
+						.addValue("telefono", restaurante.telefono()))
+				.toArray(SqlParameterSource[]::new);
+		String sql = "INSERT INTO restaurante (cif, nombre, direccion, telefono, version) " +
+					 "VALUES (:cif, :nombre, :direccion, :telefono, " + dialecto.nuevaVersion() + ")";
+		return jdbcTemplate.batchUpdate(sql, params);
 	}
 
 	@Override
 	public int addPlato(String cif, int plato) {
-		Map<String, Object> params = new HashMap<>();
-		params.put("cif", cif);
-		params.put("plato", plato);
-		String sql = "INSERT INTO restaurante_plato (cif_restaurante, id_plato) VALUES (:cif, :plato)";
-		return jdbcTemplate.update(sql, params);
+		return jdbc.update(anadirPlato.con(cif, plato));
 	}
 
 	@Override
 	public int removePlato(String cif, int plato) {
+		return jdbc.update(quitarPlato.con(cif, plato));
+	}
+
+	@Override
+	public int[] addPlatos(String cif, Collection<Integer> platos) {
+		SqlParameterSource[] params = platos.stream()
+				.map(plato -> new MapSqlParameterSource()
+						.addValue("cif", cif)
+						.addValue("plato", plato))
+				.toArray(SqlParameterSource[]::new);
+		String sql = "INSERT INTO restaurante_plato (cif_restaurante, id_plato) VALUES (:cif, :plato)";
+		return jdbcTemplate.batchUpdate(sql, params);
+	}
+
+	@Override
+	public int removePlatos(String cif, Collection<Integer> platos) {
+		if (platos.isEmpty()) {
+			return 0;
+		}
 		Map<String, Object> params = new HashMap<>();
 		params.put("cif", cif);
-		params.put("plato", plato);
-		String sql = "DELETE FROM restaurante_plato WHERE cif_restaurante = :cif AND id_plato = :plato";
+		params.put("platos", platos);
+		String sql = "DELETE FROM restaurante_plato WHERE cif_restaurante = :cif AND id_plato IN (:platos)";
 		return jdbcTemplate.update(sql, params);
 	}
 
+	/**
+	 * Junta cada local con su carta: las filas llegan ordenadas por CIF, asi que solo se mantiene en memoria la
+	 * carta del local en curso, que se entrega al empezar el siguiente.
+	 */
+	private static final class AgrupadorCartas<R, P> implements LectorCartas {
+
+		private final FabricaRestaurante<R> fabricaRestaurante;
+		private final FabricaPlato<P> fabricaPlato;
+		private final BiConsumer<? super R, List<P>> consumer;
+		private R actual;
+		private List<P> carta;
+
+		AgrupadorCartas(FabricaRestaurante<R> fabricaRestaurante, FabricaPlato<P> fabricaPlato,
+						BiConsumer<? super R, List<P>> consumer) {
+			this.fabricaRestaurante = fabricaRestaurante;
+			this.fabricaPlato = fabricaPlato;
+			this.consumer = consumer;
+		}
+
+		@Override
+		public void local(String cif, String nombre, String direccion, String telefono) {
+			entregar();
+			actual = fabricaRestaurante.crear(cif, nombre, direccion, telefono);
+			carta = new ArrayList<>();
+		}
+
+		@Override
+		public void plato(int id, String nombre, double precio, int categoria) {
+			carta.add(fabricaPlato.crear(id, nombre, precio, categoria));
+		}
+
+		void entregar() {
+			if (actual != null) {
+				consumer.accept(actual, carta);
+				actual = null;
+			}
+		}
+	}
 }
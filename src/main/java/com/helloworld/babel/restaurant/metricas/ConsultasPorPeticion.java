@@ -0,0 +1,62 @@
+package com.helloworld.babel.restaurant.metricas;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Numero de consultas a base de datos que lanza cada peticion HTTP, por metodo, URI y estado.
+ * Solo cuentan las del hilo de la peticion: las cartas cargadas en paralelo o las exportaciones en streaming no.
+ */
+@Component
+public class ConsultasPorPeticion extends OncePerRequestFilter {
+
+	private static final ThreadLocal<int[]> CONSULTAS = new ThreadLocal<>();
+
+	private final MeterRegistry registry;
+
+	public ConsultasPorPeticion(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	static void contarConsulta() {
+		int[] consultas = CONSULTAS.get();
+		if (consultas != null) {
+			consultas[0]++;
+		}
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		int[] consultas = new int[1];
+		CONSULTAS.set(consultas);
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			CONSULTAS.remove();
+			DistributionSummary.builder("restaurant.http.consultas")
+					.description("Consultas a base de datos por peticion HTTP")
+					.baseUnit("queries")
+					.tag("method", request.getMethod())
+					.tag("uri", uri(request))
+					.tag("status", String.valueOf(response.getStatus()))
+					.register(registry)
+					.record(consultas[0]);
+		}
+	}
+
+	private static String uri(HttpServletRequest request) {
+		// El patron del controlador y no la ruta real, para no crear una serie por cada CIF o ID
+		Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		return patron != null ? patron.toString() : "UNKNOWN";
+	}
+}
@@ -0,0 +1,60 @@
+package com.helloworld.babel.restaurant.metricas;
+
+import com.helloworld.babel.restaurant.daos.platos.CachedPlatosDao;
+import com.helloworld.babel.restaurant.servicios.locales.CartasCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Las caches propias no pasan por el CacheManager de Spring, asi que se registran aqui.
+ * El pool de Hikari y las peticiones HTTP los instrumenta Actuator.
+ */
+@Configuration
+public class MetricasConfig {
+
+	/**
+	 * Solo el DataSource que usan los DAOs y las transacciones; con replicas es el que elige entre ellas, y los pools
+	 * que hay debajo no se envuelven para no contar dos veces.
+	 */
+	@Bean
+	public static BeanPostProcessor sentenciasDataSourcePostProcessor() {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (bean instanceof DataSource dataSource && "dataSource".equals(beanName)) {
+					return new SentenciasDataSource(dataSource);
+				}
+				return bean;
+			}
+		};
+	}
+
+	@Bean
+	public MeterBinder metricasCachePlatos(CachedPlatosDao platosDao) {
+		return registry -> CaffeineCacheMetrics.monitor(registry, platosDao.getCache(), "platos");
+	}
+
+	@Bean
+	public MeterBinder metricasCacheCartas(CartasCache cartasCache) {
+		return registry -> {
+			Gauge.builder("cache.size", cartasCache, CartasCache::size)
+					.tag("cache", "cartas")
+					.register(registry);
+			FunctionCounter.builder("cache.gets", cartasCache, cache -> cache.getConsultas() - cache.getCargas())
+					.tag("cache", "cartas")
+					.tag("result", "hit")
+					.register(registry);
+			FunctionCounter.builder("cache.gets", cartasCache, CartasCache::getCargas)
+					.tag("cache", "cartas")
+					.tag("result", "miss")
+					.register(registry);
+		};
+	}
+}
@@ -0,0 +1,116 @@
+package com.helloworld.babel.restaurant.metricas;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tiempo, filas y sentencias de cada metodo de los DAOs JDBC. Una llamada puede lanzar varias sentencias (consultas
+ * por trozos, reintentos, ajustes de la identidad); las cuenta {@link SentenciasDataSource} al prepararlas, y cada
+ * una se suma tambien a las consultas de la peticion en curso.
+ */
+@Aspect
+@Component
+public class MetricasDao {
+
+	private static final ThreadLocal<Medidores> EN_CURSO = new ThreadLocal<>();
+
+	private final MeterRegistry registry;
+	private final Map<Method, Medidores> medidores = new ConcurrentHashMap<>();
+
+	public MetricasDao(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	@Around("execution(public * com.helloworld.babel.restaurant.daos..*DaoImpl.*(..))")
+	public Object medir(ProceedingJoinPoint punto) throws Throwable {
+		Method metodo = ((MethodSignature) punto.getSignature()).getMethod();
+		Medidores medidor = medidores.computeIfAbsent(metodo, this::crearMedidores);
+		Medidores anterior = EN_CURSO.get();
+		EN_CURSO.set(medidor);
+
+		Timer.Sample muestra = Timer.start(registry);
+		try {
+			Object resultado = punto.proceed();
+			int filas = filas(resultado);
+			if (filas >= 0) {
+				medidor.filas().record(filas);
+			}
+			return resultado;
+		} finally {
+			muestra.stop(medidor.tiempo());
+			EN_CURSO.set(anterior);
+		}
+	}
+
+	static void contarSentencia() {
+		ConsultasPorPeticion.contarConsulta();
+		Medidores medidor = EN_CURSO.get();
+		if (medidor != null) {
+			medidor.sentencias().increment();
+		}
+	}
+
+	private Medidores crearMedidores(Method metodo) {
+		String dao = metodo.getDeclaringClass().getSimpleName();
+		Timer tiempo = Timer.builder("restaurant.dao.consultas")
+				.description("Tiempo de cada llamada a los DAOs; sus sentencias se cuentan en restaurant.dao.sentencias")
+				.tag("dao", dao)
+				.tag("metodo", metodo.getName())
+				.register(registry);
+		DistributionSummary filas = DistributionSummary.builder("restaurant.dao.filas")
+				.description("Filas devueltas o afectadas por las consultas de los DAOs")
+				.baseUnit("rows")
+				.tag("dao", dao)
+				.tag("metodo", metodo.getName())
+				.register(registry);
+		Counter sentencias = Counter.builder("restaurant.dao.sentencias")
+				.description("Sentencias enviadas a la base de datos por los metodos de los DAOs")
+				.baseUnit("statements")
+				.tag("dao", dao)
+				.tag("metodo", metodo.getName())
+				.register(registry);
+		return new Medidores(tiempo, filas, sentencias);
+	}
+
+	/**
+	 * Los metodos que devuelven un int devuelven filas afectadas; los long son IDs generados y no cuentan.
+	 */
+	private static int filas(Object resultado) {
+		if (resultado instanceof Collection<?> filas) {
+			return filas.size();
+		}
+		if (resultado instanceof Map<?, ?> grupos) {
+			int filas = 0;
+			for (Object grupo : grupos.values()) {
+				filas += grupo instanceof Collection<?> c ? c.size() : 1;
+			}
+			return filas;
+		}
+		if (resultado instanceof Optional<?> fila) {
+			return fila.isPresent() ? 1 : 0;
+		}
+		if (resultado instanceof int[] lote) {
+			return lote.length;
+		}
+		if (resultado instanceof Integer afectadas) {
+			return afectadas;
+		}
+		return -1;
+	}
+
+	private record Medidores(Timer tiempo, DistributionSummary filas, Counter sentencias) {
+	}
+}
@@ -0,0 +1,39 @@
+package com.helloworld.babel.restaurant.metricas;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Tiempo de conversion de las entidades de los DAOs al modelo de la API, medido por lote y no por fila.
+ * Los listados, las cartas y el streaming crean el modelo al leer cada fila y no pasan por aqui; lo hacen
+ * las lecturas de la cache de platos, los cambios de carta y la importacion.
+ */
+@Component
+public class MetricasMapeo {
+
+	private final Timer locales;
+	private final Timer platos;
+
+	public MetricasMapeo(MeterRegistry registry) {
+		this.locales = crear(registry, "Local");
+		this.platos = crear(registry, "Plato");
+	}
+
+	public <T> T locales(Supplier<T> mapeo) {
+		return locales.record(mapeo);
+	}
+
+	public <T> T platos(Supplier<T> mapeo) {
+		return platos.record(mapeo);
+	}
+
+	private static Timer crear(MeterRegistry registry, String modelo) {
+		return Timer.builder("restaurant.mapeo")
+				.description("Tiempo de conversion al modelo de la API")
+				.tag("modelo", modelo)
+				.register(registry);
+	}
+}
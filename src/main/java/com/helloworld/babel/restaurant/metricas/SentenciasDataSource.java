@@ -0,0 +1,61 @@
+package com.helloworld.babel.restaurant.metricas;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+
+/**
+ * Cuenta cada sentencia que se prepara en las conexiones del DataSource de la aplicacion. JdbcTemplate prepara una
+ * por ejecucion, y un lote una sola vez, asi que es una sentencia por viaje a la base de datos.
+ */
+class SentenciasDataSource extends DelegatingDataSource {
+
+	private static final Set<String> SENTENCIAS = Set.of("prepareStatement", "createStatement", "prepareCall");
+
+	SentenciasDataSource(DataSource dataSource) {
+		super(dataSource);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return contando(super.getConnection());
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return contando(super.getConnection(username, password));
+	}
+
+	private static Connection contando(Connection connection) {
+		return (Connection) Proxy.newProxyInstance(
+				SentenciasDataSource.class.getClassLoader(),
+				new Class<?>[]{Connection.class},
+				(proxy, method, args) -> {
+					// Las transacciones comparan la conexion que guardan con la que se les devuelve
+					if (method.getName().equals("equals")) {
+						return proxy == args[0];
+					}
+					if (method.getName().equals("hashCode")) {
+						return System.identityHashCode(proxy);
+					}
+					if (SENTENCIAS.contains(method.getName())) {
+						MetricasDao.contarSentencia();
+					}
+					return invocar(connection, method, args);
+				});
+	}
+
+	private static Object invocar(Connection connection, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(connection, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package com.helloworld.babel.restaurant.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@JsonPropertyOrder({"seq", "tipo", "plato", "cif", "datos"})
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Cambio {
+
+    public enum Tipo {
+        PLATO_CREADO,
+        PLATO_ACTUALIZADO,
+        // El plato sale tambien de todas las cartas
+        PLATO_ELIMINADO,
+        LOCAL_CREADO,
+        LOCAL_ACTUALIZADO,
+        LOCAL_ELIMINADO,
+        PLATO_ANADIDO_A_CARTA,
+        PLATO_QUITADO_DE_CARTA
+    }
+
+    @Schema(description = "Numero del cambio, creciente en el orden en que se confirmaron")
+    private final long seq;
+
+    @Schema(description = "Tipo de cambio. Al eliminar un plato sale tambien de todas las cartas")
+    private final Tipo tipo;
+
+    @Schema(description = "ID del plato afectado")
+    private final Integer plato;
+
+    @Schema(description = "CIF del local afectado")
+    private final String cif;
+
+    @Schema(description = "Plato o local tras crearlo o actualizarlo, sin la carta")
+    @JsonRawValue
+    private final String datos;
+
+    public Cambio(long seq, Tipo tipo, Integer plato, String cif, String datos) {
+        this.seq = seq;
+        this.tipo = tipo;
+        this.plato = plato;
+        this.cif = cif;
+        this.datos = datos;
+    }
+
+    public static Cambio fromCambioDAO(com.helloworld.babel.restaurant.daos.model.Cambio fila) {
+        return new Cambio(fila.seq(), Tipo.valueOf(fila.tipo()), fila.plato(), fila.cif(), fila.datos());
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    public Integer getPlato() {
+        return plato;
+    }
+
+    public String getCif() {
+        return cif;
+    }
+
+    public String getDatos() {
+        return datos;
+    }
+}
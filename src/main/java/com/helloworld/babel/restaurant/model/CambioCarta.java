@@ -0,0 +1,31 @@
+package com.helloworld.babel.restaurant.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CambioCarta {
+
+    @Schema(description = "IDs de los platos que se añaden a la carta")
+    private List<Integer> anadir = new ArrayList<>();
+
+    @Schema(description = "IDs de los platos que se quitan de la carta")
+    private List<Integer> quitar = new ArrayList<>();
+
+    public List<Integer> getAnadir() {
+        return anadir;
+    }
+
+    public List<Integer> getQuitar() {
+        return quitar;
+    }
+
+    public void setAnadir(List<Integer> anadir) {
+        this.anadir = anadir;
+    }
+
+    public void setQuitar(List<Integer> quitar) {
+        this.quitar = quitar;
+    }
+}
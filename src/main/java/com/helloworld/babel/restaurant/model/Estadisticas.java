@@ -0,0 +1,47 @@
+package com.helloworld.babel.restaurant.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.Map;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"cif", "locales", "platos", "categorias"})
+public class Estadisticas {
+
+    @Schema(description = "CIF del local; no aparece en las estadisticas de todos los locales")
+    private final String cif;
+
+    @Schema(description = "Locales con algun plato en la carta; solo en las estadisticas de todos los locales")
+    private final Integer locales;
+
+    @Schema(description = "Platos en carta; en todos los locales un plato cuenta una vez por cada carta")
+    private final int platos;
+
+    @Schema(description = "Estadisticas de precio por categoria")
+    private final Map<String, EstadisticasCategoria> categorias;
+
+    public Estadisticas(String cif, Integer locales, int platos, Map<String, EstadisticasCategoria> categorias) {
+        this.cif = cif;
+        this.locales = locales;
+        this.platos = platos;
+        this.categorias = categorias;
+    }
+
+    public String getCif() {
+        return cif;
+    }
+
+    public Integer getLocales() {
+        return locales;
+    }
+
+    public int getPlatos() {
+        return platos;
+    }
+
+    public Map<String, EstadisticasCategoria> getCategorias() {
+        return categorias;
+    }
+}
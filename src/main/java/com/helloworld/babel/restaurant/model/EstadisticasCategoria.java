@@ -0,0 +1,54 @@
+package com.helloworld.babel.restaurant.model;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.Map;
+
+@JsonPropertyOrder({"platos", "precioMedio", "precioMinimo", "precioMaximo", "histograma"})
+public class EstadisticasCategoria {
+
+    @Schema(description = "Numero de platos de la categoria")
+    private final int platos;
+
+    @Schema(description = "Precio medio, null si no hay platos")
+    private final Double precioMedio;
+
+    @Schema(description = "Precio minimo, null si no hay platos")
+    private final Double precioMinimo;
+
+    @Schema(description = "Precio maximo, null si no hay platos")
+    private final Double precioMaximo;
+
+    @Schema(description = "Numero de platos por tramo de precio en euros")
+    private final Map<String, Integer> histograma;
+
+    public EstadisticasCategoria(int platos, Double precioMedio, Double precioMinimo, Double precioMaximo,
+                                 Map<String, Integer> histograma) {
+        this.platos = platos;
+        this.precioMedio = precioMedio;
+        this.precioMinimo = precioMinimo;
+        this.precioMaximo = precioMaximo;
+        this.histograma = histograma;
+    }
+
+    public int getPlatos() {
+        return platos;
+    }
+
+    public Double getPrecioMedio() {
+        return precioMedio;
+    }
+
+    public Double getPrecioMinimo() {
+        return precioMinimo;
+    }
+
+    public Double getPrecioMaximo() {
+        return precioMaximo;
+    }
+
+    public Map<String, Integer> getHistograma() {
+        return histograma;
+    }
+}
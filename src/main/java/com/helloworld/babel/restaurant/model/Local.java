@@ -76,6 +76,10 @@ public class Local {
         this.telefono = telefono;
     }
 
+    public void setCarta(List<Plato> carta) {
+        this.carta = carta;
+    }
+
     public void addPlato(Plato plato) {
         carta.add(plato);
     }
@@ -3,6 +3,8 @@ package com.helloworld.babel.restaurant.model;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonValue;
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 
@@ -10,16 +12,29 @@ public class Plato {
 
     public enum Categoria {
         @Schema(description = "Primer plato")
-        PRIMER_PLATO("Entrante"),
+        PRIMER_PLATO("Entrante", 1),
         @Schema(description = "Segundo plato")
-        SEGUNDO_PLATO("Plato principal"),
+        SEGUNDO_PLATO("Plato principal", 2),
         @Schema(description = "Postre")
-        POSTRE("Postre");
+        POSTRE("Postre", 3);
+
+        // Indexada por el codigo de la columna categoria; los codigos desconocidos se leen como entrante
+        private static final Categoria[] POR_CODIGO = {PRIMER_PLATO, PRIMER_PLATO, SEGUNDO_PLATO, POSTRE};
 
         private String descripcion;
+        private final int codigo;
 
-        Categoria(String descripcion) {
+        Categoria(String descripcion, int codigo) {
             this.descripcion = descripcion;
+            this.codigo = codigo;
+        }
+
+        public int getCodigo() {
+            return codigo;
+        }
+
+        public static Categoria fromCodigo(int codigo) {
+            return codigo > 0 && codigo < POR_CODIGO.length ? POR_CODIGO[codigo] : PRIMER_PLATO;
         }
 
         @JsonValue
@@ -39,8 +54,7 @@ public class Plato {
 
     }
 
-    @NotNull(message = "El ID no puede ser nulo")
-    @Size(min = 1, message = "El Id debe tener como mínimo 1 carácter")
+    // Sin @NotNull: al crear e importar el ID lo genera la base de datos
     @Schema(description = "Id del plato")
     private Integer id;
 
@@ -49,14 +63,13 @@ public class Plato {
     @Schema(description = "Nombre del plato")
     private String nombre;
 
-    @NotNull(message = "El precio no puede ser nulo")
-    @Size(min = 1, message = "El costo tiene que tener mínimo un caracter")
+    // Lo que cabe en la columna NUMERIC(6,2)
+    @DecimalMin(value = "0", message = "El precio debe estar entre 0 y 9999.99")
+    @DecimalMax(value = "10000", inclusive = false, message = "El precio debe estar entre 0 y 9999.99")
     @Schema(description = "Precio del plato")
     private double precio;
 
     @NotNull(message = "La categoría del plato no puede ser nula")
-    @Size(min = 1, max = 1, message = "Solo hay 3 categorías de 1 carácter cada una, " +
-            "por lo que la categoría del plato va a tener siempre un caracter")
     @Schema(description = "Categoria del plato")
     private Categoria categoria;
 
@@ -100,35 +113,28 @@ public class Plato {
     }
 
     public static Plato fromPlatoDAO(com.helloworld.babel.restaurant.daos.model.Plato plato) {
-
-        Categoria categoria = switch (plato.categoria()) {
-            case 1 -> Categoria.PRIMER_PLATO;
-            case 2 -> Categoria.SEGUNDO_PLATO;
-            case 3 -> Categoria.POSTRE;
-            default -> Categoria.PRIMER_PLATO;
-        };
-
         return new Plato(
                 plato.id(),
                 plato.nombre(),
                 plato.precio(),
-                categoria
+                Categoria.fromCodigo(plato.categoria())
         );
     }
 
-    public com.helloworld.babel.restaurant.daos.model.Plato toPlatoDAO() {
-
-        int cat = switch (this.getCategoria()) {
-            case PRIMER_PLATO -> 1;
-            case SEGUNDO_PLATO -> 2;
-            case POSTRE -> 3;
-        };
+    /**
+     * {@link com.helloworld.babel.restaurant.daos.model.FabricaPlato} que crea el plato de la API directamente
+     * desde las columnas, sin el registro intermedio del DAO.
+     */
+    public static Plato fromFila(int id, String nombre, double precio, int categoria) {
+        return new Plato(id, nombre, precio, Categoria.fromCodigo(categoria));
+    }
 
+    public com.helloworld.babel.restaurant.daos.model.Plato toPlatoDAO() {
         return new com.helloworld.babel.restaurant.daos.model.Plato(
                 this.getId(),
                 this.getNombre(),
                 this.getPrecio(),
-                cat
+                this.getCategoria().getCodigo()
         );
     }
 
@@ -0,0 +1,38 @@
+package com.helloworld.babel.restaurant.model;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+import java.util.Map;
+
+@JsonPropertyOrder({"total", "facetas", "platos"})
+public class ResultadoBusqueda {
+
+    @Schema(description = "Numero de platos que cumplen todos los filtros")
+    private final int total;
+
+    @Schema(description = "Platos por categoria que cumplen el resto de filtros, sin aplicar el de categoria")
+    private final Map<String, Integer> facetas;
+
+    @Schema(description = "Primeros platos encontrados, hasta el limite indicado")
+    private final List<Plato> platos;
+
+    public ResultadoBusqueda(int total, Map<String, Integer> facetas, List<Plato> platos) {
+        this.total = total;
+        this.facetas = facetas;
+        this.platos = platos;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public Map<String, Integer> getFacetas() {
+        return facetas;
+    }
+
+    public List<Plato> getPlatos() {
+        return platos;
+    }
+}
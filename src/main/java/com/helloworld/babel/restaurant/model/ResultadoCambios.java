@@ -0,0 +1,29 @@
+package com.helloworld.babel.restaurant.model;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@JsonPropertyOrder({"cambios", "ultimo"})
+public class ResultadoCambios {
+
+    @Schema(description = "Cambios posteriores al numero pedido, en orden")
+    private final List<Cambio> cambios;
+
+    @Schema(description = "Numero desde el que pedir la siguiente vez")
+    private final long ultimo;
+
+    public ResultadoCambios(List<Cambio> cambios, long ultimo) {
+        this.cambios = cambios;
+        this.ultimo = ultimo;
+    }
+
+    public List<Cambio> getCambios() {
+        return cambios;
+    }
+
+    public long getUltimo() {
+        return ultimo;
+    }
+}
@@ -0,0 +1,68 @@
+package com.helloworld.babel.restaurant.model;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@JsonPropertyOrder({"total", "insertados", "ids", "errores"})
+public class ResultadoImportacion<K> {
+
+    @Schema(description = "Numero de filas recibidas")
+    private final int total;
+
+    @Schema(description = "Numero de filas insertadas")
+    private final int insertados;
+
+    @Schema(description = "Identificadores generados en el orden de las filas, null en las filas con error")
+    private final List<K> ids;
+
+    @Schema(description = "Errores por fila")
+    private final List<ErrorImportacion> errores;
+
+    public ResultadoImportacion(List<K> ids, List<ErrorImportacion> errores) {
+        this.total = ids.size();
+        this.insertados = (int) ids.stream().filter(id -> id != null).count();
+        this.ids = ids;
+        this.errores = errores;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getInsertados() {
+        return insertados;
+    }
+
+    public List<K> getIds() {
+        return ids;
+    }
+
+    public List<ErrorImportacion> getErrores() {
+        return errores;
+    }
+
+    @JsonPropertyOrder({"fila", "mensaje"})
+    public static class ErrorImportacion {
+
+        @Schema(description = "Posicion de la fila, empezando en 0")
+        private final int fila;
+
+        @Schema(description = "Motivo por el que no se inserto la fila")
+        private final String mensaje;
+
+        public ErrorImportacion(int fila, String mensaje) {
+            this.fila = fila;
+            this.mensaje = mensaje;
+        }
+
+        public int getFila() {
+            return fila;
+        }
+
+        public String getMensaje() {
+            return mensaje;
+        }
+    }
+}
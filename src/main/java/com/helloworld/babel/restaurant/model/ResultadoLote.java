@@ -0,0 +1,29 @@
+package com.helloworld.babel.restaurant.model;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@JsonPropertyOrder({"encontrados", "noEncontrados"})
+public class ResultadoLote<T, K> {
+
+    @Schema(description = "Elementos encontrados, en el orden en que se pidieron y sin repetidos")
+    private final List<T> encontrados;
+
+    @Schema(description = "Identificadores pedidos que no existen")
+    private final List<K> noEncontrados;
+
+    public ResultadoLote(List<T> encontrados, List<K> noEncontrados) {
+        this.encontrados = encontrados;
+        this.noEncontrados = noEncontrados;
+    }
+
+    public List<T> getEncontrados() {
+        return encontrados;
+    }
+
+    public List<K> getNoEncontrados() {
+        return noEncontrados;
+    }
+}
@@ -0,0 +1,68 @@
+package com.helloworld.babel.restaurant.model;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@JsonPropertyOrder({"fichero", "bytes", "platos", "locales", "enlaces", "ultimoCambio", "milisegundos"})
+public class ResumenInstantanea {
+
+    @Schema(description = "Ruta del fichero de la instantanea")
+    private final String fichero;
+
+    @Schema(description = "Tamano del fichero en bytes")
+    private final long bytes;
+
+    @Schema(description = "Numero de platos")
+    private final int platos;
+
+    @Schema(description = "Numero de locales")
+    private final int locales;
+
+    @Schema(description = "Numero de platos en cartas, contando cada plato una vez por carta")
+    private final long enlaces;
+
+    @Schema(description = "Ultimo cambio del catalogo incluido; GET /restaurante/cambios sigue desde aqui")
+    private final long ultimoCambio;
+
+    @Schema(description = "Tiempo empleado en milisegundos")
+    private final long milisegundos;
+
+    public ResumenInstantanea(String fichero, long bytes, int platos, int locales, long enlaces, long ultimoCambio,
+                              long milisegundos) {
+        this.fichero = fichero;
+        this.bytes = bytes;
+        this.platos = platos;
+        this.locales = locales;
+        this.enlaces = enlaces;
+        this.ultimoCambio = ultimoCambio;
+        this.milisegundos = milisegundos;
+    }
+
+    public String getFichero() {
+        return fichero;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public int getPlatos() {
+        return platos;
+    }
+
+    public int getLocales() {
+        return locales;
+    }
+
+    public long getEnlaces() {
+        return enlaces;
+    }
+
+    public long getUltimoCambio() {
+        return ultimoCambio;
+    }
+
+    public long getMilisegundos() {
+        return milisegundos;
+    }
+}
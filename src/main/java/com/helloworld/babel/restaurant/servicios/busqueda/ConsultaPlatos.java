@@ -0,0 +1,10 @@
+package com.helloworld.babel.restaurant.servicios.busqueda;
+
+import com.helloworld.babel.restaurant.model.Plato.Categoria;
+
+/**
+ * Filtros de la busqueda de platos; los que son null no se aplican.
+ */
+public record ConsultaPlatos(String texto, Categoria categoria, Double minPrecio, Double maxPrecio, String cif,
+							 int limite) {
+}
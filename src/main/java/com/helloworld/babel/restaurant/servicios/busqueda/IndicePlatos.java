@@ -0,0 +1,496 @@
+package com.helloworld.babel.restaurant.servicios.busqueda;
+
+import com.helloworld.babel.restaurant.daos.platos.PlatosDao;
+import com.helloworld.babel.restaurant.daos.restaurantes.RestaurantesDao;
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.Plato.Categoria;
+import com.helloworld.babel.restaurant.model.ResultadoBusqueda;
+import com.helloworld.babel.restaurant.servicios.catalogo.MapaEnteros;
+import com.helloworld.babel.restaurant.servicios.catalogo.OyenteCatalogo;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Indice en memoria para buscar platos: indice invertido sobre las palabras del nombre, bitsets por categoria,
+ * los platos de cada carta y los platos ordenados por precio. Se construye al arrancar y se mantiene con los
+ * eventos del catalogo.
+ * <p>
+ * Cada plato ocupa una posicion fija que es su bit en los bitsets. Las posiciones de platos eliminados no se
+ * reutilizan; {@link #reconstruir()} las compacta.
+ */
+@Component
+public class IndicePlatos implements OyenteCatalogo, SmartInitializingSingleton {
+
+	private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+	private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	private final PlatosDao platosDao;
+	private final RestaurantesDao restaurantesDao;
+	private final ReadWriteLock bloqueo = new ReentrantReadWriteLock();
+
+	private final MapaEnteros posiciones = new MapaEnteros();
+	private final BitSet vivos = new BitSet();
+	private final NavigableMap<String, Posiciones> terminos = new TreeMap<>();
+	private final Map<Categoria, BitSet> categorias = new EnumMap<>(Categoria.class);
+	private final Map<String, Posiciones> cartas = new HashMap<>();
+	private Plato[] platos;
+	private double[] precios;
+	private byte[] categoriaPorPosicion;
+	private int ocupadas;
+	// Posiciones vivas ordenadas por precio y, a igual precio, por posicion
+	private int[] porPrecio;
+	private int totalPorPrecio;
+	private boolean construido;
+
+	public IndicePlatos(PlatosDao platosDao, RestaurantesDao restaurantesDao) {
+		this.platosDao = platosDao;
+		this.restaurantesDao = restaurantesDao;
+		limpiar();
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		// Si una instantanea lo cargo al arrancar ya esta al dia
+		if (!construido) {
+			reconstruir();
+		}
+	}
+
+	public void reconstruir() {
+		bloqueo.writeLock().lock();
+		try {
+			limpiar();
+			platosDao.streamPlatos(Plato::fromFila, this::indexar);
+			// Para las cartas basta con los pares CIF-plato, sin los datos de locales ni platos
+			restaurantesDao.streamCartas(this::anadirACarta);
+			construido = true;
+		} finally {
+			bloqueo.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Como {@link #reconstruir()} con el catalogo que ya esta en memoria. Los platos, en orden de ID como los lee
+	 * {@link #reconstruir()}, y las cartas referidas a ellos.
+	 */
+	public void cargar(Collection<Plato> catalogo, Map<String, ? extends Collection<Plato>> cartasPorCif) {
+		bloqueo.writeLock().lock();
+		try {
+			limpiar();
+			catalogo.forEach(this::indexar);
+			cartasPorCif.forEach((cif, carta) -> carta.forEach(plato -> anadirACarta(cif, plato.getId())));
+			construido = true;
+		} finally {
+			bloqueo.writeLock().unlock();
+		}
+	}
+
+	public int size() {
+		bloqueo.readLock().lock();
+		try {
+			return vivos.cardinality();
+		} finally {
+			bloqueo.readLock().unlock();
+		}
+	}
+
+	public ResultadoBusqueda buscar(ConsultaPlatos consulta) {
+		bloqueo.readLock().lock();
+		try {
+			// null mientras ningun filtro haya restringido el resultado
+			BitSet encontrados = null;
+			for (String token : tokens(consulta.texto())) {
+				encontrados = cruzar(encontrados, conPrefijo(token));
+			}
+			if (consulta.cif() != null) {
+				BitSet carta = new BitSet();
+				Posiciones posicionesCarta = cartas.get(consulta.cif());
+				if (posicionesCarta != null) {
+					posicionesCarta.marcar(carta);
+				}
+				encontrados = cruzar(encontrados, carta);
+			}
+			if (consulta.minPrecio() != null || consulta.maxPrecio() != null) {
+				encontrados = filtrarPorPrecio(encontrados, consulta.minPrecio(), consulta.maxPrecio());
+			}
+			encontrados = restringir(encontrados, vivos);
+
+			int[] porCategoria = contarPorCategoria(encontrados);
+			Map<String, Integer> facetas = new LinkedHashMap<>();
+			for (Categoria categoria : Categoria.values()) {
+				facetas.put(categoria.getDescripcion(), porCategoria[categoria.ordinal()]);
+			}
+
+			int total = consulta.categoria() == null
+					? encontrados.cardinality()
+					: porCategoria[consulta.categoria().ordinal()];
+			List<Plato> resultado = new ArrayList<>(Math.min(total, consulta.limite()));
+			for (int pos = encontrados.nextSetBit(0); pos >= 0 && resultado.size() < consulta.limite();
+				 pos = encontrados.nextSetBit(pos + 1)) {
+				if (consulta.categoria() == null || categoriaPorPosicion[pos] == consulta.categoria().ordinal()) {
+					resultado.add(platos[pos]);
+				}
+			}
+			return new ResultadoBusqueda(total, facetas, resultado);
+		} finally {
+			bloqueo.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void platoCreado(Plato plato) {
+		platosCreados(List.of(plato));
+	}
+
+	@Override
+	public void platosCreados(Collection<Plato> nuevos) {
+		bloqueo.writeLock().lock();
+		try {
+			nuevos.forEach(this::indexar);
+		} finally {
+			bloqueo.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void platoActualizado(Plato plato) {
+		platosCreados(List.of(plato));
+	}
+
+	@Override
+	public void platoEliminado(int id) {
+		bloqueo.writeLock().lock();
+		try {
+			int pos = posiciones.remove(id);
+			if (pos >= 0) {
+				desindexar(pos);
+				cartas.values().forEach(carta -> carta.quitar(pos));
+				vivos.clear(pos);
+				platos[pos] = null;
+			}
+		} finally {
+			bloqueo.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void platoAnadidoACarta(String cif, Plato plato) {
+		cartaActualizada(cif, List.of(plato), List.of());
+	}
+
+	@Override
+	public void platoQuitadoDeCarta(String cif, int plato) {
+		cartaActualizada(cif, List.of(), List.of(plato));
+	}
+
+	@Override
+	public void cartaActualizada(String cif, Collection<Plato> anadidos, Collection<Integer> quitados) {
+		bloqueo.writeLock().lock();
+		try {
+			anadidos.forEach(plato -> anadirACarta(cif, plato.getId()));
+			Posiciones carta = cartas.get(cif);
+			if (carta != null) {
+				for (Integer id : quitados) {
+					int pos = posiciones.get(id);
+					if (pos >= 0) {
+						carta.quitar(pos);
+					}
+				}
+			}
+		} finally {
+			bloqueo.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void localEliminado(String cif) {
+		bloqueo.writeLock().lock();
+		try {
+			cartas.remove(cif);
+		} finally {
+			bloqueo.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Palabras en minusculas y sin tildes ni diacriticos: "Piña asada" y "pina ASADA" dan lo mismo.
+	 */
+	static List<String> tokens(String texto) {
+		if (texto == null || texto.isBlank()) {
+			return List.of();
+		}
+		String plano = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD))
+				.replaceAll("")
+				.toLowerCase(Locale.ROOT);
+		return SEPARADORES.splitAsStream(plano).filter(token -> !token.isEmpty()).distinct().toList();
+	}
+
+	private int[] contarPorCategoria(BitSet encontrados) {
+		int[] porCategoria = new int[Categoria.values().length];
+		int total = encontrados.cardinality();
+		if (total < ocupadas / 64) {
+			// Pocos resultados: es mas barato mirar la categoria de cada uno que cruzar bitsets del tamaño del catalogo
+			for (int pos = encontrados.nextSetBit(0); pos >= 0; pos = encontrados.nextSetBit(pos + 1)) {
+				porCategoria[categoriaPorPosicion[pos]]++;
+			}
+			return porCategoria;
+		}
+		for (Categoria categoria : Categoria.values()) {
+			BitSet enCategoria = (BitSet) encontrados.clone();
+			enCategoria.and(categorias.get(categoria));
+			porCategoria[categoria.ordinal()] = enCategoria.cardinality();
+		}
+		return porCategoria;
+	}
+
+	/**
+	 * Como {@link #restringir} para un bitset recien creado que se puede modificar sin copiarlo.
+	 */
+	private static BitSet cruzar(BitSet encontrados, BitSet nuevo) {
+		if (encontrados == null) {
+			return nuevo;
+		}
+		encontrados.and(nuevo);
+		return encontrados;
+	}
+
+	private static BitSet restringir(BitSet encontrados, BitSet filtro) {
+		if (encontrados == null) {
+			return (BitSet) filtro.clone();
+		}
+		encontrados.and(filtro);
+		return encontrados;
+	}
+
+	private BitSet conPrefijo(String prefijo) {
+		BitSet bits = new BitSet(ocupadas);
+		for (Posiciones posicionesTermino : terminos.subMap(prefijo, true, prefijo + Character.MAX_VALUE, false).values()) {
+			posicionesTermino.marcar(bits);
+		}
+		return bits;
+	}
+
+	private BitSet filtrarPorPrecio(BitSet encontrados, Double minPrecio, Double maxPrecio) {
+		double minimo = minPrecio == null ? Double.NEGATIVE_INFINITY : minPrecio;
+		double maximo = maxPrecio == null ? Double.POSITIVE_INFINITY : maxPrecio;
+		int desde = primeraPorPrecio(minimo, false);
+		int hasta = primeraPorPrecio(maximo, true);
+		if (encontrados != null && encontrados.cardinality() < hasta - desde) {
+			// Hay menos candidatos que platos en el rango: se comprueba el precio de cada candidato. Se recorren
+			// las palabras del bitset y se rehace cada una sin saltos, porque con precios al azar el salto falla
+			// casi siempre
+			long[] palabras = encontrados.toLongArray();
+			for (int i = 0; i < palabras.length; i++) {
+				long palabra = palabras[i];
+				long dentro = 0;
+				while (palabra != 0) {
+					int bit = Long.numberOfTrailingZeros(palabra);
+					double precio = precios[(i << 6) + bit];
+					long cumple = precio >= minimo & precio <= maximo ? 1L : 0L;
+					dentro |= cumple << bit;
+					palabra &= palabra - 1;
+				}
+				palabras[i] = dentro;
+			}
+			return BitSet.valueOf(palabras);
+		}
+		BitSet enRango = new BitSet(ocupadas);
+		for (int i = desde; i < hasta; i++) {
+			enRango.set(porPrecio[i]);
+		}
+		return cruzar(encontrados, enRango);
+	}
+
+	/**
+	 * Primer indice de {@link #porPrecio} con precio mayor o igual, o estrictamente mayor si se indica.
+	 */
+	private int primeraPorPrecio(double precio, boolean estrictamenteMayor) {
+		int desde = 0;
+		int hasta = totalPorPrecio;
+		while (desde < hasta) {
+			int medio = (desde + hasta) >>> 1;
+			double actual = precios[porPrecio[medio]];
+			if (actual < precio || (estrictamenteMayor && actual == precio)) {
+				desde = medio + 1;
+			} else {
+				hasta = medio;
+			}
+		}
+		return desde;
+	}
+
+	private int indicePorPrecio(int pos) {
+		int desde = 0;
+		int hasta = totalPorPrecio;
+		while (desde < hasta) {
+			int medio = (desde + hasta) >>> 1;
+			int otra = porPrecio[medio];
+			int comparacion = Double.compare(precios[otra], precios[pos]);
+			if (comparacion == 0) {
+				comparacion = Integer.compare(otra, pos);
+			}
+			if (comparacion < 0) {
+				desde = medio + 1;
+			} else {
+				hasta = medio;
+			}
+		}
+		return desde;
+	}
+
+	private void indexar(Plato plato) {
+		int pos = posiciones.get(plato.getId());
+		if (pos < 0) {
+			pos = ocupadas++;
+			if (pos == platos.length) {
+				platos = Arrays.copyOf(platos, pos * 2);
+				precios = Arrays.copyOf(precios, pos * 2);
+				categoriaPorPosicion = Arrays.copyOf(categoriaPorPosicion, pos * 2);
+				porPrecio = Arrays.copyOf(porPrecio, pos * 2);
+			}
+			posiciones.put(plato.getId(), pos);
+			vivos.set(pos);
+		} else {
+			desindexar(pos);
+		}
+
+		platos[pos] = plato;
+		precios[pos] = plato.getPrecio();
+		categoriaPorPosicion[pos] = (byte) plato.getCategoria().ordinal();
+		for (String token : tokens(plato.getNombre())) {
+			terminos.computeIfAbsent(token, t -> new Posiciones()).anadir(pos);
+		}
+		categorias.get(plato.getCategoria()).set(pos);
+		int indice = indicePorPrecio(pos);
+		System.arraycopy(porPrecio, indice, porPrecio, indice + 1, totalPorPrecio - indice);
+		porPrecio[indice] = pos;
+		totalPorPrecio++;
+	}
+
+	/**
+	 * Quita la posicion de los indices de nombre, categoria y precio con los valores que tenia el plato.
+	 */
+	private void desindexar(int pos) {
+		Plato anterior = platos[pos];
+		for (String token : tokens(anterior.getNombre())) {
+			Posiciones posicionesTermino = terminos.get(token);
+			if (posicionesTermino != null) {
+				posicionesTermino.quitar(pos);
+				if (posicionesTermino.isEmpty()) {
+					terminos.remove(token);
+				}
+			}
+		}
+		categorias.get(anterior.getCategoria()).clear(pos);
+		int indice = indicePorPrecio(pos);
+		if (indice < totalPorPrecio && porPrecio[indice] == pos) {
+			System.arraycopy(porPrecio, indice + 1, porPrecio, indice, totalPorPrecio - indice - 1);
+			totalPorPrecio--;
+		}
+	}
+
+	private void anadirACarta(String cif, int id) {
+		int pos = posiciones.get(id);
+		if (pos >= 0) {
+			cartas.computeIfAbsent(cif, c -> new Posiciones()).anadir(pos);
+		}
+	}
+
+	private void limpiar() {
+		posiciones.limpiar();
+		vivos.clear();
+		terminos.clear();
+		cartas.clear();
+		for (Categoria categoria : Categoria.values()) {
+			categorias.put(categoria, new BitSet());
+		}
+		platos = new Plato[1024];
+		precios = new double[1024];
+		categoriaPorPosicion = new byte[1024];
+		porPrecio = new int[1024];
+		ocupadas = 0;
+		totalPorPrecio = 0;
+	}
+
+	/**
+	 * Posiciones de una palabra o una carta. Mientras son pocas se guardan en una lista ordenada, porque un
+	 * bitset ocuparia tanto como el catalogo entero; cuando la lista ocuparia mas que el bitset se pasa a el,
+	 * y marcarlas es un OR palabra a palabra en lugar de un bit por posicion.
+	 */
+	private static final class Posiciones {
+
+		private static final int MINIMO_BITSET = 64;
+
+		private int[] valores = new int[2];
+		private int tamano;
+		private BitSet bits;
+
+		void anadir(int pos) {
+			if (bits != null) {
+				bits.set(pos);
+				return;
+			}
+			int indice = Arrays.binarySearch(valores, 0, tamano, pos);
+			if (indice >= 0) {
+				return;
+			}
+			indice = -indice - 1;
+			if (tamano == valores.length) {
+				valores = Arrays.copyOf(valores, tamano * 2);
+			}
+			System.arraycopy(valores, indice, valores, indice + 1, tamano - indice);
+			valores[indice] = pos;
+			tamano++;
+			if (tamano >= MINIMO_BITSET && (long) tamano * Integer.SIZE > valores[tamano - 1]) {
+				bits = new BitSet(valores[tamano - 1] + 1);
+				for (int i = 0; i < tamano; i++) {
+					bits.set(valores[i]);
+				}
+				valores = null;
+			}
+		}
+
+		void quitar(int pos) {
+			if (bits != null) {
+				bits.clear(pos);
+				return;
+			}
+			int indice = Arrays.binarySearch(valores, 0, tamano, pos);
+			if (indice >= 0) {
+				System.arraycopy(valores, indice + 1, valores, indice, tamano - indice - 1);
+				tamano--;
+			}
+		}
+
+		boolean isEmpty() {
+			return bits != null ? bits.isEmpty() : tamano == 0;
+		}
+
+		void marcar(BitSet destino) {
+			if (bits != null) {
+				destino.or(bits);
+				return;
+			}
+			for (int i = 0; i < tamano; i++) {
+				destino.set(valores[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package com.helloworld.babel.restaurant.servicios.cambios;
+
+import com.helloworld.babel.restaurant.model.ResultadoCambios;
+import com.helloworld.babel.restaurant.servicios.catalogo.OyenteCatalogo;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+public interface CambiosService {
+	/**
+	 * @param desde numero del ultimo cambio ya leido; sin el solo se devuelve el ultimo numero
+	 */
+	ResultadoCambios getCambios(Long desde, int limit);
+	/**
+	 * Como {@link #getCambios}, pero si no hay cambios espera al siguiente commit que los tenga, como mucho
+	 * restaurant.cambios.espera. Al acabar la espera se completa sin cambios.
+	 */
+	CompletableFuture<ResultadoCambios> esperarCambios(long desde, int limit);
+	/**
+	 * Guarda el evento en el registro dentro de la transaccion actual, que se confirma o deshace con el cambio.
+	 * Se numera despues del commit.
+	 */
+	void registrar(Consumer<OyenteCatalogo> evento);
+	/**
+	 * Tras un commit con cambios: los numera en segundo plano y despierta a quien los espera.
+	 */
+	void avisar();
+	/**
+	 * Numera los cambios ya confirmados que aun no tienen numero. Las lecturas del registro lo hacen antes de leer.
+	 */
+	void numerar();
+}
@@ -0,0 +1,210 @@
+package com.helloworld.babel.restaurant.servicios.cambios;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.helloworld.babel.restaurant.daos.cambios.CambiosDao;
+import com.helloworld.babel.restaurant.model.Cambio;
+import com.helloworld.babel.restaurant.model.Cambio.Tipo;
+import com.helloworld.babel.restaurant.model.Local;
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.ResultadoCambios;
+import com.helloworld.babel.restaurant.servicios.catalogo.OyenteCatalogo;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Registro de cambios del catalogo. Los cambios se leen de la primaria, nunca en una transaccion de solo lectura:
+ * el aviso llega con el commit y una replica aun no lo tendria. Las esperas solo se despiertan con los commits de
+ * esta instancia; con varias, las de las demas acaban con la espera y el cliente vuelve a preguntar.
+ * <p>
+ * Los cambios se numeran despues del commit, desde el hilo de avisos o desde quien lee el registro, para que las
+ * transacciones que los guardan no se esperen unas a otras.
+ */
+@Service
+public class CambiosServiceImpl implements CambiosService {
+
+	private final CambiosDao cambiosDao;
+	private final ObjectMapper objectMapper;
+	private final Duration espera;
+	private final TransactionTemplate numeracion;
+
+	private final Set<Espera> esperas = ConcurrentHashMap.newKeySet();
+	// Los avisos de varios commits seguidos se juntan en una sola lectura por cada numero esperado
+	private final AtomicBoolean avisoPendiente = new AtomicBoolean();
+	private final ExecutorService avisos = Executors.newSingleThreadExecutor(tarea -> {
+		Thread hilo = new Thread(tarea, "avisos-cambios");
+		hilo.setDaemon(true);
+		return hilo;
+	});
+
+	public CambiosServiceImpl(CambiosDao cambiosDao, ObjectMapper objectMapper,
+							  PlatformTransactionManager transactionManager,
+							  @Value("${restaurant.cambios.espera:30s}") Duration espera) {
+		this.cambiosDao = cambiosDao;
+		this.objectMapper = objectMapper;
+		this.numeracion = new TransactionTemplate(transactionManager);
+		this.espera = espera;
+	}
+
+	@Override
+	public ResultadoCambios getCambios(Long desde, int limit) {
+		numerar();
+		if (desde == null) {
+			return new ResultadoCambios(List.of(), cambiosDao.getUltimo());
+		}
+		return resultado(desde, leer(desde, limit));
+	}
+
+	@Override
+	public CompletableFuture<ResultadoCambios> esperarCambios(long desde, int limit) {
+		Espera pendiente = new Espera(desde, limit, new CompletableFuture<>());
+		// Se apunta antes de leer: un commit entre la lectura y el apunte tambien la despierta
+		esperas.add(pendiente);
+		pendiente.resultado().whenComplete((resultado, error) -> esperas.remove(pendiente));
+		numerar();
+		List<Cambio> cambios = leer(desde, limit);
+		if (!cambios.isEmpty()) {
+			pendiente.resultado().complete(resultado(desde, cambios));
+		} else {
+			pendiente.resultado().completeOnTimeout(resultado(desde, cambios), espera.toMillis(), TimeUnit.MILLISECONDS);
+		}
+		return pendiente.resultado();
+	}
+
+	@Override
+	public void registrar(Consumer<OyenteCatalogo> evento) {
+		Filas filas = new Filas();
+		evento.accept(filas);
+		if (!filas.cambios.isEmpty()) {
+			cambiosDao.registrar(filas.cambios);
+		}
+	}
+
+	@Override
+	public void avisar() {
+		if (!avisoPendiente.compareAndSet(false, true)) {
+			return;
+		}
+		avisos.execute(() -> {
+			// Antes de numerar: un commit durante la numeracion programa otra
+			avisoPendiente.set(false);
+			try {
+				numerar();
+				if (!esperas.isEmpty()) {
+					despertar();
+				}
+			} catch (RuntimeException e) {
+				// Lo pendiente se numera con el siguiente aviso o la siguiente lectura; las esperas siguen hasta
+				// entonces o hasta que se acaba su tiempo
+			}
+		});
+	}
+
+	@Override
+	public void numerar() {
+		numeracion.executeWithoutResult(estado -> cambiosDao.numerar());
+	}
+
+	private void despertar() {
+		Map<Long, List<Espera>> porNumero = esperas.stream().collect(Collectors.groupingBy(Espera::desde));
+		porNumero.forEach((desde, grupo) -> {
+			int limite = grupo.stream().mapToInt(Espera::limit).max().orElseThrow();
+			List<Cambio> cambios = leer(desde, limite);
+			if (!cambios.isEmpty()) {
+				grupo.forEach(pendiente -> pendiente.resultado().complete(
+						resultado(desde, cambios.subList(0, Math.min(pendiente.limit(), cambios.size())))));
+			}
+		});
+	}
+
+	private List<Cambio> leer(long desde, int limit) {
+		return cambiosDao.getCambios(desde, limit).stream().map(Cambio::fromCambioDAO).toList();
+	}
+
+	private static ResultadoCambios resultado(long desde, List<Cambio> cambios) {
+		return new ResultadoCambios(cambios, cambios.isEmpty() ? desde : cambios.get(cambios.size() - 1).getSeq());
+	}
+
+	@PreDestroy
+	public void cerrar() {
+		avisos.shutdownNow();
+	}
+
+	private record Espera(long desde, int limit, CompletableFuture<ResultadoCambios> resultado) {
+	}
+
+	/**
+	 * Convierte los eventos de una publicacion en filas del registro, que se guardan de una vez.
+	 */
+	private final class Filas implements OyenteCatalogo {
+
+		private final List<com.helloworld.babel.restaurant.daos.model.Cambio> cambios = new ArrayList<>();
+
+		private void anadir(Tipo tipo, Integer plato, String cif, Object datos) {
+			try {
+				String json = datos != null ? objectMapper.writeValueAsString(datos) : null;
+				cambios.add(new com.helloworld.babel.restaurant.daos.model.Cambio(0, tipo.name(), plato, cif, json));
+			} catch (JsonProcessingException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public void platoCreado(Plato plato) {
+			anadir(Tipo.PLATO_CREADO, plato.getId(), null, plato);
+		}
+
+		@Override
+		public void platoActualizado(Plato plato) {
+			anadir(Tipo.PLATO_ACTUALIZADO, plato.getId(), null, plato);
+		}
+
+		@Override
+		public void platoEliminado(int id) {
+			anadir(Tipo.PLATO_ELIMINADO, id, null, null);
+		}
+
+		@Override
+		public void platoAnadidoACarta(String cif, Plato plato) {
+			anadir(Tipo.PLATO_ANADIDO_A_CARTA, plato.getId(), cif, null);
+		}
+
+		@Override
+		public void platoQuitadoDeCarta(String cif, int plato) {
+			anadir(Tipo.PLATO_QUITADO_DE_CARTA, plato, cif, null);
+		}
+
+		@Override
+		public void localCreado(Local local) {
+			anadir(Tipo.LOCAL_CREADO, null, local.getCif(), local.toRestaurante());
+		}
+
+		@Override
+		public void localActualizado(Local local) {
+			anadir(Tipo.LOCAL_ACTUALIZADO, null, local.getCif(), local.toRestaurante());
+		}
+
+		@Override
+		public void localEliminado(String cif) {
+			anadir(Tipo.LOCAL_ELIMINADO, null, cif, null);
+		}
+	}
+}
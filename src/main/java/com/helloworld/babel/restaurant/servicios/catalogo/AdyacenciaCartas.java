@@ -0,0 +1,281 @@
+package com.helloworld.babel.restaurant.servicios.catalogo;
+
+import com.helloworld.babel.restaurant.daos.restaurantes.RestaurantesDao;
+import com.helloworld.babel.restaurant.model.Plato;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Relacion entre locales y platos en memoria, en los dos sentidos, para responder sin joins que platos tiene un
+ * local y en que locales se sirve un plato. Se construye al arrancar y se mantiene con los eventos del catalogo.
+ * <p>
+ * Cada CIF se guarda una vez y se identifica por un indice; cada plato tiene tambien un indice propio. Las listas
+ * son arrays de enteros ordenados: IDs de plato por local e indices de local por plato. Los indices de locales y
+ * platos eliminados no se reutilizan; {@link #reconstruir()} los compacta.
+ */
+@Component
+public class AdyacenciaCartas implements OyenteCatalogo, SmartInitializingSingleton {
+
+	private static final int[] VACIA = new int[0];
+
+	private final RestaurantesDao restaurantesDao;
+	private final ReadWriteLock bloqueo = new ReentrantReadWriteLock();
+
+	private final Map<String, Integer> indicePorCif = new HashMap<>();
+	private String[] cifs;
+	private int[][] platosPorLocal;
+	private int[] totalPlatosPorLocal;
+	private int locales;
+
+	private final MapaEnteros indicePorPlato = new MapaEnteros();
+	private int[][] localesPorPlato;
+	private int[] totalLocalesPorPlato;
+	private int platos;
+	private boolean construida;
+
+	public AdyacenciaCartas(RestaurantesDao restaurantesDao) {
+		this.restaurantesDao = restaurantesDao;
+		limpiar();
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		// Si una instantanea la cargo al arrancar ya esta al dia
+		if (!construida) {
+			reconstruir();
+		}
+	}
+
+	public void reconstruir() {
+		bloqueo.writeLock().lock();
+		try {
+			limpiar();
+			restaurantesDao.streamCartas(this::enlazar);
+			construida = true;
+		} finally {
+			bloqueo.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Como {@link #reconstruir()} con cartas que ya estan en memoria.
+	 */
+	public void cargar(Map<String, ? extends Collection<Plato>> cartas) {
+		bloqueo.writeLock().lock();
+		try {
+			limpiar();
+			cartas.forEach((cif, carta) -> carta.forEach(plato -> enlazar(cif, plato.getId())));
+			construida = true;
+		} finally {
+			bloqueo.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return los IDs de los platos de la carta del local, ordenados
+	 */
+	public int[] getPlatos(String cif) {
+		bloqueo.readLock().lock();
+		try {
+			Integer local = indicePorCif.get(cif);
+			if (local == null) {
+				return VACIA;
+			}
+			return Arrays.copyOf(platosPorLocal[local], totalPlatosPorLocal[local]);
+		} finally {
+			bloqueo.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return los CIF de los locales que tienen el plato en su carta, ordenados
+	 */
+	public List<String> getLocales(int plato) {
+		bloqueo.readLock().lock();
+		try {
+			int indice = indicePorPlato.get(plato);
+			if (indice < 0) {
+				return List.of();
+			}
+			String[] resultado = new String[totalLocalesPorPlato[indice]];
+			for (int i = 0; i < resultado.length; i++) {
+				resultado[i] = cifs[localesPorPlato[indice][i]];
+			}
+			Arrays.sort(resultado);
+			return Arrays.asList(resultado);
+		} finally {
+			bloqueo.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void platoAnadidoACarta(String cif, Plato plato) {
+		bloqueo.writeLock().lock();
+		try {
+			enlazar(cif, plato.getId());
+		} finally {
+			bloqueo.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void platoQuitadoDeCarta(String cif, int plato) {
+		bloqueo.writeLock().lock();
+		try {
+			desenlazar(cif, plato);
+		} finally {
+			bloqueo.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void cartaActualizada(String cif, Collection<Plato> anadidos, Collection<Integer> quitados) {
+		bloqueo.writeLock().lock();
+		try {
+			anadidos.forEach(plato -> enlazar(cif, plato.getId()));
+			quitados.forEach(plato -> desenlazar(cif, plato));
+		} finally {
+			bloqueo.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void localEliminado(String cif) {
+		bloqueo.writeLock().lock();
+		try {
+			Integer local = indicePorCif.remove(cif);
+			if (local == null) {
+				return;
+			}
+			for (int i = 0; i < totalPlatosPorLocal[local]; i++) {
+				int indice = indicePorPlato.get(platosPorLocal[local][i]);
+				totalLocalesPorPlato[indice] = quitar(localesPorPlato[indice], totalLocalesPorPlato[indice], local);
+			}
+			cifs[local] = null;
+			platosPorLocal[local] = VACIA;
+			totalPlatosPorLocal[local] = 0;
+		} finally {
+			bloqueo.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void platoEliminado(int id) {
+		bloqueo.writeLock().lock();
+		try {
+			int indice = indicePorPlato.remove(id);
+			if (indice < 0) {
+				return;
+			}
+			for (int i = 0; i < totalLocalesPorPlato[indice]; i++) {
+				int local = localesPorPlato[indice][i];
+				totalPlatosPorLocal[local] = quitar(platosPorLocal[local], totalPlatosPorLocal[local], id);
+			}
+			localesPorPlato[indice] = VACIA;
+			totalLocalesPorPlato[indice] = 0;
+		} finally {
+			bloqueo.writeLock().unlock();
+		}
+	}
+
+	private void enlazar(String cif, int plato) {
+		int local = indiceLocal(cif);
+		int indice = indicePlato(plato);
+		int total = totalPlatosPorLocal[local];
+		// La relacion es simetrica: si el plato no esta en la carta, el local tampoco esta en el plato
+		if (Arrays.binarySearch(platosPorLocal[local], 0, total, plato) >= 0) {
+			return;
+		}
+		platosPorLocal[local] = insertar(platosPorLocal[local], total, plato);
+		totalPlatosPorLocal[local]++;
+		localesPorPlato[indice] = insertar(localesPorPlato[indice], totalLocalesPorPlato[indice], local);
+		totalLocalesPorPlato[indice]++;
+	}
+
+	private void desenlazar(String cif, int plato) {
+		Integer local = indicePorCif.get(cif);
+		int indice = indicePorPlato.get(plato);
+		if (local == null || indice < 0) {
+			return;
+		}
+		int total = totalPlatosPorLocal[local];
+		totalPlatosPorLocal[local] = quitar(platosPorLocal[local], total, plato);
+		if (totalPlatosPorLocal[local] < total) {
+			totalLocalesPorPlato[indice] = quitar(localesPorPlato[indice], totalLocalesPorPlato[indice], local);
+		}
+	}
+
+	/**
+	 * Inserta el valor en su sitio de la lista ordenada, que debe no contenerlo, y devuelve la lista, que puede
+	 * ser un array nuevo si no cabia.
+	 */
+	private static int[] insertar(int[] lista, int total, int valor) {
+		int indice = -Arrays.binarySearch(lista, 0, total, valor) - 1;
+		int[] destino = total < lista.length ? lista : Arrays.copyOf(lista, Math.max(4, total * 2));
+		System.arraycopy(lista, indice, destino, indice + 1, total - indice);
+		destino[indice] = valor;
+		return destino;
+	}
+
+	/**
+	 * Quita el valor de la lista ordenada, si esta, y devuelve el nuevo total.
+	 */
+	private static int quitar(int[] lista, int total, int valor) {
+		int indice = Arrays.binarySearch(lista, 0, total, valor);
+		if (indice < 0) {
+			return total;
+		}
+		System.arraycopy(lista, indice + 1, lista, indice, total - indice - 1);
+		return total - 1;
+	}
+
+	private int indiceLocal(String cif) {
+		Integer local = indicePorCif.get(cif);
+		if (local != null) {
+			return local;
+		}
+		if (locales == cifs.length) {
+			cifs = Arrays.copyOf(cifs, locales * 2);
+			platosPorLocal = Arrays.copyOf(platosPorLocal, locales * 2);
+			totalPlatosPorLocal = Arrays.copyOf(totalPlatosPorLocal, locales * 2);
+		}
+		cifs[locales] = cif;
+		platosPorLocal[locales] = VACIA;
+		indicePorCif.put(cif, locales);
+		return locales++;
+	}
+
+	private int indicePlato(int plato) {
+		int indice = indicePorPlato.get(plato);
+		if (indice >= 0) {
+			return indice;
+		}
+		if (platos == localesPorPlato.length) {
+			localesPorPlato = Arrays.copyOf(localesPorPlato, platos * 2);
+			totalLocalesPorPlato = Arrays.copyOf(totalLocalesPorPlato, platos * 2);
+		}
+		localesPorPlato[platos] = VACIA;
+		indicePorPlato.put(plato, platos);
+		return platos++;
+	}
+
+	private void limpiar() {
+		indicePorCif.clear();
+		cifs = new String[16];
+		platosPorLocal = new int[16][];
+		totalPlatosPorLocal = new int[16];
+		locales = 0;
+		indicePorPlato.limpiar();
+		localesPorPlato = new int[16][];
+		totalLocalesPorPlato = new int[16];
+		platos = 0;
+	}
+}
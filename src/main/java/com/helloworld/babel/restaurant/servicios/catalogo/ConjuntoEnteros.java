@@ -0,0 +1,86 @@
+package com.helloworld.babel.restaurant.servicios.catalogo;
+
+import java.util.Arrays;
+
+/**
+ * Conjunto inmutable de enteros con direccionamiento abierto, sin objetos Integer.
+ */
+public final class ConjuntoEnteros {
+
+	private static final int LIBRE = Integer.MIN_VALUE;
+
+	public static final ConjuntoEnteros VACIO = new ConjuntoEnteros(new int[0]);
+
+	private final int[] tabla;
+	private final int mascara;
+	private final int size;
+
+	private ConjuntoEnteros(int[] valores) {
+		int capacidad = Integer.highestOneBit(Math.max(4, valores.length * 2 - 1)) << 1;
+		this.tabla = new int[capacidad];
+		this.mascara = capacidad - 1;
+		Arrays.fill(tabla, LIBRE);
+		int insertados = 0;
+		for (int valor : valores) {
+			if (insertar(valor)) {
+				insertados++;
+			}
+		}
+		this.size = insertados;
+	}
+
+	public static ConjuntoEnteros of(int... valores) {
+		return valores.length == 0 ? VACIO : new ConjuntoEnteros(valores);
+	}
+
+	public boolean contains(int valor) {
+		if (valor == LIBRE) {
+			return false;
+		}
+		for (int i = posicion(valor); ; i = (i + 1) & mascara) {
+			int actual = tabla[i];
+			if (actual == valor) {
+				return true;
+			}
+			if (actual == LIBRE) {
+				return false;
+			}
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int[] toArray() {
+		int[] valores = new int[size];
+		int n = 0;
+		for (int valor : tabla) {
+			if (valor != LIBRE) {
+				valores[n++] = valor;
+			}
+		}
+		return valores;
+	}
+
+	private boolean insertar(int valor) {
+		if (valor == LIBRE) {
+			throw new IllegalArgumentException("Valor no admitido: " + valor);
+		}
+		for (int i = posicion(valor); ; i = (i + 1) & mascara) {
+			int actual = tabla[i];
+			if (actual == valor) {
+				return false;
+			}
+			if (actual == LIBRE) {
+				tabla[i] = valor;
+				return true;
+			}
+		}
+	}
+
+	private int posicion(int valor) {
+		int h = valor * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mascara;
+	}
+}
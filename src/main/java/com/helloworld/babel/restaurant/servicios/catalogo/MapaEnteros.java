@@ -0,0 +1,104 @@
+package com.helloworld.babel.restaurant.servicios.catalogo;
+
+import java.util.Arrays;
+
+/**
+ * Mapa de enteros a enteros con direccionamiento abierto, sin objetos por entrada. No es seguro entre hilos.
+ */
+public final class MapaEnteros {
+
+	private static final int LIBRE = Integer.MIN_VALUE;
+
+	private int[] claves;
+	private int[] valores;
+	private int tamano;
+
+	public MapaEnteros() {
+		limpiar();
+	}
+
+	public void limpiar() {
+		claves = new int[16];
+		valores = new int[16];
+		Arrays.fill(claves, LIBRE);
+		tamano = 0;
+	}
+
+	public int size() {
+		return tamano;
+	}
+
+	/**
+	 * @return el valor de la clave o -1 si no esta
+	 */
+	public int get(int clave) {
+		int mascara = claves.length - 1;
+		for (int i = hash(clave) & mascara; ; i = (i + 1) & mascara) {
+			if (claves[i] == clave) {
+				return valores[i];
+			}
+			if (claves[i] == LIBRE) {
+				return -1;
+			}
+		}
+	}
+
+	public void put(int clave, int valor) {
+		if ((tamano + 1) * 2 > claves.length) {
+			redimensionar();
+		}
+		int mascara = claves.length - 1;
+		int i = hash(clave) & mascara;
+		while (claves[i] != LIBRE && claves[i] != clave) {
+			i = (i + 1) & mascara;
+		}
+		if (claves[i] == LIBRE) {
+			tamano++;
+		}
+		claves[i] = clave;
+		valores[i] = valor;
+	}
+
+	public int remove(int clave) {
+		int mascara = claves.length - 1;
+		int i = hash(clave) & mascara;
+		while (claves[i] != clave) {
+			if (claves[i] == LIBRE) {
+				return -1;
+			}
+			i = (i + 1) & mascara;
+		}
+		int valor = valores[i];
+		// Se desplazan hacia atras las claves siguientes para no dejar huecos en sus secuencias de sondeo
+		for (int j = (i + 1) & mascara; claves[j] != LIBRE; j = (j + 1) & mascara) {
+			int ideal = hash(claves[j]) & mascara;
+			if (((j - ideal) & mascara) >= ((j - i) & mascara)) {
+				claves[i] = claves[j];
+				valores[i] = valores[j];
+				i = j;
+			}
+		}
+		claves[i] = LIBRE;
+		tamano--;
+		return valor;
+	}
+
+	private void redimensionar() {
+		int[] clavesAnteriores = claves;
+		int[] valoresAnteriores = valores;
+		claves = new int[clavesAnteriores.length * 2];
+		valores = new int[clavesAnteriores.length * 2];
+		Arrays.fill(claves, LIBRE);
+		tamano = 0;
+		for (int i = 0; i < clavesAnteriores.length; i++) {
+			if (clavesAnteriores[i] != LIBRE) {
+				put(clavesAnteriores[i], valoresAnteriores[i]);
+			}
+		}
+	}
+
+	private static int hash(int clave) {
+		int h = clave * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
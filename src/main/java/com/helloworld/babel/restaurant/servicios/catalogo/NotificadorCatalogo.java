@@ -0,0 +1,39 @@
+package com.helloworld.babel.restaurant.servicios.catalogo;
+
+import com.helloworld.babel.restaurant.servicios.cambios.CambiosService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Consumer;
+
+@Component
+public class NotificadorCatalogo {
+
+	private final ObjectProvider<OyenteCatalogo> oyentes;
+	private final CambiosService cambios;
+
+	public NotificadorCatalogo(ObjectProvider<OyenteCatalogo> oyentes, CambiosService cambios) {
+		this.oyentes = oyentes;
+		this.cambios = cambios;
+	}
+
+	public void publicar(Consumer<OyenteCatalogo> evento) {
+		// El registro de cambios si va en la transaccion: se confirma o se deshace junto con el cambio
+		cambios.registrar(evento);
+		// Dentro de una transaccion se avisa tras el commit para no publicar cambios que se deshacen
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					oyentes.orderedStream().forEach(evento);
+					cambios.avisar();
+				}
+			});
+		} else {
+			oyentes.orderedStream().forEach(evento);
+			cambios.avisar();
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package com.helloworld.babel.restaurant.servicios.catalogo;
+
+import com.helloworld.babel.restaurant.model.Local;
+import com.helloworld.babel.restaurant.model.Plato;
+
+import java.util.Collection;
+
+/**
+ * Recibe los cambios del catalogo una vez confirmados en la base de datos.
+ */
+public interface OyenteCatalogo {
+
+	default void platoCreado(Plato plato) {
+	}
+
+	default void platosCreados(Collection<Plato> platos) {
+		platos.forEach(this::platoCreado);
+	}
+
+	default void platoActualizado(Plato plato) {
+	}
+
+	default void platoEliminado(int id) {
+	}
+
+	default void platoAnadidoACarta(String cif, Plato plato) {
+	}
+
+	default void platoQuitadoDeCarta(String cif, int plato) {
+	}
+
+	default void cartaActualizada(String cif, Collection<Plato> anadidos, Collection<Integer> quitados) {
+		anadidos.forEach(plato -> platoAnadidoACarta(cif, plato));
+		quitados.forEach(plato -> platoQuitadoDeCarta(cif, plato));
+	}
+
+	/**
+	 * Solo los datos del local: su carta llega con los eventos de la carta.
+	 */
+	default void localCreado(Local local) {
+	}
+
+	default void localesCreados(Collection<Local> locales) {
+		locales.forEach(this::localCreado);
+	}
+
+	default void localActualizado(Local local) {
+	}
+
+	default void localEliminado(String cif) {
+	}
+}
@@ -0,0 +1,88 @@
+package com.helloworld.babel.restaurant.servicios.estadisticas;
+
+import com.helloworld.babel.restaurant.model.EstadisticasCategoria;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Precios de un grupo de platos en centimos: numero, suma, histograma por tramos y los precios con su numero
+ * de platos, que permiten mantener el minimo y el maximo al quitar platos.
+ */
+final class AgregadoPrecios {
+
+	// Limite superior, excluido, de cada tramo salvo el ultimo
+	private static final long[] TRAMOS = {500, 1000, 1500, 2000, 3000, 5000};
+	private static final String[] ETIQUETAS = {"0-5", "5-10", "10-15", "15-20", "20-30", "30-50", "50+"};
+
+	private int platos;
+	private long suma;
+	private final int[] histograma = new int[ETIQUETAS.length];
+	private final TreeMap<Long, Integer> precios = new TreeMap<>();
+
+	void anadir(long centimos) {
+		platos++;
+		suma += centimos;
+		histograma[tramo(centimos)]++;
+		precios.merge(centimos, 1, Integer::sum);
+	}
+
+	void quitar(long centimos) {
+		platos--;
+		suma -= centimos;
+		histograma[tramo(centimos)]--;
+		precios.computeIfPresent(centimos, (precio, total) -> total == 1 ? null : total - 1);
+	}
+
+	int getPlatos() {
+		return platos;
+	}
+
+	EstadisticasCategoria toModel() {
+		Map<String, Integer> tramos = new LinkedHashMap<>();
+		for (int i = 0; i < ETIQUETAS.length; i++) {
+			tramos.put(ETIQUETAS[i], histograma[i]);
+		}
+		if (platos == 0) {
+			return new EstadisticasCategoria(0, null, null, null, tramos);
+		}
+		return new EstadisticasCategoria(
+				platos,
+				Math.round((double) suma / platos) / 100.0,
+				precios.firstKey() / 100.0,
+				precios.lastKey() / 100.0,
+				tramos);
+	}
+
+	static long centimos(double precio) {
+		return Math.round(precio * 100);
+	}
+
+	private static int tramo(long centimos) {
+		int tramo = 0;
+		while (tramo < TRAMOS.length && centimos >= TRAMOS[tramo]) {
+			tramo++;
+		}
+		return tramo;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof AgregadoPrecios otro)) {
+			return false;
+		}
+		return platos == otro.platos && suma == otro.suma
+				&& Arrays.equals(histograma, otro.histograma) && precios.equals(otro.precios);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(platos, suma, precios);
+	}
+}
@@ -0,0 +1,264 @@
+package com.helloworld.babel.restaurant.servicios.estadisticas;
+
+import com.helloworld.babel.restaurant.daos.restaurantes.RestaurantesDao;
+import com.helloworld.babel.restaurant.model.Estadisticas;
+import com.helloworld.babel.restaurant.model.EstadisticasCategoria;
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.Plato.Categoria;
+import com.helloworld.babel.restaurant.servicios.catalogo.OyenteCatalogo;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Estadisticas de precio por local y categoria, y de todas las cartas juntas, mantenidas con los eventos del
+ * catalogo para no recorrer las cartas en cada consulta. Aplicar un evento dos veces no cambia el resultado, asi
+ * que los eventos que llegan durante {@link #reconstruir()} no descuadran los agregados.
+ */
+@Component
+public class EstadisticasCatalogo implements OyenteCatalogo, SmartInitializingSingleton {
+
+	private final RestaurantesDao restaurantesDao;
+	private final ReadWriteLock bloqueo = new ReentrantReadWriteLock();
+	private Estado estado = new Estado();
+	private boolean construidas;
+
+	public EstadisticasCatalogo(RestaurantesDao restaurantesDao) {
+		this.restaurantesDao = restaurantesDao;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		// Si una instantanea las cargo al arrancar ya estan al dia
+		if (!construidas) {
+			reconstruir();
+		}
+	}
+
+	/**
+	 * Vuelve a calcular los agregados desde la base de datos y los sustituye.
+	 *
+	 * @return true si coincidian con los mantenidos por los eventos
+	 */
+	public boolean reconstruir() {
+		bloqueo.writeLock().lock();
+		try {
+			Estado nuevo = new Estado();
+			restaurantesDao.streamRestaurantesConPlatos((cif, nombre, direccion, telefono) -> cif, Plato::fromFila,
+					(cif, carta) -> carta.forEach(plato -> nuevo.enlazar(cif, plato)));
+			boolean coinciden = nuevo.coincide(estado);
+			estado = nuevo;
+			construidas = true;
+			return coinciden;
+		} finally {
+			bloqueo.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Sustituye los agregados por los de cartas que ya estan en memoria.
+	 */
+	public void cargar(Map<String, ? extends Collection<Plato>> cartas) {
+		Estado nuevo = new Estado();
+		cartas.forEach((cif, carta) -> carta.forEach(plato -> nuevo.enlazar(cif, plato)));
+		bloqueo.writeLock().lock();
+		try {
+			estado = nuevo;
+			construidas = true;
+		} finally {
+			bloqueo.writeLock().unlock();
+		}
+	}
+
+	public Estadisticas getEstadisticas() {
+		bloqueo.readLock().lock();
+		try {
+			return toModel(null, estado.cartas.size(), estado.global);
+		} finally {
+			bloqueo.readLock().unlock();
+		}
+	}
+
+	public Estadisticas getEstadisticas(String cif) {
+		bloqueo.readLock().lock();
+		try {
+			Carta carta = estado.cartas.get(cif);
+			return toModel(cif, null, carta == null ? Estado.agregados() : carta.porCategoria);
+		} finally {
+			bloqueo.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void platoAnadidoACarta(String cif, Plato plato) {
+		bloqueo.writeLock().lock();
+		try {
+			estado.enlazar(cif, plato);
+		} finally {
+			bloqueo.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void platoQuitadoDeCarta(String cif, int plato) {
+		bloqueo.writeLock().lock();
+		try {
+			estado.desenlazar(cif, plato);
+		} finally {
+			bloqueo.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void platoActualizado(Plato plato) {
+		bloqueo.writeLock().lock();
+		try {
+			estado.actualizar(plato);
+		} finally {
+			bloqueo.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void platoEliminado(int id) {
+		bloqueo.writeLock().lock();
+		try {
+			estado.eliminarPlato(id);
+		} finally {
+			bloqueo.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void localEliminado(String cif) {
+		bloqueo.writeLock().lock();
+		try {
+			estado.eliminarLocal(cif);
+		} finally {
+			bloqueo.writeLock().unlock();
+		}
+	}
+
+	private static Estadisticas toModel(String cif, Integer locales, AgregadoPrecios[] agregados) {
+		Map<String, EstadisticasCategoria> categorias = new LinkedHashMap<>();
+		int platos = 0;
+		for (Categoria categoria : Categoria.values()) {
+			AgregadoPrecios agregado = agregados[categoria.ordinal()];
+			categorias.put(categoria.getDescripcion(), agregado.toModel());
+			platos += agregado.getPlatos();
+		}
+		return new Estadisticas(cif, locales, platos, categorias);
+	}
+
+	/**
+	 * Relacion entre cartas y platos con el precio y la categoria con que cuenta cada plato en los agregados.
+	 */
+	private static final class Estado {
+
+		private final Map<String, Carta> cartas = new HashMap<>();
+		private final Map<Integer, PlatoEnCartas> platos = new HashMap<>();
+		private final AgregadoPrecios[] global = agregados();
+
+		static AgregadoPrecios[] agregados() {
+			AgregadoPrecios[] agregados = new AgregadoPrecios[Categoria.values().length];
+			for (int i = 0; i < agregados.length; i++) {
+				agregados[i] = new AgregadoPrecios();
+			}
+			return agregados;
+		}
+
+		void enlazar(String cif, Plato plato) {
+			PlatoEnCartas enCartas = platos.computeIfAbsent(plato.getId(),
+					id -> new PlatoEnCartas(AgregadoPrecios.centimos(plato.getPrecio()), plato.getCategoria()));
+			if (!enCartas.locales.add(cif)) {
+				return;
+			}
+			Carta carta = cartas.computeIfAbsent(cif, c -> new Carta());
+			carta.platos.add(plato.getId());
+			carta.porCategoria[enCartas.categoria.ordinal()].anadir(enCartas.centimos);
+			global[enCartas.categoria.ordinal()].anadir(enCartas.centimos);
+		}
+
+		void desenlazar(String cif, int plato) {
+			PlatoEnCartas enCartas = platos.get(plato);
+			if (enCartas == null || !enCartas.locales.remove(cif)) {
+				return;
+			}
+			Carta carta = cartas.get(cif);
+			carta.platos.remove(plato);
+			carta.porCategoria[enCartas.categoria.ordinal()].quitar(enCartas.centimos);
+			global[enCartas.categoria.ordinal()].quitar(enCartas.centimos);
+			if (enCartas.locales.isEmpty()) {
+				platos.remove(plato);
+			}
+			if (carta.platos.isEmpty()) {
+				cartas.remove(cif);
+			}
+		}
+
+		void actualizar(Plato plato) {
+			PlatoEnCartas enCartas = platos.get(plato.getId());
+			if (enCartas == null) {
+				return;
+			}
+			long centimos = AgregadoPrecios.centimos(plato.getPrecio());
+			for (String cif : enCartas.locales) {
+				AgregadoPrecios[] porCategoria = cartas.get(cif).porCategoria;
+				porCategoria[enCartas.categoria.ordinal()].quitar(enCartas.centimos);
+				porCategoria[plato.getCategoria().ordinal()].anadir(centimos);
+				global[enCartas.categoria.ordinal()].quitar(enCartas.centimos);
+				global[plato.getCategoria().ordinal()].anadir(centimos);
+			}
+			enCartas.centimos = centimos;
+			enCartas.categoria = plato.getCategoria();
+		}
+
+		void eliminarPlato(int plato) {
+			PlatoEnCartas enCartas = platos.get(plato);
+			if (enCartas != null) {
+				new ArrayList<>(enCartas.locales).forEach(cif -> desenlazar(cif, plato));
+			}
+		}
+
+		void eliminarLocal(String cif) {
+			Carta carta = cartas.get(cif);
+			if (carta != null) {
+				new ArrayList<>(carta.platos).forEach(plato -> desenlazar(cif, plato));
+			}
+		}
+
+		boolean coincide(Estado otro) {
+			if (!Arrays.equals(global, otro.global) || !cartas.keySet().equals(otro.cartas.keySet())) {
+				return false;
+			}
+			return cartas.entrySet().stream().allMatch(entrada ->
+					Arrays.equals(entrada.getValue().porCategoria, otro.cartas.get(entrada.getKey()).porCategoria));
+		}
+	}
+
+	private static final class Carta {
+		private final Set<Integer> platos = new HashSet<>();
+		private final AgregadoPrecios[] porCategoria = Estado.agregados();
+	}
+
+	private static final class PlatoEnCartas {
+		private final Set<String> locales = new HashSet<>();
+		private long centimos;
+		private Categoria categoria;
+
+		PlatoEnCartas(long centimos, Categoria categoria) {
+			this.centimos = centimos;
+			this.categoria = categoria;
+		}
+	}
+}
@@ -0,0 +1,12 @@
+package com.helloworld.babel.restaurant.servicios.estadisticas;
+
+import com.helloworld.babel.restaurant.model.Estadisticas;
+
+public interface EstadisticasService {
+	Estadisticas getEstadisticas();
+	Estadisticas getEstadisticasLocal(String cif);
+	/**
+	 * @return true si los agregados mantenidos coincidian con los calculados desde la base de datos
+	 */
+	boolean reconstruirEstadisticas();
+}
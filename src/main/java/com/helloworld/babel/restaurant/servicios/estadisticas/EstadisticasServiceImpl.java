@@ -0,0 +1,37 @@
+package com.helloworld.babel.restaurant.servicios.estadisticas;
+
+import com.helloworld.babel.restaurant.daos.restaurantes.RestaurantesDao;
+import com.helloworld.babel.restaurant.model.Estadisticas;
+import com.helloworld.babel.restaurant.servicios.exceptions.NotFoundException;
+import org.springframework.stereotype.Service;
+
+@Service
+public class EstadisticasServiceImpl implements EstadisticasService {
+
+	private final EstadisticasCatalogo estadisticas;
+	private final RestaurantesDao restaurantesDao;
+
+	public EstadisticasServiceImpl(EstadisticasCatalogo estadisticas, RestaurantesDao restaurantesDao) {
+		this.estadisticas = estadisticas;
+		this.restaurantesDao = restaurantesDao;
+	}
+
+	@Override
+	public Estadisticas getEstadisticas() {
+		return estadisticas.getEstadisticas();
+	}
+
+	@Override
+	public Estadisticas getEstadisticasLocal(String cif) {
+		// Un local sin platos no aparece en los agregados: se comprueba que existe
+		if (restaurantesDao.getVersion(cif).isEmpty()) {
+			throw new NotFoundException("Local no encontrado");
+		}
+		return estadisticas.getEstadisticas(cif);
+	}
+
+	@Override
+	public boolean reconstruirEstadisticas() {
+		return estadisticas.reconstruir();
+	}
+}
@@ -0,0 +1,10 @@
+package com.helloworld.babel.restaurant.servicios.exceptions;
+
+/**
+ * El recurso existe pero ya no esta en la version con la que se pidio el cambio.
+ */
+public class ConflictoVersionException extends RuntimeException {
+	public ConflictoVersionException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,11 @@
+package com.helloworld.babel.restaurant.servicios.importacion;
+
+import com.helloworld.babel.restaurant.model.ResultadoImportacion;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface ImportacionService {
+	ResultadoImportacion<Long> importarPlatos(InputStream entrada) throws IOException;
+	ResultadoImportacion<String> importarLocales(InputStream entrada) throws IOException;
+}
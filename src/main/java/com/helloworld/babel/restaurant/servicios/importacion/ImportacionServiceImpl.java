@@ -0,0 +1,217 @@
+package com.helloworld.babel.restaurant.servicios.importacion;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.helloworld.babel.restaurant.daos.model.Restaurante;
+import com.helloworld.babel.restaurant.daos.platos.PlatosDao;
+import com.helloworld.babel.restaurant.daos.restaurantes.RestaurantesDao;
+import com.helloworld.babel.restaurant.metricas.MetricasMapeo;
+import com.helloworld.babel.restaurant.model.Local;
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.ResultadoImportacion;
+import com.helloworld.babel.restaurant.model.ResultadoImportacion.ErrorImportacion;
+import com.helloworld.babel.restaurant.servicios.catalogo.NotificadorCatalogo;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class ImportacionServiceImpl implements ImportacionService {
+
+	private final PlatosDao platosDao;
+	private final RestaurantesDao restaurantesDao;
+	private final ObjectMapper objectMapper;
+	private final ObjectReader lectorFilas;
+	private final TransactionTemplate transactionTemplate;
+	private final NotificadorCatalogo notificador;
+	private final Validator validator;
+	private final MetricasMapeo mapeo;
+	private final int tamanoLote;
+
+	public ImportacionServiceImpl(PlatosDao platosDao, RestaurantesDao restaurantesDao, ObjectMapper objectMapper,
+								  TransactionTemplate transactionTemplate, NotificadorCatalogo notificador, Validator validator,
+								  MetricasMapeo mapeo, @Value("${restaurant.importacion.tamano-lote:500}") int tamanoLote) {
+		this.platosDao = platosDao;
+		this.restaurantesDao = restaurantesDao;
+		this.objectMapper = objectMapper;
+		this.lectorFilas = objectMapper.readerFor(JsonNode.class);
+		this.transactionTemplate = transactionTemplate;
+		this.notificador = notificador;
+		this.validator = validator;
+		this.mapeo = mapeo;
+		this.tamanoLote = tamanoLote;
+	}
+
+	@Override
+	public ResultadoImportacion<Long> importarPlatos(InputStream entrada) throws IOException {
+		Importacion<Plato, com.helloworld.babel.restaurant.daos.model.Plato, Long> importacion = new Importacion<>(
+				Plato.class,
+				this::validar,
+				Plato::toPlatoDAO,
+				this::crearPlatos,
+				plato -> crearPlatos(List.of(plato)).get(0));
+		return importacion.ejecutar(entrada);
+	}
+
+	@Override
+	public ResultadoImportacion<String> importarLocales(InputStream entrada) throws IOException {
+		Set<String> cifs = new HashSet<>();
+		Importacion<Local, Restaurante, String> importacion = new Importacion<>(
+				Local.class,
+				local -> validarLocal(local, cifs),
+				Local::toRestaurante,
+				restaurantes -> {
+					restaurantesDao.createRestaurantes(restaurantes);
+					List<Local> creados = mapeo.locales(() -> restaurantes.stream().map(Local::fromRestaurante).toList());
+					notificador.publicar(oyente -> oyente.localesCreados(creados));
+					return restaurantes.stream().map(Restaurante::cif).toList();
+				},
+				restaurante -> {
+					restaurantesDao.createRestaurante(restaurante);
+					notificador.publicar(oyente -> oyente.localCreado(Local.fromRestaurante(restaurante)));
+					return restaurante.cif();
+				});
+		return importacion.ejecutar(entrada);
+	}
+
+	private List<Long> crearPlatos(List<com.helloworld.babel.restaurant.daos.model.Plato> platos) {
+		List<Long> ids = platosDao.createPlatos(platos);
+		List<Plato> creados = mapeo.platos(() -> {
+			List<Plato> modelo = new ArrayList<>(ids.size());
+			for (int i = 0; i < ids.size(); i++) {
+				com.helloworld.babel.restaurant.daos.model.Plato plato = platos.get(i);
+				modelo.add(Plato.fromPlatoDAO(new com.helloworld.babel.restaurant.daos.model.Plato(
+						ids.get(i).intValue(), plato.nombre(), plato.precio(), plato.categoria())));
+			}
+			return modelo;
+		});
+		// Dentro del lote se publica tras el commit; si el lote se deshace no se publica nada
+		notificador.publicar(oyente -> oyente.platosCreados(creados));
+		return ids;
+	}
+
+	/**
+	 * Comprueba las restricciones del modelo.
+	 * @return los mensajes de las que no se cumplen, o null si se cumplen todas
+	 */
+	private String validar(Object fila) {
+		Set<? extends ConstraintViolation<?>> errores = validator.validate(fila);
+		if (errores.isEmpty()) {
+			return null;
+		}
+		// Ordenados: el conjunto no tiene orden y la respuesta debe ser la misma para la misma fila
+		return errores.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; "));
+	}
+
+	private String validarLocal(Local local, Set<String> cifs) {
+		String error = validar(local);
+		if (error != null) {
+			return error;
+		}
+		if (!cifs.add(local.getCif())) {
+			return "CIF repetido en la importación: " + local.getCif();
+		}
+		return null;
+	}
+
+	/**
+	 * Lee las filas de una en una y las inserta en lotes. Si un lote falla se deshace
+	 * y se reintenta fila a fila para localizar las filas erroneas.
+	 */
+	private class Importacion<T, D, K> {
+
+		private final Class<T> tipo;
+		private final Function<T, String> validar;
+		private final Function<T, D> convertir;
+		private final Function<List<D>, List<K>> insertarLote;
+		private final Function<D, K> insertarFila;
+
+		private final List<K> ids = new ArrayList<>();
+		private final List<ErrorImportacion> errores = new ArrayList<>();
+		private final List<D> lote = new ArrayList<>();
+		private final List<Integer> filasLote = new ArrayList<>();
+
+		Importacion(Class<T> tipo, Function<T, String> validar, Function<T, D> convertir,
+					Function<List<D>, List<K>> insertarLote, Function<D, K> insertarFila) {
+			this.tipo = tipo;
+			this.validar = validar;
+			this.convertir = convertir;
+			this.insertarLote = insertarLote;
+			this.insertarFila = insertarFila;
+		}
+
+		ResultadoImportacion<K> ejecutar(InputStream entrada) throws IOException {
+			try (MappingIterator<JsonNode> filas = lectorFilas.readValues(entrada)) {
+				while (filas.hasNextValue()) {
+					leerFila(filas.nextValue());
+					if (lote.size() >= tamanoLote) {
+						volcar();
+					}
+				}
+			} catch (JsonProcessingException e) {
+				// Con el JSON roto no se puede seguir leyendo; lo ya leido se inserta igualmente
+				errores.add(new ErrorImportacion(ids.size(), "JSON mal formado: " + e.getOriginalMessage()));
+			}
+			volcar();
+			errores.sort(Comparator.comparingInt(ErrorImportacion::getFila));
+			return new ResultadoImportacion<>(ids, errores);
+		}
+
+		private void leerFila(JsonNode nodo) {
+			int fila = ids.size();
+			ids.add(null);
+			try {
+				T valor = objectMapper.treeToValue(nodo, tipo);
+				String error = valor == null ? "Fila vacía" : validar.apply(valor);
+				if (error != null) {
+					errores.add(new ErrorImportacion(fila, error));
+				} else {
+					lote.add(convertir.apply(valor));
+					filasLote.add(fila);
+				}
+			} catch (JsonProcessingException | IllegalArgumentException e) {
+				errores.add(new ErrorImportacion(fila, "Fila no válida: " + e.getMessage()));
+			}
+		}
+
+		private void volcar() {
+			if (lote.isEmpty()) {
+				return;
+			}
+			try {
+				List<K> claves = transactionTemplate.execute(status -> insertarLote.apply(lote));
+				for (int i = 0; i < claves.size(); i++) {
+					ids.set(filasLote.get(i), claves.get(i));
+				}
+			} catch (DataAccessException e) {
+				for (int i = 0; i < lote.size(); i++) {
+					try {
+						// Cada fila en su transaccion, con su entrada en el registro de cambios
+						D fila = lote.get(i);
+						ids.set(filasLote.get(i), transactionTemplate.execute(status -> insertarFila.apply(fila)));
+					} catch (DataAccessException ex) {
+						errores.add(new ErrorImportacion(filasLote.get(i), ex.getMostSpecificCause().getMessage()));
+					}
+				}
+			}
+			lote.clear();
+			filasLote.clear();
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package com.helloworld.babel.restaurant.servicios.instantanea;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Con restaurant.instantanea.cargar el catalogo se carga de ese fichero al arrancar, despues de schema.sql y
+ * data.sql y antes de atender peticiones. Si el fichero no se puede leer la aplicacion no arranca: seguir con el
+ * catalogo de data.sql pasaria por bueno un catalogo distinto. Los modelos de lectura se construyen con las filas
+ * del fichero y no se vuelven a leer de la base de datos al terminar el arranque.
+ */
+@Component
+@ConditionalOnProperty("restaurant.instantanea.cargar")
+@DependsOnDatabaseInitialization
+public class CargaInstantanea implements InitializingBean {
+
+	private final InstantaneaService instantaneaService;
+	private final Path fichero;
+
+	public CargaInstantanea(InstantaneaService instantaneaService,
+							@Value("${restaurant.instantanea.cargar}") Path fichero) {
+		this.instantaneaService = instantaneaService;
+		this.fichero = fichero;
+	}
+
+	@Override
+	public void afterPropertiesSet() throws IOException {
+		instantaneaService.cargar(fichero);
+	}
+}
@@ -0,0 +1,199 @@
+package com.helloworld.babel.restaurant.servicios.instantanea;
+
+import com.helloworld.babel.restaurant.daos.model.Instantanea;
+import com.helloworld.babel.restaurant.daos.model.Instantanea.FilaLocal;
+import com.helloworld.babel.restaurant.daos.model.Instantanea.FilaPlato;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Fichero binario con una instantanea del catalogo. Salvo la cabecera y el CRC, los enteros son varints sin signo:
+ * 7 bits por byte, con el bit alto a 1 si sigue otro byte.
+ * <pre>
+ * int 'RCAT', short formato, varint ultimo cambio
+ * diccionario: varint n, n x (varint bytes, UTF-8)
+ * platos:  varint n, n x (varint id - id anterior, varint nombre, varint centimos, byte categoria, varint version)
+ * locales: varint n, n x (varint cif, varint nombre, varint direccion, varint telefono, varint version,
+ *          varint platos, platos x varint id - id anterior)
+ * int CRC32 de todo lo anterior
+ * </pre>
+ * Los textos se guardan una vez en el diccionario y se referencian por su posicion: se repiten nombres de plato,
+ * calles y telefonos, y cada CIF ocupa un varint en lugar de sus 9 caracteres.
+ */
+public final class FormatoInstantanea {
+
+	static final int MAGIA = 0x52434154;
+	static final short FORMATO = 1;
+
+	private FormatoInstantanea() {
+	}
+
+	/**
+	 * @return el tamano del fichero en bytes
+	 */
+	public static long escribir(Instantanea instantanea, Path fichero) throws IOException {
+		Map<String, Integer> diccionario = new LinkedHashMap<>();
+		for (FilaPlato plato : instantanea.platos()) {
+			indice(diccionario, plato.nombre());
+		}
+		for (FilaLocal local : instantanea.locales()) {
+			indice(diccionario, local.cif());
+			indice(diccionario, local.nombre());
+			indice(diccionario, local.direccion());
+			indice(diccionario, local.telefono());
+		}
+
+		try (OutputStream bytes = new BufferedOutputStream(Files.newOutputStream(fichero), 1 << 16)) {
+			CheckedOutputStream conCrc = new CheckedOutputStream(bytes, new CRC32());
+			DataOutputStream salida = new DataOutputStream(conCrc);
+			salida.writeInt(MAGIA);
+			salida.writeShort(FORMATO);
+			varint(salida, instantanea.ultimoCambio());
+
+			varint(salida, diccionario.size());
+			for (String texto : diccionario.keySet()) {
+				byte[] utf8 = texto.getBytes(StandardCharsets.UTF_8);
+				varint(salida, utf8.length);
+				salida.write(utf8);
+			}
+
+			varint(salida, instantanea.platos().size());
+			long anterior = 0;
+			for (FilaPlato plato : instantanea.platos()) {
+				varint(salida, plato.id() - anterior);
+				anterior = plato.id();
+				varint(salida, diccionario.get(plato.nombre()));
+				varint(salida, plato.centimos());
+				salida.write(plato.categoria());
+				varint(salida, plato.version());
+			}
+
+			varint(salida, instantanea.locales().size());
+			for (FilaLocal local : instantanea.locales()) {
+				varint(salida, diccionario.get(local.cif()));
+				varint(salida, diccionario.get(local.nombre()));
+				varint(salida, diccionario.get(local.direccion()));
+				varint(salida, diccionario.get(local.telefono()));
+				varint(salida, local.version());
+				varint(salida, local.carta().length);
+				long platoAnterior = 0;
+				for (int plato : local.carta()) {
+					varint(salida, plato - platoAnterior);
+					platoAnterior = plato;
+				}
+			}
+			// El CRC no pasa por el flujo que lo calcula
+			new DataOutputStream(bytes).writeInt((int) conCrc.getChecksum().getValue());
+		}
+		return Files.size(fichero);
+	}
+
+	/**
+	 * Lee el fichero proyectado en memoria, sin copiarlo antes a un buffer propio.
+	 */
+	public static Instantanea leer(Path fichero) throws IOException {
+		try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.READ)) {
+			long tamano = canal.size();
+			if (tamano < 10 || tamano > Integer.MAX_VALUE) {
+				throw new IOException("No es una instantanea del catalogo: " + fichero);
+			}
+			MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamano);
+			int contenido = (int) tamano - Integer.BYTES;
+			if (buffer.getInt(0) != MAGIA) {
+				throw new IOException("No es una instantanea del catalogo: " + fichero);
+			}
+			if (buffer.getShort(Integer.BYTES) != FORMATO) {
+				throw new IOException("Formato de instantanea no soportado: " + buffer.getShort(Integer.BYTES));
+			}
+			CRC32 crc = new CRC32();
+			crc.update(buffer.slice(0, contenido));
+			if ((int) crc.getValue() != buffer.getInt(contenido)) {
+				throw new IOException("Instantanea danada, el CRC no coincide: " + fichero);
+			}
+			buffer.position(Integer.BYTES + Short.BYTES);
+			return decodificar(buffer);
+		}
+	}
+
+	private static Instantanea decodificar(ByteBuffer buffer) {
+		long ultimoCambio = varint(buffer);
+
+		String[] diccionario = new String[(int) varint(buffer)];
+		byte[] utf8 = new byte[64];
+		for (int i = 0; i < diccionario.length; i++) {
+			int longitud = (int) varint(buffer);
+			if (longitud > utf8.length) {
+				utf8 = new byte[Math.max(longitud, utf8.length * 2)];
+			}
+			buffer.get(utf8, 0, longitud);
+			diccionario[i] = new String(utf8, 0, longitud, StandardCharsets.UTF_8);
+		}
+
+		int totalPlatos = (int) varint(buffer);
+		List<FilaPlato> platos = new ArrayList<>(totalPlatos);
+		long id = 0;
+		for (int i = 0; i < totalPlatos; i++) {
+			id += varint(buffer);
+			platos.add(new FilaPlato((int) id, diccionario[(int) varint(buffer)], varint(buffer),
+					buffer.get(), varint(buffer)));
+		}
+
+		int totalLocales = (int) varint(buffer);
+		List<FilaLocal> locales = new ArrayList<>(totalLocales);
+		for (int i = 0; i < totalLocales; i++) {
+			String cif = diccionario[(int) varint(buffer)];
+			String nombre = diccionario[(int) varint(buffer)];
+			String direccion = diccionario[(int) varint(buffer)];
+			String telefono = diccionario[(int) varint(buffer)];
+			long version = varint(buffer);
+			int[] carta = new int[(int) varint(buffer)];
+			long plato = 0;
+			for (int j = 0; j < carta.length; j++) {
+				plato += varint(buffer);
+				carta[j] = (int) plato;
+			}
+			locales.add(new FilaLocal(cif, nombre, direccion, telefono, version, carta));
+		}
+		return new Instantanea(ultimoCambio, platos, locales);
+	}
+
+	private static void indice(Map<String, Integer> diccionario, String texto) {
+		diccionario.putIfAbsent(texto, diccionario.size());
+	}
+
+	private static void varint(OutputStream salida, long valor) throws IOException {
+		while ((valor & ~0x7FL) != 0) {
+			salida.write((int) (valor & 0x7F) | 0x80);
+			valor >>>= 7;
+		}
+		salida.write((int) valor);
+	}
+
+	private static long varint(ByteBuffer buffer) {
+		long valor = 0;
+		int desplazamiento = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			valor |= (long) (b & 0x7F) << desplazamiento;
+			desplazamiento += 7;
+		} while (b < 0);
+		return valor;
+	}
+}
@@ -0,0 +1,18 @@
+package com.helloworld.babel.restaurant.servicios.instantanea;
+
+import com.helloworld.babel.restaurant.model.ResumenInstantanea;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public interface InstantaneaService {
+	/**
+	 * Escribe el catalogo en el fichero configurado en restaurant.instantanea.fichero.
+	 */
+	ResumenInstantanea exportar() throws IOException;
+	/**
+	 * Sustituye el catalogo por el del fichero y construye las caches y los modelos de lectura con el. El registro de
+	 * cambios se vacia.
+	 */
+	ResumenInstantanea cargar(Path fichero) throws IOException;
+}
@@ -0,0 +1,125 @@
+package com.helloworld.babel.restaurant.servicios.instantanea;
+
+import com.helloworld.babel.restaurant.daos.instantanea.InstantaneaDao;
+import com.helloworld.babel.restaurant.daos.model.Instantanea;
+import com.helloworld.babel.restaurant.daos.model.Instantanea.FilaLocal;
+import com.helloworld.babel.restaurant.daos.model.Instantanea.FilaPlato;
+import com.helloworld.babel.restaurant.daos.platos.CachedPlatosDao;
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.ResumenInstantanea;
+import com.helloworld.babel.restaurant.servicios.busqueda.IndicePlatos;
+import com.helloworld.babel.restaurant.servicios.cambios.CambiosService;
+import com.helloworld.babel.restaurant.servicios.catalogo.AdyacenciaCartas;
+import com.helloworld.babel.restaurant.servicios.estadisticas.EstadisticasCatalogo;
+import com.helloworld.babel.restaurant.servicios.locales.CartasCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class InstantaneaServiceImpl implements InstantaneaService {
+
+	private final InstantaneaDao instantaneaDao;
+	private final CachedPlatosDao platosDao;
+	private final CartasCache cartasCache;
+	private final AdyacenciaCartas adyacencia;
+	private final IndicePlatos indice;
+	private final EstadisticasCatalogo estadisticas;
+	private final CambiosService cambios;
+	private final TransactionTemplate lectura;
+	private final TransactionTemplate escritura;
+	private final Path fichero;
+
+	public InstantaneaServiceImpl(InstantaneaDao instantaneaDao,
+								  CachedPlatosDao platosDao,
+								  CartasCache cartasCache,
+								  AdyacenciaCartas adyacencia,
+								  IndicePlatos indice,
+								  EstadisticasCatalogo estadisticas,
+								  CambiosService cambios,
+								  PlatformTransactionManager transactionManager,
+								  @Value("${restaurant.instantanea.fichero:catalogo.instantanea}") Path fichero) {
+		this.instantaneaDao = instantaneaDao;
+		this.platosDao = platosDao;
+		this.cartasCache = cartasCache;
+		this.adyacencia = adyacencia;
+		this.indice = indice;
+		this.estadisticas = estadisticas;
+		this.cambios = cambios;
+		// Las tres tablas y el ultimo cambio se leen de la misma foto. Sin readOnly, que la mandaria a una replica:
+		// van con retraso y no copian cambio_ultimo
+		this.lectura = new TransactionTemplate(transactionManager);
+		this.lectura.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+		this.escritura = new TransactionTemplate(transactionManager);
+		this.fichero = fichero;
+	}
+
+	@Override
+	public ResumenInstantanea exportar() throws IOException {
+		long inicio = System.nanoTime();
+		// Lo confirmado hasta ahora entra en la foto con su numero. Lo que se confirme entre la numeracion y la foto
+		// tambien entra, pero se numera despues: quien siga el registro desde la instantanea lo vuelve a recibir,
+		// con el mismo estado que ya tiene
+		cambios.numerar();
+		Instantanea instantanea = lectura.execute(estado -> instantaneaDao.leer());
+		Path destino = fichero.toAbsolutePath();
+		Files.createDirectories(destino.getParent());
+		// Quien carga el fichero mientras se escribe ve el anterior entero
+		Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+		long bytes = FormatoInstantanea.escribir(instantanea, temporal);
+		Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return resumen(destino, bytes, instantanea, inicio);
+	}
+
+	@Override
+	public ResumenInstantanea cargar(Path origen) throws IOException {
+		long inicio = System.nanoTime();
+		Instantanea instantanea = FormatoInstantanea.leer(origen);
+		escritura.executeWithoutResult(estado -> instantaneaDao.cargar(instantanea));
+
+		platosDao.getCache().invalidateAll();
+		cartasCache.invalidar();
+		// En orden de ID, como los lee el indice al reconstruirse
+		Map<Integer, Plato> platos = new LinkedHashMap<>(instantanea.platos().size() * 2);
+		for (FilaPlato fila : instantanea.platos()) {
+			platos.put(fila.id(), Plato.fromFila(fila.id(), fila.nombre(), fila.centimos() / 100.0, fila.categoria()));
+		}
+		// Las cartas ya estan en memoria: se dejan en la cache y los modelos de lectura se construyen con ellas en
+		// lugar de volver a leerlas de la base de datos
+		Map<String, List<Plato>> cartas = new HashMap<>(instantanea.locales().size() * 2);
+		for (FilaLocal local : instantanea.locales()) {
+			List<Plato> carta = new ArrayList<>(local.carta().length);
+			for (int plato : local.carta()) {
+				carta.add(platos.get(plato));
+			}
+			cartasCache.poner(local.cif(), carta);
+			cartas.put(local.cif(), carta);
+		}
+		adyacencia.cargar(cartas);
+		indice.cargar(platos.values(), cartas);
+		estadisticas.cargar(cartas);
+		return resumen(origen.toAbsolutePath(), Files.size(origen), instantanea, inicio);
+	}
+
+	private static ResumenInstantanea resumen(Path fichero, long bytes, Instantanea instantanea, long inicio) {
+		long enlaces = 0;
+		for (FilaLocal local : instantanea.locales()) {
+			enlaces += local.carta().length;
+		}
+		return new ResumenInstantanea(fichero.toString(), bytes, instantanea.platos().size(),
+				instantanea.locales().size(), enlaces, instantanea.ultimoCambio(),
+				(System.nanoTime() - inicio) / 1_000_000);
+	}
+}
@@ -0,0 +1,69 @@
+package com.helloworld.babel.restaurant.servicios.locales;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Reparte la carga de cartas en el executor de la aplicacion (hilos virtuales con
+ * spring.threads.virtual.enabled) sin superar el numero de conexiones del pool.
+ * <p>
+ * Quien llama no debe tener una transaccion abierta: su conexion quedaria retenida mientras espera, y con tantas
+ * peticiones como conexiones los hilos no encontrarian ninguna libre.
+ */
+@Component
+public class CargaParalelaCartas {
+
+	private final AsyncTaskExecutor executor;
+	private final Semaphore permisos;
+
+	public CargaParalelaCartas(@Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) AsyncTaskExecutor executor,
+							   @Value("${restaurant.locales.carga-paralela.max-concurrencia:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrencia) {
+		this.executor = executor;
+		this.permisos = new Semaphore(maxConcurrencia);
+	}
+
+	public <T> void paraCada(List<T> elementos, Consumer<T> tarea) {
+		List<Future<?>> pendientes = new ArrayList<>(elementos.size());
+		try {
+			for (T elemento : elementos) {
+				// El permiso se pide antes de encolar: el limite es global para todas las peticiones
+				permisos.acquire();
+				try {
+					pendientes.add(executor.submit(() -> {
+						try {
+							tarea.accept(elemento);
+						} finally {
+							permisos.release();
+						}
+					}));
+				} catch (RuntimeException e) {
+					permisos.release();
+					throw e;
+				}
+			}
+			for (Future<?> pendiente : pendientes) {
+				pendiente.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			pendientes.forEach(pendiente -> pendiente.cancel(true));
+			throw new IllegalStateException("Carga de cartas interrumpida", e);
+		} catch (ExecutionException e) {
+			pendientes.forEach(pendiente -> pendiente.cancel(true));
+			if (e.getCause() instanceof RuntimeException causa) {
+				throw causa;
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package com.helloworld.babel.restaurant.servicios.locales;
+
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.servicios.catalogo.ConjuntoEnteros;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Foto inmutable de la carta de un local junto con los IDs de sus platos.
+ */
+public final class CartaLocal {
+
+	private final List<Plato> platos;
+	private final ConjuntoEnteros ids;
+
+	public CartaLocal(List<Plato> platos) {
+		this.platos = List.copyOf(platos);
+		this.ids = ConjuntoEnteros.of(this.platos.stream().mapToInt(Plato::getId).toArray());
+	}
+
+	public List<Plato> getPlatos() {
+		return platos;
+	}
+
+	public boolean contiene(int plato) {
+		return ids.contains(plato);
+	}
+
+	public CartaLocal conPlato(Plato plato) {
+		if (contiene(plato.getId())) {
+			return this;
+		}
+		List<Plato> nuevos = new ArrayList<>(platos.size() + 1);
+		nuevos.addAll(platos);
+		nuevos.add(plato);
+		return new CartaLocal(nuevos);
+	}
+
+	public CartaLocal sinPlato(int plato) {
+		if (!contiene(plato)) {
+			return this;
+		}
+		return new CartaLocal(platos.stream().filter(p -> p.getId() != plato).toList());
+	}
+
+	public CartaLocal conCambios(Collection<Plato> anadidos, Collection<Integer> quitados) {
+		// Los quitados pueden ser una lista: se pasan a un conjunto para no recorrerlos por cada plato
+		ConjuntoEnteros sinPlatos = ConjuntoEnteros.of(quitados.stream().mapToInt(Integer::intValue).toArray());
+		List<Plato> nuevos = new ArrayList<>(platos.size() + anadidos.size());
+		platos.stream().filter(p -> !sinPlatos.contains(p.getId())).forEach(nuevos::add);
+		anadidos.stream().filter(p -> !contiene(p.getId())).forEach(nuevos::add);
+		return new CartaLocal(nuevos);
+	}
+}
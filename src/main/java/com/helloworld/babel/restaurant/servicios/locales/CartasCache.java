@@ -0,0 +1,137 @@
+package com.helloworld.babel.restaurant.servicios.locales;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.servicios.catalogo.OyenteCatalogo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Cartas por CIF. Los cambios de carta se aplican sobre la foto guardada en lugar de recargarla.
+ * Caffeine desaloja con W-TinyLFU al llegar al tamaño maximo.
+ * <p>
+ * Las cargas leen fuera de cualquier bloqueo y solo bloquean su clave al guardar. Un cambio que no encuentra la
+ * carta, o que recorre todas, no ve las que se estan cargando: sube la generacion y una carga que empezo en una
+ * generacion anterior no se guarda.
+ */
+@Component
+public class CartasCache implements OyenteCatalogo {
+
+	private final Cache<String, CartaLocal> cache;
+	private final Map<String, CartaLocal> cartas;
+	private final LongAdder consultas = new LongAdder();
+	private final LongAdder cargas = new LongAdder();
+	private final AtomicLong generacion = new AtomicLong();
+
+	public CartasCache(@Value("${restaurant.cache.cartas.maximum-size:10000}") long maximumSize) {
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.build();
+		this.cartas = cache.asMap();
+	}
+
+	public CartaLocal get(String cif) {
+		return cache.getIfPresent(cif);
+	}
+
+	public CartaLocal obtener(String cif, Function<String, List<Plato>> cargar) {
+		consultas.increment();
+		CartaLocal guardada = cache.getIfPresent(cif);
+		if (guardada != null) {
+			return guardada;
+		}
+		long inicio = generacion.get();
+		cargas.increment();
+		CartaLocal cargada = new CartaLocal(cargar.apply(cif));
+		// Dos cargas a la vez de la misma carta leen lo mismo: se queda la primera que se guarda
+		CartaLocal carta = cartas.compute(cif, (c, actual) -> {
+			if (actual != null) {
+				return actual;
+			}
+			// Un cambio paso mientras esta se leia: se devuelve pero no se guarda
+			return generacion.get() == inicio ? cargada : null;
+		});
+		return carta != null ? carta : cargada;
+	}
+
+	/**
+	 * Guarda una carta ya leida, por ejemplo de una instantanea, sin contarla como carga.
+	 */
+	public void poner(String cif, List<Plato> platos) {
+		cache.put(cif, new CartaLocal(platos));
+	}
+
+	public void invalidar() {
+		generacion.incrementAndGet();
+		cache.invalidateAll();
+	}
+
+	public int size() {
+		return (int) cache.estimatedSize();
+	}
+
+	public long getConsultas() {
+		return consultas.sum();
+	}
+
+	public long getCargas() {
+		return cargas.sum();
+	}
+
+	@Override
+	public void platoAnadidoACarta(String cif, Plato plato) {
+		cambiar(cif, carta -> carta.conPlato(plato));
+	}
+
+	@Override
+	public void platoQuitadoDeCarta(String cif, int plato) {
+		cambiar(cif, carta -> carta.sinPlato(plato));
+	}
+
+	@Override
+	public void cartaActualizada(String cif, Collection<Plato> anadidos, Collection<Integer> quitados) {
+		cambiar(cif, carta -> carta.conCambios(anadidos, quitados));
+	}
+
+	@Override
+	public void localEliminado(String cif) {
+		// Antes de quitarla: otra carga de la carta que ya no encuentre la guardada no la vuelve a guardar
+		generacion.incrementAndGet();
+		cache.invalidate(cif);
+	}
+
+	@Override
+	public void platoEliminado(int id) {
+		generacion.incrementAndGet();
+		cartas.replaceAll((cif, carta) -> carta.sinPlato(id));
+	}
+
+	@Override
+	public void platoActualizado(Plato plato) {
+		// Se descartan solo las cartas que contienen el plato; se recargan con los valores guardados
+		generacion.incrementAndGet();
+		cartas.entrySet().removeIf(entrada -> entrada.getValue().contiene(plato.getId()));
+	}
+
+	/**
+	 * Aplica el cambio a la carta guardada. Si no esta puede estar cargandose: la generacion sube bajo el bloqueo de
+	 * la clave, asi que la carga o se guardo antes y recibe el cambio, o ve la nueva generacion y no se guarda.
+	 */
+	private void cambiar(String cif, Function<CartaLocal, CartaLocal> cambio) {
+		cartas.compute(cif, (c, carta) -> {
+			if (carta == null) {
+				generacion.incrementAndGet();
+				return null;
+			}
+			return cambio.apply(carta);
+		});
+	}
+}
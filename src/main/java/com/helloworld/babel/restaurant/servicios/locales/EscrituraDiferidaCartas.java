@@ -0,0 +1,390 @@
+package com.helloworld.babel.restaurant.servicios.locales;
+
+import com.helloworld.babel.restaurant.daos.restaurantes.RestaurantesDao;
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.servicios.catalogo.NotificadorCatalogo;
+import com.helloworld.babel.restaurant.servicios.catalogo.OyenteCatalogo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+/**
+ * Cola por CIF de los platos que se anaden y quitan de las cartas con restaurant.locales.escritura-cartas=diferida.
+ * Por cada plato solo se guarda el estado final: anadirlo y quitarlo antes del volcado no llega a la base de datos.
+ * Los cambios se escriben por lotes al juntarse tamano-lote, cada intervalo y al parar la aplicacion, y los oyentes
+ * del catalogo los reciben al volcarse, igual que con la escritura directa.
+ */
+@Component
+public class EscrituraDiferidaCartas implements OyenteCatalogo, SmartLifecycle {
+
+	private static final Logger log = LoggerFactory.getLogger(EscrituraDiferidaCartas.class);
+
+	private final RestaurantesDao restaurantesDao;
+	private final NotificadorCatalogo notificador;
+	private final TransactionTemplate transacciones;
+	private final TransactionTemplate porCambio;
+	private final boolean activa;
+	private final int tamanoLote;
+	private final Duration intervalo;
+
+	// Las colas no se quitan al vaciarse: otro hilo puede estar esperando para escribir en ellas
+	private final Map<String, Cola> colas = new ConcurrentHashMap<>();
+	private final AtomicInteger pendientes = new AtomicInteger();
+	private final AtomicBoolean volcadoSolicitado = new AtomicBoolean();
+
+	private final Timer volcados;
+	private final Timer descartados;
+	private final Timer fallidos;
+	private final Counter cambiosDescartados;
+
+	private ScheduledExecutorService volcador;
+	private volatile boolean enMarcha;
+
+	public EscrituraDiferidaCartas(RestaurantesDao restaurantesDao, NotificadorCatalogo notificador,
+								   PlatformTransactionManager transactionManager, MeterRegistry registry,
+								   @Value("${restaurant.locales.escritura-cartas:directa}") String escrituraCartas,
+								   @Value("${restaurant.locales.escritura-diferida.tamano-lote:500}") int tamanoLote,
+								   @Value("${restaurant.locales.escritura-diferida.intervalo:200ms}") Duration intervalo) {
+		this.restaurantesDao = restaurantesDao;
+		this.notificador = notificador;
+		// Dentro de un metodo transaccional del servicio el volcado va en un savepoint de su conexion: con una
+		// transaccion propia cada peticion ocuparia dos conexiones del pool. Fuera de el abre la suya
+		this.transacciones = new TransactionTemplate(transactionManager);
+		this.transacciones.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+		// Cada cambio reintentado en su propio savepoint: el que falla se deshace sin deshacer los demas
+		this.porCambio = new TransactionTemplate(transactionManager);
+		this.porCambio.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+		this.activa = "diferida".equals(escrituraCartas);
+		this.tamanoLote = tamanoLote;
+		this.intervalo = intervalo;
+
+		Gauge.builder("restaurant.cartas.pendientes", pendientes, AtomicInteger::get)
+				.description("Cambios de carta en cola sin escribir en la base de datos")
+				.register(registry);
+		this.volcados = volcados(registry, "ok");
+		this.descartados = volcados(registry, "descartado");
+		this.fallidos = volcados(registry, "error");
+		this.cambiosDescartados = Counter.builder("restaurant.cartas.descartados")
+				.description("Cambios de carta en cola descartados al volcar porque el local o el plato ya no existe")
+				.register(registry);
+	}
+
+	private static Timer volcados(MeterRegistry registry, String resultado) {
+		return Timer.builder("restaurant.cartas.volcados")
+				.description("Tiempo de escritura de los cambios en cola de una carta")
+				.tag("resultado", resultado)
+				.register(registry);
+	}
+
+	public boolean isActiva() {
+		return activa;
+	}
+
+	public int getPendientes() {
+		return pendientes.get();
+	}
+
+	/**
+	 * @param enCarta si un plato esta en la carta guardada; se consulta con la cola del local bloqueada
+	 * @return false si el plato ya estaba en la carta contando los cambios en cola
+	 */
+	public boolean anadir(String cif, Plato plato, IntPredicate enCarta) {
+		return cambiar(cif, plato.getId(), plato, enCarta);
+	}
+
+	/**
+	 * @return false si el plato no estaba en la carta contando los cambios en cola
+	 */
+	public boolean quitar(String cif, int plato, IntPredicate enCarta) {
+		return cambiar(cif, plato, null, enCarta);
+	}
+
+	private boolean cambiar(String cif, int id, Plato plato, IntPredicate enCarta) {
+		boolean anadir = plato != null;
+		Cola cola = colas.computeIfAbsent(cif, c -> new Cola());
+		synchronized (cola) {
+			Cambio previo = cola.cambios.get(id);
+			if (previo != null) {
+				if (previo.anade() == anadir) {
+					return false;
+				}
+				// El cambio contrario deja el plato como esta guardado
+				cola.cambios.remove(id);
+				pendientes.decrementAndGet();
+				return true;
+			}
+			if (enCarta.test(id) == anadir) {
+				return false;
+			}
+			cola.cambios.put(id, new Cambio(plato));
+		}
+		if (pendientes.incrementAndGet() >= tamanoLote && volcador != null
+				&& volcadoSolicitado.compareAndSet(false, true)) {
+			volcador.execute(this::volcarPendientes);
+		}
+		return true;
+	}
+
+	/**
+	 * Sin cambios en cola la carta guardada es la actual y se puede consultar directamente.
+	 */
+	public boolean tienePendientes(String cif) {
+		Cola cola = colas.get(cif);
+		if (cola == null) {
+			return false;
+		}
+		synchronized (cola) {
+			return !cola.cambios.isEmpty();
+		}
+	}
+
+	/**
+	 * Carta guardada con los cambios en cola aplicados. Se lee con la cola bloqueada para que un volcado no la
+	 * cambie entre medias.
+	 */
+	public List<Plato> conPendientes(String cif, Supplier<List<Plato>> guardada) {
+		Cola cola = colas.get(cif);
+		if (cola == null) {
+			return guardada.get();
+		}
+		synchronized (cola) {
+			List<Plato> platos = guardada.get();
+			if (cola.cambios.isEmpty()) {
+				return platos;
+			}
+			// Un plato guardado con un cambio en cola es un plato que se quita
+			List<Plato> carta = new ArrayList<>(platos.size() + cola.cambios.size());
+			platos.stream().filter(p -> !cola.cambios.containsKey(p.getId())).forEach(carta::add);
+			cola.cambios.values().stream().filter(Cambio::anade).map(Cambio::plato).forEach(carta::add);
+			return carta;
+		}
+	}
+
+	public void volcar() {
+		volcadoSolicitado.set(false);
+		colas.keySet().forEach(this::volcar);
+	}
+
+	/**
+	 * Escribe los cambios en cola del local y avisa a los oyentes tras el commit. Si se llama dentro de una
+	 * transaccion se escriben en ella, y vuelven a la cola si se deshace.
+	 */
+	public void volcar(String cif) {
+		Cola cola = colas.get(cif);
+		if (cola == null) {
+			return;
+		}
+		synchronized (cola) {
+			if (cola.cambios.isEmpty()) {
+				return;
+			}
+			List<Plato> anadidos = new ArrayList<>();
+			List<Integer> quitados = new ArrayList<>();
+			cola.cambios.forEach((id, cambio) -> {
+				if (cambio.anade()) {
+					anadidos.add(cambio.plato());
+				} else {
+					quitados.add(id);
+				}
+			});
+
+			long inicio = System.nanoTime();
+			Timer resultado = volcados;
+			try {
+				try {
+					transacciones.executeWithoutResult(estado -> {
+						restaurantesDao.addPlatos(cif, anadidos.stream().map(Plato::getId).toList());
+						restaurantesDao.removePlatos(cif, quitados);
+						restaurantesDao.incrementVersion(cif);
+						notificador.publicar(oyente -> oyente.cartaActualizada(cif, anadidos, quitados));
+					});
+				} catch (DataIntegrityViolationException e) {
+					// El local o alguno de los platos ya no existe: se reintentan de uno en uno y solo se descartan esos
+					volcarUnoAUno(cif, anadidos, quitados);
+					resultado = descartados;
+				}
+			} catch (RuntimeException e) {
+				// Se conservan para el siguiente volcado
+				fallidos.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+				throw e;
+			}
+			resultado.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+			if (TransactionSynchronizationManager.isActualTransactionActive()) {
+				Map<Integer, Cambio> volcadosEnCurso = new LinkedHashMap<>(cola.cambios);
+				TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+					@Override
+					public void afterCompletion(int status) {
+						if (status != STATUS_COMMITTED) {
+							devolver(cola, volcadosEnCurso);
+						}
+					}
+				});
+			}
+			pendientes.addAndGet(-cola.cambios.size());
+			cola.cambios.clear();
+		}
+	}
+
+	private void devolver(Cola cola, Map<Integer, Cambio> cambios) {
+		synchronized (cola) {
+			// Un cambio llegado despues sobre el mismo plato se calculo sin este y lo sustituye
+			cambios.forEach((id, cambio) -> {
+				if (cola.cambios.putIfAbsent(id, cambio) == null) {
+					pendientes.incrementAndGet();
+				}
+			});
+		}
+	}
+
+	private void volcarUnoAUno(String cif, List<Plato> anadidos, List<Integer> quitados) {
+		List<Integer> descartes = new ArrayList<>();
+		transacciones.executeWithoutResult(estado -> {
+			List<Plato> anadidosEscritos = new ArrayList<>();
+			List<Integer> quitadosEscritos = new ArrayList<>();
+			for (Plato plato : anadidos) {
+				if (escribir(() -> restaurantesDao.addPlatos(cif, List.of(plato.getId())))) {
+					anadidosEscritos.add(plato);
+				} else {
+					descartes.add(plato.getId());
+				}
+			}
+			for (Integer id : quitados) {
+				if (escribir(() -> restaurantesDao.removePlatos(cif, List.of(id)))) {
+					quitadosEscritos.add(id);
+				} else {
+					descartes.add(id);
+				}
+			}
+			if (!anadidosEscritos.isEmpty() || !quitadosEscritos.isEmpty()) {
+				restaurantesDao.incrementVersion(cif);
+				notificador.publicar(oyente -> oyente.cartaActualizada(cif, anadidosEscritos, quitadosEscritos));
+			}
+		});
+		// Tras el commit: si la transaccion falla, los cambios siguen en cola y no se han descartado
+		if (!descartes.isEmpty()) {
+			cambiosDescartados.increment(descartes.size());
+			log.warn("Cambios de carta descartados en {}: los platos {} o el local ya no existen", cif, descartes);
+		}
+	}
+
+	private boolean escribir(Runnable cambio) {
+		try {
+			porCambio.executeWithoutResult(estado -> cambio.run());
+			return true;
+		} catch (DataIntegrityViolationException e) {
+			return false;
+		}
+	}
+
+	private void volcarPendientes() {
+		try {
+			volcar();
+		} catch (RuntimeException e) {
+			// Una excepcion cancelaria los volcados periodicos; el fallo queda en restaurant.cartas.volcados
+		}
+	}
+
+	@Override
+	public void platoEliminado(int id) {
+		colas.values().forEach(cola -> {
+			synchronized (cola) {
+				if (cola.cambios.remove(id) != null) {
+					pendientes.decrementAndGet();
+				}
+			}
+		});
+	}
+
+	@Override
+	public void localEliminado(String cif) {
+		// Se vacia sin quitarla del mapa, por lo mismo que las colas vacias
+		Cola cola = colas.get(cif);
+		if (cola != null) {
+			synchronized (cola) {
+				pendientes.addAndGet(-cola.cambios.size());
+				cola.cambios.clear();
+			}
+		}
+	}
+
+	@Override
+	public void start() {
+		if (activa) {
+			volcador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+				Thread hilo = new Thread(tarea, "volcado-cartas");
+				hilo.setDaemon(true);
+				return hilo;
+			});
+			long cada = intervalo.toMillis();
+			volcador.scheduleWithFixedDelay(this::volcarPendientes, cada, cada, TimeUnit.MILLISECONDS);
+		}
+		enMarcha = true;
+	}
+
+	@Override
+	public void stop() {
+		if (volcador != null) {
+			volcador.shutdown();
+			try {
+				volcador.awaitTermination(30, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			volcador = null;
+		}
+		// Lo que quede se escribe antes de cerrar el pool de conexiones
+		volcarPendientes();
+		enMarcha = false;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return enMarcha;
+	}
+
+	@Override
+	public int getPhase() {
+		// Se para despues del servidor web, cuando ya no pueden llegar mas cambios
+		return SmartLifecycle.DEFAULT_PHASE - 4096;
+	}
+
+	private static final class Cola {
+		// Plato y su cambio pendiente, en orden de llegada
+		private final Map<Integer, Cambio> cambios = new LinkedHashMap<>();
+	}
+
+	/**
+	 * @param plato el plato que se anade, o null si se quita
+	 */
+	private record Cambio(Plato plato) {
+		boolean anade() {
+			return plato != null;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package com.helloworld.babel.restaurant.servicios.locales;
+
+import com.helloworld.babel.restaurant.daos.model.FiltroPlatos;
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.Plato.Categoria;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Filtros, orden y limite de la carta de un local; los que son null no se aplican. Sin orden los platos salen en el
+ * orden de la carta.
+ */
+public record FiltroCarta(Categoria categoria, Double minPrecio, Double maxPrecio, Orden orden, Integer limite) {
+
+	public static final FiltroCarta NINGUNO = new FiltroCarta(null, null, null, null, null);
+
+	public enum Orden {
+		// El ID desempata igual que en la consulta
+		PRECIO(Comparator.comparingDouble(Plato::getPrecio).thenComparing(Plato::getId)),
+		NOMBRE(Comparator.comparing(Plato::getNombre).thenComparing(Plato::getId));
+
+		private final Comparator<Plato> comparador;
+
+		Orden(Comparator<Plato> comparador) {
+			this.comparador = comparador;
+		}
+	}
+
+	public boolean vacio() {
+		return equals(NINGUNO);
+	}
+
+	/**
+	 * Aplica el filtro a una carta ya leida entera.
+	 */
+	public List<Plato> aplicar(List<Plato> carta) {
+		Stream<Plato> platos = carta.stream();
+		if (categoria != null) {
+			platos = platos.filter(plato -> plato.getCategoria() == categoria);
+		}
+		if (minPrecio != null) {
+			platos = platos.filter(plato -> plato.getPrecio() >= minPrecio);
+		}
+		if (maxPrecio != null) {
+			platos = platos.filter(plato -> plato.getPrecio() <= maxPrecio);
+		}
+		if (orden != null) {
+			platos = platos.sorted(orden.comparador);
+		}
+		if (limite != null) {
+			platos = platos.limit(limite);
+		}
+		return platos.toList();
+	}
+
+	public FiltroPlatos toFiltroPlatos() {
+		return new FiltroPlatos(
+				categoria == null ? null : categoria.getCodigo(),
+				minPrecio,
+				maxPrecio,
+				orden == null ? null : FiltroPlatos.Orden.valueOf(orden.name()),
+				limite);
+	}
+}
@@ -0,0 +1,12 @@
+package com.helloworld.babel.restaurant.servicios.locales;
+
+import com.helloworld.babel.restaurant.model.Plato.Categoria;
+
+/**
+ * Recibe los locales con su carta segun se leen, sin crear {@link com.helloworld.babel.restaurant.model.Local}
+ * ni {@link com.helloworld.babel.restaurant.model.Plato}: en orden de CIF y cada local seguido de sus platos.
+ */
+public interface LectorLocales {
+	void local(String cif, String nombre, String direccion, String telefono);
+	void plato(int id, String nombre, double precio, Categoria categoria);
+}
@@ -2,17 +2,43 @@ package com.helloworld.babel.restaurant.servicios.locales;
 
 import com.helloworld.babel.restaurant.model.Local;
 import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.ResultadoLote;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface LocalesService {
 	List<Local> getLocales();
+	List<Local> getLocales(String after, int limit);
+	void forEachLocal(Consumer<Local> consumer);
+	void leerLocales(LectorLocales lector);
 	Optional<Local> getLocalByCif(String cif);
+	ResultadoLote<Local, String> getLocalesByCifs(Collection<String> cifs);
+	List<Local> getLocalesByPlato(int plato);
+	Optional<Long> getVersion(String cif);
 	List<Plato> getPlatosByLocal(String cif);
-	Optional<Local> updateLocal(Local local);
-	boolean createLocal(Local local);
+	/**
+	 * Carta filtrada y ordenada. Si no esta en memoria la filtra la base de datos, sin leerla entera.
+	 */
+	List<Plato> getPlatosByLocal(String cif, FiltroCarta filtro);
+	/**
+	 * @return true si el local se ha creado, false si ya existia y se ha actualizado
+	 */
+	boolean upsertLocal(Local local);
+	/**
+	 * Actualiza el local si sigue en la version indicada, sin bloquearlo. La carta no cambia.
+	 * @param version null para actualizarlo en cualquier version, como pide If-Match: *
+	 * @return la nueva version del local
+	 * @throws com.helloworld.babel.restaurant.servicios.exceptions.NotFoundException si el local no existe
+	 * @throws com.helloworld.babel.restaurant.servicios.exceptions.ConflictoVersionException si tiene otra version
+	 */
+	long updateLocal(Local local, Long version);
 	boolean deleteLocal(String cif);
 	int addPlato(String cif, int plato);
 	void removePlato(String cif, int plato);
+	List<Plato> replaceCarta(String cif, Set<Integer> platos);
+	List<Plato> updateCarta(String cif, Set<Integer> anadir, Set<Integer> quitar);
 }
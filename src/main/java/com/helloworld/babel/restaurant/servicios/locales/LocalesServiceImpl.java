@@ -1,16 +1,36 @@
 package com.helloworld.babel.restaurant.servicios.locales;
 
+import com.helloworld.babel.restaurant.daos.model.LectorCartas;
 import com.helloworld.babel.restaurant.daos.platos.PlatosDao;
+import com.helloworld.babel.restaurant.servicios.exceptions.ConflictoVersionException;
 import com.helloworld.babel.restaurant.servicios.exceptions.NotFoundException;
 import com.helloworld.babel.restaurant.daos.restaurantes.RestaurantesDao;
+import com.helloworld.babel.restaurant.metricas.MetricasMapeo;
 import com.helloworld.babel.restaurant.model.Local;
 import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.Plato.Categoria;
+import com.helloworld.babel.restaurant.model.ResultadoLote;
+import com.helloworld.babel.restaurant.servicios.catalogo.AdyacenciaCartas;
+import com.helloworld.babel.restaurant.servicios.catalogo.NotificadorCatalogo;
 import com.helloworld.babel.restaurant.servicios.platos.PlatosService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
 
 @Service
 public class LocalesServiceImpl implements LocalesService {
@@ -18,79 +38,269 @@ public class LocalesServiceImpl implements LocalesService {
 	private final RestaurantesDao restaurantesDao;
 	private final PlatosDao platosDao;
 	private final PlatosService platosService;
+	private final CartasCache cartasCache;
+	private final NotificadorCatalogo notificador;
+	private final CargaParalelaCartas cargaParalela;
+	private final AdyacenciaCartas adyacencia;
+	private final EscrituraDiferidaCartas escrituraDiferida;
+	private final MetricasMapeo mapeo;
+	private final TransactionTemplate lectura;
+	private final boolean cartasEnParalelo;
 
-	public LocalesServiceImpl(RestaurantesDao restaurantesDao, PlatosDao platosDao, PlatosService platosService) {
+	public LocalesServiceImpl(RestaurantesDao restaurantesDao, PlatosDao platosDao, PlatosService platosService,
+							  CartasCache cartasCache, NotificadorCatalogo notificador, CargaParalelaCartas cargaParalela,
+							  AdyacenciaCartas adyacencia, EscrituraDiferidaCartas escrituraDiferida, MetricasMapeo mapeo,
+							  PlatformTransactionManager transactionManager,
+							  @Value("${restaurant.locales.carga-cartas:lote}") String cargaCartas) {
 		this.restaurantesDao = restaurantesDao;
 		this.platosDao = platosDao;
 		this.platosService = platosService;
+		this.cartasCache = cartasCache;
+		this.notificador = notificador;
+		this.cargaParalela = cargaParalela;
+		this.adyacencia = adyacencia;
+		this.escrituraDiferida = escrituraDiferida;
+		this.mapeo = mapeo;
+		this.lectura = new TransactionTemplate(transactionManager);
+		this.lectura.setReadOnly(true);
+		this.cartasEnParalelo = "paralela".equals(cargaCartas);
 	}
 
 
+	// Los listados pueden leer de una replica. Lo que carga CartasCache no: la cache se mantiene con los cambios
+	// confirmados en la primaria y guardaria una carta antigua
+
 	@Override
 	public List<Local> getLocales() {
-		List<Local> locales = restaurantesDao
-				.getRestaurantes()
-				.stream()
-				.map(Local::fromRestaurante)
-				.toList();
-		locales.forEach(this::fullFillWithPlatos);
+		// La carga paralela va sin transaccion: quien espera a los hilos no retiene una conexion que les haga falta,
+		// y cada carta se lee en la primaria como el resto de cargas de CartasCache. Dentro de una transaccion
+		// abierta por quien llama se lee en lote con su conexion
+		if (cartasEnParalelo && !TransactionSynchronizationManager.isActualTransactionActive()) {
+			List<Local> locales = restaurantesDao.getRestaurantes(Local::new);
+			cargaParalela.paraCada(locales,
+					local -> local.setCarta(cartasCache.obtener(local.getCif(), this::cargarCarta).getPlatos()));
+			return locales;
+		}
+		return lectura.execute(status -> {
+			// Una sola consulta para todas las cartas en lugar de una por local
+			Map<String, List<Plato>> cartas = platosDao.getPlatosGroupedByRestauranteCif(Plato::fromFila);
+			return conCartas(restaurantesDao.getRestaurantes(Local::new), cartas);
+		});
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<Local> getLocales(String after, int limit) {
+		List<Local> locales = restaurantesDao.getRestaurantes(after, limit, Local::new);
+		if (locales.isEmpty()) {
+			return List.of();
+		}
+		// Las cartas de la pagina se cargan con el mismo rango de CIFs
+		Map<String, List<Plato>> cartas = platosDao.getPlatosGroupedByRestauranteCif(
+				after, locales.get(locales.size() - 1).getCif(), Plato::fromFila);
+		return conCartas(locales, cartas);
+	}
+
+	private List<Local> conCartas(List<Local> locales, Map<String, List<Plato>> cartas) {
+		for (Local local : locales) {
+			List<Plato> carta = cartas.get(local.getCif());
+			if (carta != null) {
+				local.setCarta(carta);
+			}
+		}
 		return locales;
 	}
 
+	@Override
+	@Transactional(readOnly = true)
+	public void forEachLocal(Consumer<Local> consumer) {
+		restaurantesDao.streamRestaurantesConPlatos(Local::new, Plato::fromFila, (local, carta) -> {
+			local.setCarta(carta);
+			consumer.accept(local);
+		});
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public void leerLocales(LectorLocales lector) {
+		restaurantesDao.streamRestaurantesConPlatos(new LectorCartas() {
+			@Override
+			public void local(String cif, String nombre, String direccion, String telefono) {
+				lector.local(cif, nombre, direccion, telefono);
+			}
+
+			@Override
+			public void plato(int id, String nombre, double precio, int categoria) {
+				lector.plato(id, nombre, precio, Categoria.fromCodigo(categoria));
+			}
+		});
+	}
+
 	@Override
 	public Optional<Local> getLocalByCif(String cif) {
-		Optional<Local> local = restaurantesDao.getRestauranteById(cif).map(Local::fromRestaurante);
-		local.ifPresent(this::fullFillWithPlatos);
+		Optional<Local> local = restaurantesDao.getRestauranteById(cif)
+				.map(restaurante -> mapeo.locales(() -> Local.fromRestaurante(restaurante)));
+		local.ifPresent(l -> l.setCarta(cartasCache.obtener(cif, this::cargarCarta).getPlatos()));
 		return local;
 	}
 
+	@Override
+	@Transactional(readOnly = true)
+	public ResultadoLote<Local, String> getLocalesByCifs(Collection<String> cifs) {
+		Map<String, Local> locales = new HashMap<>();
+		restaurantesDao.getRestaurantesByCifs(cifs, Local::new).forEach(local -> locales.put(local.getCif(), local));
+
+		// Las cartas que no estan en cache se leen juntas, con una consulta mas para todo el lote
+		List<String> sinCarta = new ArrayList<>();
+		for (Local local : locales.values()) {
+			CartaLocal carta = cartasCache.get(local.getCif());
+			if (carta != null) {
+				local.setCarta(carta.getPlatos());
+			} else {
+				sinCarta.add(local.getCif());
+			}
+		}
+		if (!sinCarta.isEmpty()) {
+			conCartas(sinCarta.stream().map(locales::get).toList(),
+					platosDao.getPlatosGroupedByRestauranteCif(sinCarta, Plato::fromFila));
+		}
+
+		List<Local> encontrados = new ArrayList<>(locales.size());
+		List<String> noEncontrados = new ArrayList<>();
+		for (String cif : new LinkedHashSet<>(cifs)) {
+			Local local = locales.get(cif);
+			if (local != null) {
+				encontrados.add(local);
+			} else {
+				noEncontrados.add(cif);
+			}
+		}
+		return new ResultadoLote<>(encontrados, noEncontrados);
+	}
+
+	@Override
+	public List<Local> getLocalesByPlato(int plato) {
+		if (platosService.getVersion(plato).isEmpty()) {
+			throw new NotFoundException("Plato no encontrado");
+		}
+		// Los CIF salen de la relacion en memoria; solo se consultan los locales por clave primaria
+		List<String> cifs = adyacencia.getLocales(plato);
+		if (cifs.isEmpty()) {
+			return List.of();
+		}
+		List<Local> locales = restaurantesDao.getRestaurantesByCifs(cifs, Local::new);
+		locales.forEach(local -> local.setCarta(cartasCache.obtener(local.getCif(), this::cargarCarta).getPlatos()));
+		return locales;
+	}
+
+	@Override
+	public Optional<Long> getVersion(String cif) {
+		// La version cambia al escribir la carta: los cambios en cola se vuelcan para que el ETag los refleje
+		escrituraDiferida.volcar(cif);
+		return restaurantesDao.getVersion(cif);
+	}
+
 	@Override
 	public List<Plato> getPlatosByLocal(String cif) {
-		Optional<Local> local = getLocalByCif(cif);
-		if (local.isEmpty()) {
+		return escrituraDiferida.conPendientes(cif, () -> getCarta(cif)
+				.orElseThrow(() -> new NotFoundException("Local no encontrado"))
+				.getPlatos());
+	}
+
+	@Override
+	public List<Plato> getPlatosByLocal(String cif, FiltroCarta filtro) {
+		if (filtro.vacio()) {
+			return getPlatosByLocal(cif);
+		}
+		// Una carta en cache se filtra en memoria; con cambios en cola la guardada no es la actual
+		if (cartasCache.get(cif) != null || escrituraDiferida.tienePendientes(cif)) {
+			return filtro.aplicar(getPlatosByLocal(cif));
+		}
+		List<Plato> platos = platosDao.getPlatosByRestauranteCif(cif, filtro.toFiltroPlatos(), Plato::fromFila);
+		// Solo sin platos hace falta comprobar que el local existe
+		if (platos.isEmpty() && restaurantesDao.getVersion(cif).isEmpty()) {
 			throw new NotFoundException("Local no encontrado");
 		}
-		return local.get().getCarta();
+		return platos;
 	}
 
-	private void fullFillWithPlatos(Local local) {
-		platosDao
-				.getPlatosByRestauranteCif(local.getCif())
-				.stream()
-				.map(Plato::fromPlatoDAO)
-				.forEach(local::addPlato);
+	private Optional<CartaLocal> getCarta(String cif) {
+		// Una carta en cache implica que el local existe: deleteLocal la descarta
+		CartaLocal carta = cartasCache.get(cif);
+		if (carta != null) {
+			return Optional.of(carta);
+		}
+		if (restaurantesDao.getRestauranteById(cif).isEmpty()) {
+			return Optional.empty();
+		}
+		return Optional.of(cartasCache.obtener(cif, this::cargarCarta));
+	}
+
+	private List<Plato> cargarCarta(String cif) {
+		return platosDao.getPlatosByRestauranteCif(cif, Plato::fromFila);
+	}
+
+	/**
+	 * Consulta la carta guardada cada vez: la cola la usa con el local bloqueado, despues de cualquier volcado.
+	 */
+	private IntPredicate enCarta(String cif) {
+		return plato -> cartasCache.obtener(cif, this::cargarCarta).contiene(plato);
 	}
 
+	@Transactional
 	@Override
-	public Optional<Local> updateLocal(Local local) {
-		int updates = restaurantesDao.updateRestaurante(local.toRestaurante());
-		if (updates == 0) {
-			return Optional.empty();
+	public boolean upsertLocal(Local local) {
+		boolean creado = restaurantesDao.upsertRestaurante(local.toRestaurante());
+		if (creado) {
+			notificador.publicar(oyente -> oyente.localCreado(local));
 		} else {
-			return Optional.of(local);
+			notificador.publicar(oyente -> oyente.localActualizado(local));
 		}
+		return creado;
 	}
 
+	@Transactional
 	@Override
-	public boolean createLocal(Local local) {
-		return restaurantesDao.createRestaurante(local.toRestaurante())>0;
+	public long updateLocal(Local local, Long version) {
+		// La version cubre la carta: los cambios en cola cuentan como cambios del local
+		escrituraDiferida.volcar(local.getCif());
+		Optional<Long> nueva = restaurantesDao.updateRestaurante(local.toRestaurante(), version);
+		if (nueva.isEmpty()) {
+			if (version == null || restaurantesDao.getVersion(local.getCif()).isEmpty()) {
+				throw new NotFoundException("Local no encontrado");
+			}
+			throw new ConflictoVersionException("El local ha cambiado desde la version " + version);
+		}
+		notificador.publicar(oyente -> oyente.localActualizado(local));
+		return nueva.get();
 	}
 
 	@Transactional
 	@Override
 	public boolean deleteLocal(String cif) {
 		restaurantesDao.removePlatosFomRestaurante(cif);
-		return restaurantesDao.deleteRestaurante(cif) > 0;
+		if (restaurantesDao.deleteRestaurante(cif) == 0) {
+			return false;
+		}
+		notificador.publicar(oyente -> oyente.localEliminado(cif));
+		return true;
 	}
 
+	@Transactional
 	@Override
 	public int addPlato(String cif, int plato) {
-		Optional<Local> local = getLocalByCif(cif);
-		if (local.isEmpty()) {
+		Optional<CartaLocal> carta = getCarta(cif);
+		if (carta.isEmpty()) {
 			throw new NotFoundException("Local no encontrado");
 		}
 
-		if (local.get().getCarta().stream().anyMatch(p -> p.getId() == plato)) {
+		if (escrituraDiferida.isActiva()) {
+			Plato platoDisponible = platosService.getPlatosById(plato)
+					.orElseThrow(() -> new NotFoundException("Plato no encontrado"));
+			return escrituraDiferida.anadir(cif, platoDisponible, enCarta(cif)) ? 1 : 0;
+		}
+
+		if (carta.get().contiene(plato)) {
 			//El plato ya está en la carta
 			return 0;
 		}
@@ -100,21 +310,98 @@ public class LocalesServiceImpl implements LocalesService {
 			throw new NotFoundException("Plato no encontrado");
 		}
 
-		return restaurantesDao.addPlato(cif, plato);
+		int inserts = restaurantesDao.addPlato(cif, plato);
+		restaurantesDao.incrementVersion(cif);
+		notificador.publicar(oyente -> oyente.platoAnadidoACarta(cif, platoDisponible.get()));
+		return inserts;
 	}
 
+	@Transactional
 	@Override
 	public void removePlato(String cif, int plato) {
-		Optional<Local> local = getLocalByCif(cif);
-		if (local.isEmpty()) {
+		Optional<CartaLocal> carta = getCarta(cif);
+		if (carta.isEmpty()) {
 			throw new NotFoundException("Local no encontrado");
 		}
 
-		if (local.get().getCarta().stream().noneMatch(p -> p.getId() == plato)) {
+		if (escrituraDiferida.isActiva()) {
+			escrituraDiferida.quitar(cif, plato, enCarta(cif));
+			return;
+		}
+
+		if (!carta.get().contiene(plato)) {
 			//El plato no está en la carta
 			return;
 		}
 
 		restaurantesDao.removePlato(cif, plato);
+		restaurantesDao.incrementVersion(cif);
+		notificador.publicar(oyente -> oyente.platoQuitadoDeCarta(cif, plato));
+	}
+
+	@Transactional
+	@Override
+	public List<Plato> replaceCarta(String cif, Set<Integer> platos) {
+		return aplicarCambios(cif, platos, null);
+	}
+
+	@Transactional
+	@Override
+	public List<Plato> updateCarta(String cif, Set<Integer> anadir, Set<Integer> quitar) {
+		if (anadir.stream().anyMatch(quitar::contains)) {
+			throw new IllegalArgumentException("Un plato no se puede añadir y quitar a la vez");
+		}
+		return aplicarCambios(cif, anadir, quitar);
+	}
+
+	/**
+	 * Con quitar a null la carta pasa a ser exactamente la lista de platos indicada.
+	 */
+	private List<Plato> aplicarCambios(String cif, Set<Integer> platos, Set<Integer> quitar) {
+		if (restaurantesDao.getRestauranteById(cif).isEmpty()) {
+			throw new NotFoundException("Local no encontrado");
+		}
+		// Los cambios se calculan sobre la carta guardada, con los que habia en cola ya escritos
+		escrituraDiferida.volcar(cif);
+
+		List<com.helloworld.babel.restaurant.daos.model.Plato> leidos = platosDao.getPlatosByIds(platos,
+				com.helloworld.babel.restaurant.daos.model.Plato::new);
+		Map<Integer, Plato> disponibles = mapeo.platos(() -> {
+			Map<Integer, Plato> porId = new HashMap<>();
+			leidos.forEach(p -> porId.put(p.id(), Plato.fromPlatoDAO(p)));
+			return porId;
+		});
+		if (disponibles.size() < platos.size()) {
+			List<Integer> noEncontrados = platos.stream().filter(id -> !disponibles.containsKey(id)).sorted().toList();
+			throw new NotFoundException("Platos no encontrados: " + noEncontrados);
+		}
+
+		List<Plato> actuales = cargarCarta(cif);
+		Set<Integer> idsActuales = new HashSet<>();
+		actuales.forEach(p -> idsActuales.add(p.getId()));
+
+		List<Plato> anadidos = platos.stream()
+				.filter(id -> !idsActuales.contains(id))
+				.sorted()
+				.map(disponibles::get)
+				.toList();
+		Set<Integer> quitados = new HashSet<>();
+		for (Integer id : idsActuales) {
+			if (quitar == null ? !platos.contains(id) : quitar.contains(id)) {
+				quitados.add(id);
+			}
+		}
+
+		restaurantesDao.addPlatos(cif, anadidos.stream().map(Plato::getId).toList());
+		restaurantesDao.removePlatos(cif, quitados);
+		if (!anadidos.isEmpty() || !quitados.isEmpty()) {
+			restaurantesDao.incrementVersion(cif);
+		}
+		notificador.publicar(oyente -> oyente.cartaActualizada(cif, anadidos, quitados));
+
+		List<Plato> carta = new ArrayList<>(actuales.size() + anadidos.size());
+		actuales.stream().filter(p -> !quitados.contains(p.getId())).forEach(carta::add);
+		carta.addAll(anadidos);
+		return carta;
 	}
 }
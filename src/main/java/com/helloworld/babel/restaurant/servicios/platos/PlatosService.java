@@ -1,14 +1,35 @@
 package com.helloworld.babel.restaurant.servicios.platos;
 
 import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.ResultadoBusqueda;
+import com.helloworld.babel.restaurant.model.ResultadoLote;
+import com.helloworld.babel.restaurant.servicios.busqueda.ConsultaPlatos;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface PlatosService {
 	List<Plato> getPlatos();
+	List<Plato> getPlatos(int after, int limit);
+	void forEachPlato(Consumer<Plato> consumer);
 	Optional<Plato> getPlatosById(int id);
-	Optional<Plato> updatePlato(Plato plato);
+	ResultadoLote<Plato, Integer> getPlatosByIds(Collection<Integer> ids);
+	ResultadoBusqueda buscarPlatos(ConsultaPlatos consulta);
+	Optional<Long> getVersion(int id);
+	/**
+	 * @return true si el plato se ha creado con su ID, false si ya existia y se ha actualizado
+	 */
+	boolean upsertPlato(Plato plato);
+	/**
+	 * Actualiza el plato si sigue en la version indicada, sin bloquearlo.
+	 * @param version null para actualizarlo en cualquier version, como pide If-Match: *
+	 * @return la nueva version del plato
+	 * @throws com.helloworld.babel.restaurant.servicios.exceptions.NotFoundException si el plato no existe
+	 * @throws com.helloworld.babel.restaurant.servicios.exceptions.ConflictoVersionException si tiene otra version
+	 */
+	long updatePlato(Plato plato, Long version);
 	boolean deletePlato(int id);
 	long createPlato(Plato plato);
 }
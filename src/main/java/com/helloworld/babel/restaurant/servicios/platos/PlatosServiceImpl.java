@@ -1,52 +1,150 @@
 package com.helloworld.babel.restaurant.servicios.platos;
 
 import com.helloworld.babel.restaurant.daos.platos.PlatosDao;
+import com.helloworld.babel.restaurant.daos.restaurantes.RestaurantesDao;
+import com.helloworld.babel.restaurant.metricas.MetricasMapeo;
 import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.ResultadoBusqueda;
+import com.helloworld.babel.restaurant.model.ResultadoLote;
+import com.helloworld.babel.restaurant.servicios.busqueda.ConsultaPlatos;
+import com.helloworld.babel.restaurant.servicios.busqueda.IndicePlatos;
+import com.helloworld.babel.restaurant.servicios.catalogo.NotificadorCatalogo;
+import com.helloworld.babel.restaurant.servicios.exceptions.ConflictoVersionException;
+import com.helloworld.babel.restaurant.servicios.exceptions.NotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class PlatosServiceImpl implements PlatosService {
 
 	private final PlatosDao platosDao;
+	private final RestaurantesDao restaurantesDao;
+	private final NotificadorCatalogo notificador;
+	private final MetricasMapeo mapeo;
+	private final IndicePlatos indice;
 
-	public PlatosServiceImpl(PlatosDao platosDao) {
+	public PlatosServiceImpl(PlatosDao platosDao, RestaurantesDao restaurantesDao, NotificadorCatalogo notificador,
+							 MetricasMapeo mapeo, IndicePlatos indice) {
 		this.platosDao = platosDao;
+		this.restaurantesDao = restaurantesDao;
+		this.notificador = notificador;
+		this.mapeo = mapeo;
+		this.indice = indice;
 	}
 
+	// Los listados pueden leer de una replica. Lo que se consulta por ID no: llena la cache de platos, que se
+	// mantiene con los cambios confirmados en la primaria y guardaria una version antigua
+
 	@Override
+	@Transactional(readOnly = true)
 	public List<Plato> getPlatos() {
-		return platosDao.getPlatos().stream().map(Plato::fromPlatoDAO).toList();
+		return platosDao.getPlatos(Plato::fromFila);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<Plato> getPlatos(int after, int limit) {
+		return platosDao.getPlatos(after, limit, Plato::fromFila);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public void forEachPlato(Consumer<Plato> consumer) {
+		platosDao.streamPlatos(Plato::fromFila, consumer);
 	}
 
 
 	@Override
 	public Optional<Plato> getPlatosById(int id) {
-		return platosDao.getPlatosById(id).map(Plato::fromPlatoDAO);
+		// Viene de la cache de platos como entidad del DAO; los listados ya la crean como Plato al leer
+		return platosDao.getPlatosById(id).map(plato -> mapeo.platos(() -> Plato.fromPlatoDAO(plato)));
 	}
 
 	@Override
-	public Optional<Plato> updatePlato(Plato plato) {
-		int updates = platosDao.updatePlato(plato.toPlatoDAO());
-		if (updates == 0) {
-			return Optional.empty();
+	public ResultadoLote<Plato, Integer> getPlatosByIds(Collection<Integer> ids) {
+		Map<Integer, Plato> platos = platosDao.getPlatosByIds(ids, Plato::fromFila).stream()
+				.collect(Collectors.toMap(Plato::getId, Function.identity()));
+		List<Plato> encontrados = new ArrayList<>(platos.size());
+		List<Integer> noEncontrados = new ArrayList<>();
+		for (Integer id : new LinkedHashSet<>(ids)) {
+			Plato plato = platos.get(id);
+			if (plato != null) {
+				encontrados.add(plato);
+			} else {
+				noEncontrados.add(id);
+			}
+		}
+		return new ResultadoLote<>(encontrados, noEncontrados);
+	}
+
+	@Override
+	public ResultadoBusqueda buscarPlatos(ConsultaPlatos consulta) {
+		return indice.buscar(consulta);
+	}
+
+	@Override
+	public Optional<Long> getVersion(int id) {
+		return platosDao.getVersion(id);
+	}
+
+	@Override
+	@Transactional
+	public boolean upsertPlato(Plato plato) {
+		boolean creado = platosDao.upsertPlato(plato.toPlatoDAO());
+		if (!creado) {
+			// La carta forma parte del local: cambia la version de los locales que sirven el plato
+			restaurantesDao.incrementVersionByPlato(plato.getId());
+			notificador.publicar(oyente -> oyente.platoActualizado(plato));
 		} else {
-			return Optional.of(plato);
+			notificador.publicar(oyente -> oyente.platoCreado(plato));
+		}
+		return creado;
+	}
+
+	@Override
+	@Transactional
+	public long updatePlato(Plato plato, Long version) {
+		Optional<Long> nueva = platosDao.updatePlato(plato.toPlatoDAO(), version);
+		if (nueva.isEmpty()) {
+			// Solo al fallar se distingue si el plato no existe o ha cambiado
+			if (version == null || platosDao.getVersion(plato.getId()).isEmpty()) {
+				throw new NotFoundException("Plato no encontrado");
+			}
+			throw new ConflictoVersionException("El plato ha cambiado desde la version " + version);
 		}
+		restaurantesDao.incrementVersionByPlato(plato.getId());
+		notificador.publicar(oyente -> oyente.platoActualizado(plato));
+		return nueva.get();
 	}
 
 	@Override
 	@Transactional
 	public boolean deletePlato(int id) {
+		restaurantesDao.incrementVersionByPlato(id);
 		platosDao.removeRestaurantesFromPlato(id);
-		return platosDao.deletePlato(id)>0;
+		if (platosDao.deletePlato(id) == 0) {
+			return false;
+		}
+		notificador.publicar(oyente -> oyente.platoEliminado(id));
+		return true;
 	}
 
 	@Override
+	@Transactional
 	public long createPlato(Plato plato) {
-		return platosDao.createPlato(plato.toPlatoDAO());
+		long id = platosDao.createPlato(plato.toPlatoDAO());
+		Plato creado = new Plato((int) id, plato.getNombre(), plato.getPrecio(), plato.getCategoria());
+		notificador.publicar(oyente -> oyente.platoCreado(creado));
+		return id;
 	}
 }
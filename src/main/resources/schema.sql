@@ -1,14 +1,23 @@
+-- Version de cada fila para los ETags; al ser una secuencia global un CIF o ID recreado nunca repite version
+CREATE SEQUENCE IF NOT EXISTS catalogo_version_seq;
+
+-- Los IDs de plato salen de una secuencia, como un SERIAL de PostgreSQL: tras un upsert con ID explicito se adelanta
+-- con ALTER SEQUENCE, que segun H2 no confirma la transaccion en curso. ALTER TABLE, con el que se reinicia una
+-- columna de identidad, la confirma segun su documentacion
+CREATE SEQUENCE IF NOT EXISTS plato_id_seq;
 CREATE TABLE IF NOT EXISTS plato (
-    id INT AUTO_INCREMENT PRIMARY KEY,
+    id INT DEFAULT NEXT VALUE FOR plato_id_seq PRIMARY KEY,
     nombre VARCHAR(255) NOT NULL,
     precio NUMERIC(6,2) NOT NULL,
-    categoria INT NOT NULL
+    categoria INT NOT NULL,
+    version BIGINT DEFAULT 0 NOT NULL
 );
 CREATE TABLE IF NOT EXISTS restaurante (
     cif VARCHAR(255) PRIMARY KEY,
     nombre VARCHAR(255) NOT NULL,
     direccion VARCHAR(255) NOT NULL,
-    telefono VARCHAR(255) NOT NULL
+    telefono VARCHAR(255) NOT NULL,
+    version BIGINT DEFAULT 0 NOT NULL
 );
 
 CREATE TABLE IF NOT EXISTS restaurante_plato (
@@ -18,3 +27,24 @@ CREATE TABLE IF NOT EXISTS restaurante_plato (
     FOREIGN KEY (id_plato) REFERENCES plato(id),
     FOREIGN KEY (cif_restaurante) REFERENCES restaurante(cif)
 );
+-- La clave primaria empieza por id_plato y no sirve para buscar la carta de un local. PostgreSQL no indexa las
+-- claves ajenas y H2 solo la columna; con id_plato la carta se lee del indice sin ir a la tabla
+CREATE INDEX IF NOT EXISTS idx_restaurante_plato_cif ON restaurante_plato (cif_restaurante, id_plato);
+-- Sin indice en plato (categoria, precio) para los filtros de carta: H2 planifica sin ver los parametros, lo prefiere
+-- al de cif_restaurante y recorre todo el rango de precio de la categoria para leer una carta de veinte platos
+
+-- Registro de cambios del catalogo para quien lo replica. Cada transaccion guarda sus cambios sin numero y sin
+-- bloquear a las demas; tras el commit se numeran en orden bajo el bloqueo de la fila de cambio_ultimo, asi que los
+-- numeros se confirman en orden y leer desde un numero no salta ninguno
+CREATE TABLE IF NOT EXISTS cambio_ultimo (
+    seq BIGINT NOT NULL
+);
+INSERT INTO cambio_ultimo (seq) SELECT 0 WHERE NOT EXISTS (SELECT 1 FROM cambio_ultimo);
+CREATE TABLE IF NOT EXISTS cambio (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    seq BIGINT UNIQUE,
+    tipo VARCHAR(32) NOT NULL,
+    plato INT,
+    cif VARCHAR(255),
+    datos VARCHAR(2000)
+);
@@ -0,0 +1,80 @@
+package com.helloworld.babel.restaurant;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Envuelve el DataSource para contar las sentencias que se envian a la base de datos desde el hilo del test. Las
+ * de otros hilos, como la numeracion del registro de cambios tras cada commit, no cuentan.
+ */
+@TestConfiguration
+public class ContadorConsultas {
+
+	private static final Set<String> SENTENCIAS = Set.of("prepareStatement", "createStatement", "prepareCall");
+
+	private final AtomicInteger consultas = new AtomicInteger();
+	private volatile Thread hilo;
+
+	public int getConsultas() {
+		return consultas.get();
+	}
+
+	public void reiniciar() {
+		hilo = Thread.currentThread();
+		consultas.set(0);
+	}
+
+	@Bean
+	static BeanPostProcessor contadorConsultasPostProcessor(ContadorConsultas contador) {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (bean instanceof DataSource dataSource) {
+					return contador.envolver(dataSource);
+				}
+				return bean;
+			}
+		};
+	}
+
+	private DataSource envolver(DataSource dataSource) {
+		return (DataSource) Proxy.newProxyInstance(
+				getClass().getClassLoader(),
+				new Class<?>[]{DataSource.class},
+				(proxy, method, args) -> {
+					Object resultado = invocar(dataSource, method, args);
+					if (resultado instanceof Connection connection) {
+						return envolver(connection);
+					}
+					return resultado;
+				});
+	}
+
+	private Connection envolver(Connection connection) {
+		return (Connection) Proxy.newProxyInstance(
+				getClass().getClassLoader(),
+				new Class<?>[]{Connection.class},
+				(proxy, method, args) -> {
+					if (SENTENCIAS.contains(method.getName()) && Thread.currentThread() == hilo) {
+						consultas.incrementAndGet();
+					}
+					return invocar(connection, method, args);
+				});
+	}
+
+	private static Object invocar(Object destino, java.lang.reflect.Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(destino, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+}
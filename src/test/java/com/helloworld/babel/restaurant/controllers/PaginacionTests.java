@@ -0,0 +1,116 @@
+package com.helloworld.babel.restaurant.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@Transactional
+class PaginacionTests {
+
+	private static final Pattern SIGUIENTE = Pattern.compile("<(.+)>; rel=\"next\"");
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void lasPaginasDePlatosSiguenElEnlaceYRecorrenTodosLosPlatos() throws Exception {
+		assertEquals(ids("/restaurante/platos", "id"), paginas("/restaurante/platos?limit=4", "id"));
+	}
+
+	@Test
+	void lasPaginasDeLocalesSiguenElEnlaceYRecorrenTodosLosLocales() throws Exception {
+		assertEquals(ids("/restaurante/locales", "cif"), paginas("/restaurante/locales?limit=2", "cif"));
+	}
+
+	@Test
+	void unaPaginaIncompletaNoEnlazaConLaSiguiente() throws Exception {
+		mockMvc.perform(get("/restaurante/platos").param("after", String.valueOf(Integer.MAX_VALUE)).param("limit", "5"))
+				.andExpect(status().isOk())
+				.andExpect(header().doesNotExist(HttpHeaders.LINK));
+	}
+
+	@Test
+	void elLimiteVaDeUnoAMil() throws Exception {
+		mockMvc.perform(get("/restaurante/platos").param("limit", "1000"))
+				.andExpect(status().isOk());
+		mockMvc.perform(get("/restaurante/platos").param("limit", "1001"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/restaurante/platos").param("limit", "0"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/restaurante/locales").param("limit", "1001"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void unCursorQueNoEsUnIdEsUnaPeticionIncorrecta() throws Exception {
+		mockMvc.perform(get("/restaurante/platos").param("after", "abc").param("limit", "5"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/restaurante/platos").param("after", "1").param("limit", "x"))
+				.andExpect(status().isBadRequest());
+	}
+
+	private List<String> paginas(String primera, String campo) throws Exception {
+		List<String> ids = new ArrayList<>();
+		String url = primera;
+		while (url != null) {
+			MockHttpServletResponse respuesta = mockMvc.perform(get(url))
+					.andExpect(status().isOk())
+					.andReturn().getResponse();
+			List<String> pagina = valores(respuesta.getContentAsString(), campo);
+			String enlace = respuesta.getHeader(HttpHeaders.LINK);
+			if (enlace == null) {
+				url = null;
+			} else {
+				Matcher siguiente = SIGUIENTE.matcher(enlace);
+				assertTrue(siguiente.matches(), enlace);
+				// El enlace apunta al ultimo elemento de una pagina completa
+				assertTrue(siguiente.group(1).contains("after=" + pagina.get(pagina.size() - 1)));
+				url = siguiente.group(1);
+			}
+			ids.addAll(pagina);
+		}
+		assertNull(url);
+		return ids;
+	}
+
+	private List<String> ids(String url, String campo) throws Exception {
+		List<String> ids = valores(mockMvc.perform(get(url)).andReturn().getResponse().getContentAsString(), campo);
+		ids.sort(campo.equals("id") ? Comparator.comparingInt(Integer::parseInt) : Comparator.naturalOrder());
+		return ids;
+	}
+
+	private List<String> valores(String json, String campo) throws Exception {
+		List<String> valores = new ArrayList<>();
+		for (JsonNode nodo : objectMapper.readTree(json)) {
+			valores.add(nodo.get(campo).asText());
+		}
+		return valores;
+	}
+}
@@ -0,0 +1,95 @@
+package com.helloworld.babel.restaurant.controllers.cambios;
+
+import com.helloworld.babel.restaurant.model.Cambio;
+import com.helloworld.babel.restaurant.model.Cambio.Tipo;
+import com.helloworld.babel.restaurant.model.Local;
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.Plato.Categoria;
+import com.helloworld.babel.restaurant.model.ResultadoCambios;
+import com.helloworld.babel.restaurant.servicios.cambios.CambiosService;
+import com.helloworld.babel.restaurant.servicios.exceptions.ConflictoVersionException;
+import com.helloworld.babel.restaurant.servicios.locales.LocalesService;
+import com.helloworld.babel.restaurant.servicios.platos.PlatosService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Sin @Transactional: los cambios se registran y se avisan al confirmar cada transaccion
+@SpringBootTest(properties = "restaurant.cambios.espera=5s")
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+class CambiosControllerImplTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private CambiosService cambiosService;
+
+	@Autowired
+	private PlatosService platosService;
+
+	@Autowired
+	private LocalesService localesService;
+
+	@Test
+	void registraCadaCambioConfirmadoConNumerosSeguidos() {
+		long desde = cambiosService.getCambios(null, 100).getUltimo();
+
+		int plato = (int) platosService.createPlato(new Plato(0, "Registrado", 5.0, Categoria.PRIMER_PLATO));
+		localesService.upsertLocal(new Local("F00000001", "Local registrado", "Calle Cambios, 1", "600000000"));
+		localesService.addPlato("F00000001", plato);
+		long version = localesService.getVersion("F00000001").orElseThrow();
+		// Un cambio que se deshace no deja nada en el registro
+		assertThrows(ConflictoVersionException.class, () -> localesService.updateLocal(
+				new Local("F00000001", "Otro nombre", "Calle Cambios, 1", "600000000"), version - 1));
+		localesService.deleteLocal("F00000001");
+		platosService.deletePlato(plato);
+
+		ResultadoCambios resultado = cambiosService.getCambios(desde, 100);
+
+		List<Cambio> cambios = resultado.getCambios();
+		assertEquals(List.of(Tipo.PLATO_CREADO, Tipo.LOCAL_CREADO, Tipo.PLATO_ANADIDO_A_CARTA,
+				Tipo.LOCAL_ELIMINADO, Tipo.PLATO_ELIMINADO), cambios.stream().map(Cambio::getTipo).toList());
+		for (int i = 0; i < cambios.size(); i++) {
+			assertEquals(desde + i + 1, cambios.get(i).getSeq());
+		}
+		assertEquals(desde + cambios.size(), resultado.getUltimo());
+		assertEquals("F00000001", cambios.get(2).getCif());
+		assertEquals(plato, cambios.get(2).getPlato());
+		assertTrue(cambios.get(1).getDatos().contains("\"nombre\":\"Local registrado\""));
+	}
+
+	@Test
+	void getCambiosEsperaAlSiguienteCommit() throws Exception {
+		long desde = cambiosService.getCambios(null, 100).getUltimo();
+
+		MvcResult espera = mockMvc.perform(get("/restaurante/cambios").param("desde", String.valueOf(desde)))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		int plato = (int) platosService.createPlato(new Plato(0, "Esperado", 7.5, Categoria.POSTRE));
+
+		mockMvc.perform(asyncDispatch(espera))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.cambios[0].tipo").value("PLATO_CREADO"))
+				.andExpect(jsonPath("$.cambios[0].plato").value(plato))
+				.andExpect(jsonPath("$.cambios[0].datos.nombre").value("Esperado"))
+				.andExpect(jsonPath("$.ultimo").value(desde + 1));
+		platosService.deletePlato(plato);
+	}
+}
@@ -0,0 +1,214 @@
+package com.helloworld.babel.restaurant.controllers.importacion;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.helloworld.babel.restaurant.model.Local;
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.servicios.catalogo.OyenteCatalogo;
+import com.helloworld.babel.restaurant.servicios.locales.LocalesService;
+import com.helloworld.babel.restaurant.servicios.platos.PlatosService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Sin transaccion en el test: la importacion confirma cada lote por su cuenta y lo creado se borra al terminar.
+ */
+@SpringBootTest(properties = "restaurant.importacion.tamano-lote=2")
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+class ImportacionControllerImplTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private PlatosService platosService;
+
+	@Autowired
+	private LocalesService localesService;
+
+	@Autowired
+	private LotesConfirmados lotes;
+
+	private final List<Integer> platosCreados = new ArrayList<>();
+	private final List<String> localesCreados = new ArrayList<>();
+
+	@AfterEach
+	void borrarImportados() {
+		platosCreados.forEach(platosService::deletePlato);
+		localesCreados.forEach(localesService::deleteLocal);
+		lotes.tamanos.clear();
+	}
+
+	@Test
+	void importaPlatosNdjsonEnLotesDelTamanoConfiguradoYDevuelveLosIdsEnOrden() throws Exception {
+		String ndjson = plato("Importado 0") + "\n" + plato("Importado 1") + "\n" + plato("Importado 2") + "\n"
+				+ plato("Importado 3") + "\n" + plato("Importado 4") + "\n";
+
+		JsonNode resultado = importar("/restaurante/platos:bulk", MediaType.APPLICATION_NDJSON, ndjson);
+
+		assertEquals(5, resultado.get("total").asInt());
+		assertEquals(5, resultado.get("insertados").asInt());
+		assertEquals(0, resultado.get("errores").size());
+		assertEquals(List.of(2, 2, 1), lotes.tamanos);
+		comprobarPlatosEnOrden(resultado, "Importado 0", "Importado 1", "Importado 2", "Importado 3", "Importado 4");
+	}
+
+	@Test
+	void importaPlatosDeUnArrayJson() throws Exception {
+		String json = "[" + plato("Importado A") + ", " + plato("Importado B") + ", " + plato("Importado C") + "]";
+
+		JsonNode resultado = importar("/restaurante/platos:bulk", MediaType.APPLICATION_JSON, json);
+
+		assertEquals(3, resultado.get("insertados").asInt());
+		assertEquals(List.of(2, 1), lotes.tamanos);
+		comprobarPlatosEnOrden(resultado, "Importado A", "Importado B", "Importado C");
+	}
+
+	@Test
+	void unLoteQueFallaEnLaBaseDeDatosSeReintentaFilaAFila() throws Exception {
+		// El nombre cabe en la validacion pero no en la columna: falla el lote entero, no la validacion
+		String json = "[" + plato("Importado bueno 0") + ", " + plato("x".repeat(300)) + ", "
+				+ plato("Importado bueno 2") + ", {\"nombre\":\"Importado caro\",\"precio\":10000,\"categoria\":\"Postre\"}, "
+				+ plato("Importado bueno 4") + "]";
+
+		JsonNode resultado = importar("/restaurante/platos:bulk", MediaType.APPLICATION_JSON, json);
+
+		assertEquals(5, resultado.get("total").asInt());
+		assertEquals(3, resultado.get("insertados").asInt());
+		JsonNode ids = resultado.get("ids");
+		assertTrue(ids.get(1).isNull());
+		assertTrue(ids.get(3).isNull());
+		JsonNode errores = resultado.get("errores");
+		assertEquals(2, errores.size());
+		assertEquals(1, errores.get(0).get("fila").asInt());
+		assertEquals(3, errores.get(1).get("fila").asInt());
+		// La fila buena del lote fallido se confirma sola; el lote siguiente va entero
+		assertEquals(List.of(1, 2), lotes.tamanos);
+		for (int fila : List.of(0, 2, 4)) {
+			platosCreados.add(ids.get(fila).asInt());
+			assertEquals("Importado bueno " + fila, platosService.getPlatosById(ids.get(fila).asInt()).orElseThrow().getNombre());
+		}
+		assertEquals(1, platosService.getPlatos().stream().filter(p -> p.getNombre().equals("Importado bueno 0")).count());
+	}
+
+	@Test
+	void unJsonRotoAMitadConservaLasFilasLeidas() throws Exception {
+		String ndjson = plato("Importado antes 0") + "\n" + plato("Importado antes 1") + "\n{\"nombre\": \n";
+
+		JsonNode resultado = importar("/restaurante/platos:bulk", MediaType.APPLICATION_NDJSON, ndjson);
+
+		assertEquals(2, resultado.get("total").asInt());
+		assertEquals(2, resultado.get("insertados").asInt());
+		JsonNode errores = resultado.get("errores");
+		assertEquals(1, errores.size());
+		assertEquals(2, errores.get(0).get("fila").asInt());
+		assertTrue(errores.get(0).get("mensaje").asText().startsWith("JSON mal formado"));
+		comprobarPlatosEnOrden(resultado, "Importado antes 0", "Importado antes 1");
+	}
+
+	@Test
+	void unLocalQueYaExisteSeInformaYLosDemasSeConfirman() throws Exception {
+		String json = "[" + local("X00000001") + ", " + local("A12345678") + ", " + local("X00000002") + "]";
+
+		JsonNode resultado = importar("/restaurante/locales:bulk", MediaType.APPLICATION_JSON, json);
+
+		JsonNode ids = resultado.get("ids");
+		assertEquals("X00000001", ids.get(0).asText());
+		assertTrue(ids.get(1).isNull());
+		assertEquals("X00000002", ids.get(2).asText());
+		localesCreados.addAll(List.of("X00000001", "X00000002"));
+		assertEquals(1, resultado.get("errores").get(0).get("fila").asInt());
+		assertTrue(localesService.getLocalByCif("X00000001").isPresent());
+		assertTrue(localesService.getLocalByCif("X00000002").isPresent());
+		assertEquals("Calle Mayor, 1", localesService.getLocalByCif("A12345678").map(Local::getDireccion).orElseThrow());
+	}
+
+	@Test
+	void lasFilasSeValidanConLasRestriccionesDelModelo() throws Exception {
+		String json = "[" + plato("No") + ", {\"nombre\":\"Importado barato\",\"precio\":-1,\"categoria\":\"Postre\"}]";
+
+		JsonNode platos = importar("/restaurante/platos:bulk", MediaType.APPLICATION_JSON, json);
+
+		assertEquals(0, platos.get("insertados").asInt());
+		assertEquals("El nombre debe tener como mínimo 3 caracteres", platos.get("errores").get(0).get("mensaje").asText());
+		assertEquals("El precio debe estar entre 0 y 9999.99", platos.get("errores").get(1).get("mensaje").asText());
+
+		String telefonoCorto = "{\"cif\":\"X00000003\",\"nombre\":\"Importado\",\"direccion\":\"Calle Importada, 1\",\"telefono\":\"6000\"}";
+		JsonNode locales = importar("/restaurante/locales:bulk", MediaType.APPLICATION_JSON, "[" + telefonoCorto + "]");
+
+		assertEquals(0, locales.get("insertados").asInt());
+		assertEquals("El teléfono debe tener 9 caracteres siempre", locales.get("errores").get(0).get("mensaje").asText());
+	}
+
+	private JsonNode importar(String uri, MediaType tipo, String cuerpo) throws Exception {
+		String respuesta = mockMvc.perform(post(uri).contentType(tipo).content(cuerpo))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(respuesta);
+	}
+
+	private void comprobarPlatosEnOrden(JsonNode resultado, String... nombres) {
+		JsonNode ids = resultado.get("ids");
+		for (int fila = 0; fila < nombres.length; fila++) {
+			assertNotNull(ids.get(fila));
+			int id = ids.get(fila).asInt();
+			platosCreados.add(id);
+			assertEquals(nombres[fila], platosService.getPlatosById(id).orElseThrow().getNombre());
+		}
+		assertNull(ids.get(nombres.length));
+	}
+
+	private static String plato(String nombre) {
+		return "{\"nombre\":\"" + nombre + "\",\"precio\":5.0,\"categoria\":\"Postre\"}";
+	}
+
+	private static String local(String cif) {
+		return "{\"cif\":\"" + cif + "\",\"nombre\":\"Importado\",\"direccion\":\"Calle Importada, 1\",\"telefono\":\"600000000\"}";
+	}
+
+	/**
+	 * Tamano de cada lote de platos confirmado, en el orden de los commits.
+	 */
+	static class LotesConfirmados implements OyenteCatalogo {
+
+		final List<Integer> tamanos = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void platosCreados(Collection<Plato> platos) {
+			tamanos.add(platos.size());
+		}
+	}
+
+	@TestConfiguration
+	static class Config {
+
+		@Bean
+		LotesConfirmados lotesConfirmados() {
+			return new LotesConfirmados();
+		}
+	}
+}
@@ -0,0 +1,272 @@
+package com.helloworld.babel.restaurant.controllers.locales;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.helloworld.babel.restaurant.controllers.FormatosConfig;
+import com.helloworld.babel.restaurant.model.Local;
+import com.helloworld.babel.restaurant.servicios.locales.CartasCache;
+import com.helloworld.babel.restaurant.servicios.locales.LocalesService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "restaurant.locales.respuesta=streaming")
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@Transactional
+class LocalesControllerImplTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private CartasCache cartasCache;
+
+	@Autowired
+	private LocalesService localesService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@AfterEach
+	void vaciarCartas() {
+		cartasCache.invalidar();
+	}
+
+	@Test
+	void getLocalByCifRespondeNotModifiedHastaQueCambiaLaCarta() throws Exception {
+		String etag = mockMvc.perform(get("/restaurante/locales/C12345678"))
+				.andExpect(status().isOk())
+				.andExpect(header().exists(HttpHeaders.ETAG))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		mockMvc.perform(get("/restaurante/locales/C12345678").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified())
+				.andExpect(content().string(""));
+
+		mockMvc.perform(post("/restaurante/locales/C12345678/platos")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("1"))
+				.andExpect(status().isCreated());
+
+		String nuevoEtag = mockMvc.perform(get("/restaurante/locales/C12345678").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertNotEquals(etag, nuevoEtag);
+	}
+
+	@Test
+	void exportLocalesEscribeCadaLocalConSuCartaEnUnaLinea() throws Exception {
+		MvcResult exportacion = mockMvc.perform(get("/restaurante/locales").accept(MediaType.APPLICATION_NDJSON))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		String ndjson = mockMvc.perform(asyncDispatch(exportacion))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+
+		Map<String, Integer> platosPorLocal = new HashMap<>();
+		String anterior = "";
+		for (String linea : ndjson.lines().toList()) {
+			JsonNode local = objectMapper.readTree(linea);
+			String cif = local.get("cif").asText();
+			// En orden de CIF, como las paginas
+			assertTrue(cif.compareTo(anterior) > 0);
+			anterior = cif;
+			platosPorLocal.put(cif, local.get("carta").size());
+		}
+		assertEquals(6, platosPorLocal.get("A12345678"));
+		assertEquals(6, platosPorLocal.get("B12345678"));
+		assertEquals(6, platosPorLocal.get("C12345678"));
+	}
+
+	@Test
+	void getPlatosFiltraYOrdenaIgualConYSinLaCartaEnCache() throws Exception {
+		for (int vez = 0; vez < 2; vez++) {
+			// La primera vez filtra la consulta; la segunda, la carta ya cargada en la cache
+			mockMvc.perform(get("/restaurante/locales/A12345678/platos")
+							.param("categoria", "Plato principal")
+							.param("minPrecio", "10")
+							.param("sort", "precio"))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$[*].nombre").value(contains("Hamburguesa", "Solomillo")));
+			// Con el mismo precio desempata el ID
+			mockMvc.perform(get("/restaurante/locales/A12345678/platos")
+							.param("sort", "precio")
+							.param("limit", "3"))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$[*].nombre").value(contains("Ensalada", "Fruta", "Gazpacho")));
+			mockMvc.perform(get("/restaurante/locales/A12345678/platos"))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.length()").value(6));
+		}
+
+		mockMvc.perform(get("/restaurante/locales/Z00000000/platos").param("sort", "nombre"))
+				.andExpect(status().isNotFound());
+		mockMvc.perform(get("/restaurante/locales/A12345678/platos").param("sort", "categoria"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void createOrUpdateLocalCreaYDespuesActualiza() throws Exception {
+		String local = "{\"nombre\":\"Nuevo\",\"direccion\":\"Calle 1\",\"telefono\":\"600000000\"}";
+
+		mockMvc.perform(put("/restaurante/locales/Z99999999").contentType(MediaType.APPLICATION_JSON).content(local))
+				.andExpect(status().isCreated())
+				.andExpect(header().string(HttpHeaders.LOCATION, "/restaurante/locales/Z99999999"));
+		mockMvc.perform(put("/restaurante/locales/Z99999999").contentType(MediaType.APPLICATION_JSON).content(local))
+				.andExpect(status().isNoContent());
+	}
+
+	@Test
+	void createOrUpdateLocalConIfMatchDevuelveConflictoConElLocalActual() throws Exception {
+		String etag = mockMvc.perform(get("/restaurante/locales/C12345678"))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		String primero = "{\"nombre\":\"Primero\",\"direccion\":\"Calle 1\",\"telefono\":\"600000000\"}";
+		String segundo = "{\"nombre\":\"Segundo\",\"direccion\":\"Calle 2\",\"telefono\":\"600000000\"}";
+
+		String nuevoEtag = mockMvc.perform(put("/restaurante/locales/C12345678").header(HttpHeaders.IF_MATCH, etag)
+						.contentType(MediaType.APPLICATION_JSON).content(primero))
+				.andExpect(status().isNoContent())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertNotEquals(etag, nuevoEtag);
+
+		// Otro editor con el ETag antiguo recibe el local actual para reintentar sobre el
+		mockMvc.perform(put("/restaurante/locales/C12345678").header(HttpHeaders.IF_MATCH, etag)
+						.contentType(MediaType.APPLICATION_JSON).content(segundo))
+				.andExpect(status().isConflict())
+				.andExpect(header().string(HttpHeaders.ETAG, nuevoEtag))
+				.andExpect(jsonPath("$.nombre").value("Primero"));
+
+		mockMvc.perform(put("/restaurante/locales/C12345678").header(HttpHeaders.IF_MATCH, nuevoEtag)
+						.contentType(MediaType.APPLICATION_JSON).content(segundo))
+				.andExpect(status().isNoContent());
+		mockMvc.perform(put("/restaurante/locales/Z99999999").header(HttpHeaders.IF_MATCH, "*")
+						.contentType(MediaType.APPLICATION_JSON).content(segundo))
+				.andExpect(status().isPreconditionFailed());
+	}
+
+	@Test
+	void createOrUpdateLocalAceptaUnaListaDeEtagsYElAsterisco() throws Exception {
+		String etag = mockMvc.perform(get("/restaurante/locales/C12345678"))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		String local = "{\"nombre\":\"Primero\",\"direccion\":\"Calle 1\",\"telefono\":\"600000000\"}";
+
+		// Basta con que uno de los ETags de la lista sea el actual; los debiles y los ajenos no coinciden
+		String nuevoEtag = mockMvc.perform(put("/restaurante/locales/C12345678")
+						.header(HttpHeaders.IF_MATCH, "\"0\", W/" + etag + ", \"x\", " + etag)
+						.contentType(MediaType.APPLICATION_JSON).content(local))
+				.andExpect(status().isNoContent())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		mockMvc.perform(put("/restaurante/locales/C12345678").header(HttpHeaders.IF_MATCH, "\"0\", " + etag)
+						.contentType(MediaType.APPLICATION_JSON).content(local))
+				.andExpect(status().isConflict())
+				.andExpect(header().string(HttpHeaders.ETAG, nuevoEtag));
+		mockMvc.perform(put("/restaurante/locales/C12345678").header(HttpHeaders.IF_MATCH, "W/" + nuevoEtag + ", \"x\"")
+						.contentType(MediaType.APPLICATION_JSON).content(local))
+				.andExpect(status().isPreconditionFailed());
+
+		mockMvc.perform(put("/restaurante/locales/C12345678").header(HttpHeaders.IF_MATCH, "*")
+						.contentType(MediaType.APPLICATION_JSON).content(local))
+				.andExpect(status().isNoContent())
+				.andExpect(header().string(HttpHeaders.ETAG, not(nuevoEtag)));
+	}
+
+	@Test
+	void replaceCartaYUpdateCartaDevuelvenLaCartaResultante() throws Exception {
+		mockMvc.perform(put("/restaurante/locales/B12345678/platos").contentType(MediaType.APPLICATION_JSON)
+						.content("[3, 1, 2]"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(3))
+				.andExpect(jsonPath("$[2].id").value(2));
+
+		mockMvc.perform(patch("/restaurante/locales/B12345678/platos").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"anadir\": [4], \"quitar\": [1, 9]}"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[*].id", containsInAnyOrder(2, 3, 4)));
+	}
+
+	@Test
+	void replaceCartaYUpdateCartaRechazanCuerposNoValidos() throws Exception {
+		mockMvc.perform(put("/restaurante/locales/B12345678/platos").contentType(MediaType.APPLICATION_JSON)
+						.content("[1, null]"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(patch("/restaurante/locales/B12345678/platos").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"anadir\": [null]}"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(patch("/restaurante/locales/B12345678/platos").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"quitar\": null}"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(patch("/restaurante/locales/B12345678/platos").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"anadir\": [2], \"quitar\": [2]}"))
+				.andExpect(status().isBadRequest());
+
+		mockMvc.perform(put("/restaurante/locales/B12345678/platos").contentType(MediaType.APPLICATION_JSON)
+						.content("[1, 999]"))
+				.andExpect(status().isNotFound());
+		mockMvc.perform(patch("/restaurante/locales/Z99999999/platos").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"anadir\": [1]}"))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	void getLocalesEnStreamingEscribeElMismoJsonQueLosObjetos() throws Exception {
+		localesService.upsertLocal(new Local("Z99999999", "Sin carta", "Calle \"Nueva\", 1", "600000000"));
+
+		mockMvc.perform(get("/restaurante/locales"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaType.APPLICATION_JSON))
+				.andExpect(content().string(objectMapper.writeValueAsString(localesService.getLocales())));
+	}
+
+	@Test
+	void getLocalesEnStreamingEscribeSmileYCborConLosMismosCampos() throws Exception {
+		JsonNode esperado = objectMapper.valueToTree(localesService.getLocales());
+
+		byte[] smile = mockMvc.perform(get("/restaurante/locales").accept(FormatosConfig.APPLICATION_SMILE))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(FormatosConfig.APPLICATION_SMILE))
+				.andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+				.andReturn().getResponse().getContentAsByteArray();
+		assertEquals(esperado, new ObjectMapper(new SmileFactory()).readTree(smile));
+
+		byte[] cbor = mockMvc.perform(get("/restaurante/locales").accept("application/cbor;q=0.9, text/html"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+				.andReturn().getResponse().getContentAsByteArray();
+		assertEquals(esperado, new ObjectMapper(new CBORFactory()).readTree(cbor));
+
+		mockMvc.perform(get("/restaurante/locales").accept(MediaType.TEXT_HTML))
+				.andExpect(status().isNotAcceptable());
+	}
+}
@@ -0,0 +1,56 @@
+package com.helloworld.babel.restaurant.controllers.lotes;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Collections;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+class LotesControllerImplTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void getPlatosByIdsDevuelveLosEncontradosEnOrdenYLosQueFaltan() throws Exception {
+		mockMvc.perform(get("/restaurante/platos").param("ids", "3,999,1,3"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.encontrados.length()").value(2))
+				.andExpect(jsonPath("$.encontrados[0].id").value(3))
+				.andExpect(jsonPath("$.encontrados[1].id").value(1))
+				.andExpect(jsonPath("$.noEncontrados[0]").value(999));
+
+		mockMvc.perform(get("/restaurante/platos").param("ids", "1,x"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void batchGetDeLocalesIncluyeLasCartas() throws Exception {
+		mockMvc.perform(post("/restaurante/locales:batchGet")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("[\"C12345678\", \"Z99999999\", \"A12345678\"]"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.encontrados[0].cif").value("C12345678"))
+				.andExpect(jsonPath("$.encontrados[1].cif").value("A12345678"))
+				.andExpect(jsonPath("$.encontrados[1].carta.length()").value(6))
+				.andExpect(jsonPath("$.noEncontrados[0]").value("Z99999999"));
+
+		String demasiados = "[" + String.join(",", Collections.nCopies(1001, "\"A12345678\"")) + "]";
+		mockMvc.perform(post("/restaurante/locales:batchGet")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(demasiados))
+				.andExpect(status().isBadRequest());
+	}
+}
@@ -0,0 +1,84 @@
+package com.helloworld.babel.restaurant.controllers.platos;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.helloworld.babel.restaurant.servicios.platos.PlatosService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+class PlatosControllerImplTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private PlatosService platosService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void exportPlatosEscribeUnPlatoPorLineaEnOrdenDeId() throws Exception {
+		MvcResult exportacion = mockMvc.perform(get("/restaurante/platos").accept(MediaType.APPLICATION_NDJSON))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		String ndjson = mockMvc.perform(asyncDispatch(exportacion))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+
+		List<String> lineas = ndjson.lines().toList();
+		List<Integer> ids = platosService.getPlatos().stream().map(p -> p.getId()).sorted().toList();
+		assertEquals(ids.size(), lineas.size());
+		for (int i = 0; i < lineas.size(); i++) {
+			JsonNode plato = objectMapper.readTree(lineas.get(i));
+			assertEquals(ids.get(i), plato.get("id").asInt());
+		}
+	}
+
+	@Test
+	@Transactional
+	void updatePlatoAceptaUnaListaDeEtagsYElAsterisco() throws Exception {
+		MvcResult actual = mockMvc.perform(get("/restaurante/platos/1")).andReturn();
+		String etag = actual.getResponse().getHeader(HttpHeaders.ETAG);
+		String plato = actual.getResponse().getContentAsString();
+
+		String nuevoEtag = mockMvc.perform(put("/restaurante/platos/1").header(HttpHeaders.IF_MATCH, "\"0\", " + etag)
+						.contentType(MediaType.APPLICATION_JSON).content(plato))
+				.andExpect(status().isNoContent())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertNotEquals(etag, nuevoEtag);
+
+		mockMvc.perform(put("/restaurante/platos/1").header(HttpHeaders.IF_MATCH, "\"0\", " + etag)
+						.contentType(MediaType.APPLICATION_JSON).content(plato))
+				.andExpect(status().isConflict())
+				.andExpect(header().string(HttpHeaders.ETAG, nuevoEtag));
+		mockMvc.perform(put("/restaurante/platos/1").header(HttpHeaders.IF_MATCH, "*")
+						.contentType(MediaType.APPLICATION_JSON).content(plato))
+				.andExpect(status().isNoContent());
+		mockMvc.perform(put("/restaurante/platos/99999").header(HttpHeaders.IF_MATCH, "*")
+						.contentType(MediaType.APPLICATION_JSON).content(plato))
+				.andExpect(status().isPreconditionFailed());
+	}
+}
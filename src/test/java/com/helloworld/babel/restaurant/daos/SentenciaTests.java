@@ -0,0 +1,28 @@
+package com.helloworld.babel.restaurant.daos;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SentenciaTests {
+
+	@Test
+	void porBloquesFijaElFetchSizeYMantieneLosValores() throws Exception {
+		Sentencia sentencia = new Sentencia("SELECT X FROM SYSTEM_RANGE(:desde, :hasta) WHERE X <> :desde + 1 ORDER BY X");
+		try (Connection con = DriverManager.getConnection("jdbc:h2:mem:sentencia-tests", "sa", "");
+			 PreparedStatement ps = sentencia.porBloques(3, 6).createPreparedStatement(con);
+			 ResultSet rs = ps.executeQuery()) {
+			assertEquals(Sentencia.FILAS_POR_BLOQUE, ps.getFetchSize());
+			assertTrue(rs.next());
+			assertEquals(3, rs.getLong(1));
+			assertTrue(rs.next());
+			assertEquals(5, rs.getLong(1));
+		}
+	}
+}
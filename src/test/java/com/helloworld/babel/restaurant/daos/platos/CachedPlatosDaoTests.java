@@ -0,0 +1,61 @@
+package com.helloworld.babel.restaurant.daos.platos;
+
+import com.helloworld.babel.restaurant.ContadorConsultas;
+import com.helloworld.babel.restaurant.daos.model.Plato;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@Import(ContadorConsultas.class)
+@Transactional
+class CachedPlatosDaoTests {
+
+	@Autowired
+	private CachedPlatosDao platosDao;
+
+	@Autowired
+	private ContadorConsultas contadorConsultas;
+
+	@BeforeEach
+	void vaciarCache() {
+		platosDao.getCache().invalidateAll();
+	}
+
+	@Test
+	void getPlatosByIdSoloConsultaLaPrimeraVez() {
+		long aciertos = platosDao.getStats().hitCount();
+		contadorConsultas.reiniciar();
+
+		platosDao.getPlatosById(1);
+		platosDao.getPlatosById(1);
+		platosDao.getPlatosById(1);
+
+		assertEquals(1, contadorConsultas.getConsultas());
+		assertEquals(aciertos + 2, platosDao.getStats().hitCount());
+	}
+
+	@Test
+	void lasEscriturasSeVenEnLaSiguienteLectura() {
+		platosDao.getPlatosById(2);
+
+		long version = platosDao.getVersion(2).orElseThrow();
+		platosDao.updatePlato(new Plato(2, "Salmorejo", 7.5, 1), version).orElseThrow();
+		assertEquals("Salmorejo", platosDao.getPlatosById(2).orElseThrow().nombre());
+
+		platosDao.removeRestaurantesFromPlato(2);
+		platosDao.deletePlato(2);
+		assertTrue(platosDao.getPlatosById(2).isEmpty());
+
+		long id = platosDao.createPlato(new Plato(null, "Croquetas", 8.0, 1));
+		assertEquals("Croquetas", platosDao.getPlatosById((int) id).orElseThrow().nombre());
+	}
+}
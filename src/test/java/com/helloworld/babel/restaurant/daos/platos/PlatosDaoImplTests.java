@@ -0,0 +1,91 @@
+package com.helloworld.babel.restaurant.daos.platos;
+
+import com.helloworld.babel.restaurant.daos.model.Plato;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@Transactional
+class PlatosDaoImplTests {
+
+	@Autowired
+	private PlatosDaoImpl platosDao;
+
+	@Test
+	void upsertPlatoIndicaSiCreaOActualiza() {
+		assertFalse(platosDao.upsertPlato(new Plato(1, "Actualizado", 9.5, 2)));
+		assertEquals("Actualizado", platosDao.getPlatosById(1).orElseThrow().nombre());
+
+		assertTrue(platosDao.upsertPlato(new Plato(5000, "Nuevo", 4.0, 1)));
+		assertEquals("Nuevo", platosDao.getPlatosById(5000).orElseThrow().nombre());
+	}
+
+	@Test
+	void updatePlatoConVersionSoloActualizaLaVersionVigente() {
+		long version = platosDao.getVersion(1).orElseThrow();
+
+		long nueva = platosDao.updatePlato(new Plato(1, "Primero", 9.5, 2), version).orElseThrow();
+		assertEquals(nueva, platosDao.getVersion(1).orElseThrow());
+
+		assertTrue(platosDao.updatePlato(new Plato(1, "Segundo", 9.5, 2), version).isEmpty());
+		assertEquals("Primero", platosDao.getPlatosById(1).orElseThrow().nombre());
+		assertTrue(platosDao.updatePlato(new Plato(5000, "No existe", 1.0, 1), version).isEmpty());
+	}
+
+	@Test
+	void updatePlatoSinVersionActualizaCualquieraQueExista() {
+		platosDao.updatePlato(new Plato(1, "Primero", 9.5, 2), platosDao.getVersion(1).orElseThrow()).orElseThrow();
+
+		long nueva = platosDao.updatePlato(new Plato(1, "Segundo", 9.5, 2), null).orElseThrow();
+		assertEquals(nueva, platosDao.getVersion(1).orElseThrow());
+		assertEquals("Segundo", platosDao.getPlatosById(1).orElseThrow().nombre());
+		assertTrue(platosDao.updatePlato(new Plato(5000, "No existe", 1.0, 1), null).isEmpty());
+	}
+
+	@Test
+	void createPlatoNoReutilizaUnIdCreadoPorUpsert() {
+		long siguiente = platosDao.createPlato(new Plato(0, "Antes", 1.0, 1)) + 1;
+		platosDao.upsertPlato(new Plato((int) siguiente, "Con ID", 1.0, 1));
+
+		long id = platosDao.createPlato(new Plato(0, "Despues", 1.0, 1));
+
+		assertTrue(id > siguiente);
+	}
+
+	@Test
+	void getPlatosByIdsConsultaPorTrozosSinRepetir() {
+		// Mas IDs que un trozo, con repetidos que caen en trozos distintos
+		List<Integer> ids = new ArrayList<>();
+		for (int id = 1200; id >= 1; id--) {
+			ids.add(id);
+		}
+		ids.add(1);
+
+		List<Plato> platos = platosDao.getPlatosByIds(ids, Plato::new);
+
+		assertEquals(9, platos.size());
+		assertEquals(9, platos.stream().map(Plato::id).distinct().count());
+	}
+
+	@Test
+	void getPlatosGroupedByRestauranteCifSoloDevuelveLosLocalesPedidos() {
+		Map<String, List<Plato>> cartas = platosDao.getPlatosGroupedByRestauranteCif(
+				List.of("C12345678", "A12345678", "Z99999999"), Plato::new);
+
+		assertEquals(2, cartas.size());
+		assertEquals(6, cartas.get("A12345678").size());
+		assertFalse(cartas.containsKey("B12345678"));
+	}
+}
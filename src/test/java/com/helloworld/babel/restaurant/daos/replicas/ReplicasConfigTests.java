@@ -0,0 +1,103 @@
+package com.helloworld.babel.restaurant.daos.replicas;
+
+import com.helloworld.babel.restaurant.controllers.LecturasEnPrimariaFilter;
+import com.helloworld.babel.restaurant.daos.cambios.CambiosDao;
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.Plato.Categoria;
+import com.helloworld.babel.restaurant.model.ResumenInstantanea;
+import com.helloworld.babel.restaurant.servicios.instantanea.InstantaneaService;
+import com.helloworld.babel.restaurant.servicios.platos.PlatosService;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Sin @AutoConfigureTestDatabase, que cambiaria el DataSource enrutado por uno embebido.
+// Con un retraso tan largo la replica solo cambia al sincronizarla desde el test
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:primaria-replicas-tests;DB_CLOSE_DELAY=-1",
+		"restaurant.replicas.urls=jdbc:h2:mem:replica-replicas-tests;DB_CLOSE_DELAY=-1",
+		"restaurant.replicas.local.retraso=1h",
+		"restaurant.instantanea.fichero=target/instantaneas/replicas.instantanea"})
+@AutoConfigureMockMvc
+class ReplicasConfigTests {
+
+	@Autowired
+	private PlatosService platosService;
+
+	@Autowired
+	private ReplicacionLocal replicacion;
+
+	@Autowired
+	private InstantaneaService instantaneaService;
+
+	@Autowired
+	private CambiosDao cambiosDao;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	private Long creado;
+
+	@AfterEach
+	void borrarCreado() {
+		if (creado != null) {
+			platosService.deletePlato(creado.intValue());
+		}
+		replicacion.sincronizar();
+	}
+
+	@Test
+	void lasLecturasVanALaReplicaSalvoTrasEscribir() {
+		creado = platosService.createPlato(new Plato(null, "Solo en la primaria", 5.0, Categoria.POSTRE));
+
+		assertEquals(9, platosService.getPlatos().size());
+		LecturasEnPrimaria.activar();
+		try {
+			assertEquals(10, platosService.getPlatos().size());
+		} finally {
+			LecturasEnPrimaria.desactivar();
+		}
+
+		replicacion.sincronizar();
+		assertEquals(10, platosService.getPlatos().size());
+	}
+
+	@Test
+	void quienEscribeSigueLeyendoDeLaPrimaria() throws Exception {
+		String respuesta = mockMvc.perform(post("/restaurante/platos")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"nombre\":\"Nuevo\",\"precio\":5.0,\"categoria\":\"Postre\"}"))
+				.andExpect(status().isCreated())
+				.andExpect(cookie().exists(LecturasEnPrimariaFilter.COOKIE))
+				.andReturn().getResponse().getContentAsString();
+		creado = Long.valueOf(respuesta);
+
+		mockMvc.perform(get("/restaurante/platos"))
+				.andExpect(jsonPath("$.length()").value(9));
+		mockMvc.perform(get("/restaurante/platos").cookie(new Cookie(LecturasEnPrimariaFilter.COOKIE, "1")))
+				.andExpect(jsonPath("$.length()").value(10));
+	}
+
+	@Test
+	void laInstantaneaSeExportaDeLaPrimaria() throws IOException {
+		creado = platosService.createPlato(new Plato(null, "Solo en la primaria", 5.0, Categoria.POSTRE));
+
+		ResumenInstantanea resumen = instantaneaService.exportar();
+		assertEquals(10, resumen.getPlatos());
+		assertEquals(cambiosDao.getUltimo(), resumen.getUltimoCambio());
+	}
+}
@@ -0,0 +1,112 @@
+package com.helloworld.babel.restaurant.metricas;
+
+import com.helloworld.babel.restaurant.daos.TrozosIn;
+import com.helloworld.babel.restaurant.daos.model.Plato;
+import com.helloworld.babel.restaurant.daos.platos.PlatosDaoImpl;
+import com.helloworld.babel.restaurant.servicios.locales.LocalesService;
+import com.helloworld.babel.restaurant.servicios.platos.PlatosService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+class MetricasDaoTests {
+
+	@Autowired
+	private PlatosDaoImpl platosDao;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private PlatosService platosService;
+
+	@Autowired
+	private LocalesService localesService;
+
+	@Test
+	void cadaConsultaRegistraTiempoYFilas() {
+		platosDao.getPlatosById(1);
+		Timer tiempo = registry.get("restaurant.dao.consultas")
+				.tags("dao", "PlatosDaoImpl", "metodo", "getPlatosById")
+				.timer();
+		long antes = tiempo.count();
+
+		platosDao.getPlatosById(-1);
+
+		assertEquals(antes + 1, tiempo.count());
+		DistributionSummary filas = registry.get("restaurant.dao.filas")
+				.tags("dao", "PlatosDaoImpl", "metodo", "getPlatosById")
+				.summary();
+		assertEquals(1.0, filas.max());
+	}
+
+	@Test
+	void cadaSentenciaDeUnaLlamadaSeCuentaPorSeparado() {
+		List<Integer> ids = IntStream.rangeClosed(1, 2 * TrozosIn.TAMANO + 1).boxed().toList();
+		platosDao.getPlatosByIds(ids, Plato::new);
+		Timer tiempo = registry.get("restaurant.dao.consultas")
+				.tags("dao", "PlatosDaoImpl", "metodo", "getPlatosByIds")
+				.timer();
+		Counter sentencias = registry.get("restaurant.dao.sentencias")
+				.tags("dao", "PlatosDaoImpl", "metodo", "getPlatosByIds")
+				.counter();
+		long llamadas = tiempo.count();
+		double enviadas = sentencias.count();
+
+		platosDao.getPlatosByIds(ids, Plato::new);
+
+		// Una llamada, una consulta por cada trozo del IN
+		assertEquals(llamadas + 1, tiempo.count());
+		assertEquals(enviadas + 3, sentencias.count());
+	}
+
+	@Test
+	void laConversionDeEntidadesDelDaoSeMidePorLote() {
+		Timer platos = registry.get("restaurant.mapeo").tags("modelo", "Plato").timer();
+		Timer locales = registry.get("restaurant.mapeo").tags("modelo", "Local").timer();
+		long platosAntes = platos.count();
+		long localesAntes = locales.count();
+
+		platosService.getPlatosById(1);
+		localesService.getLocalByCif("A12345678");
+
+		assertEquals(platosAntes + 1, platos.count());
+		assertEquals(localesAntes + 1, locales.count());
+	}
+
+	@Test
+	void cadaPeticionRegistraSusConsultas() throws Exception {
+		mockMvc.perform(get("/restaurante/locales")).andExpect(status().isOk());
+		DistributionSummary consultas = registry.get("restaurant.http.consultas")
+				.tags("method", "GET", "uri", "/restaurante/locales", "status", "200")
+				.summary();
+		// El contexto se comparte con otras clases de test que ya han pedido esta uri
+		long peticiones = consultas.count();
+		double total = consultas.totalAmount();
+
+		mockMvc.perform(get("/restaurante/locales")).andExpect(status().isOk());
+
+		assertEquals(peticiones + 1, consultas.count());
+		assertEquals(total + 2.0, consultas.totalAmount());
+	}
+}
@@ -0,0 +1,67 @@
+package com.helloworld.babel.restaurant.servicios.busqueda;
+
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.Plato.Categoria;
+import com.helloworld.babel.restaurant.model.ResultadoBusqueda;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IndicePlatosTests {
+
+	private IndicePlatos indice;
+
+	@BeforeEach
+	void crearIndice() {
+		indice = new IndicePlatos(null, null);
+		indice.platosCreados(List.of(
+				new Plato(1, "Piña asada", 4.5, Categoria.POSTRE),
+				new Plato(2, "Pimientos de Padrón", 6.0, Categoria.PRIMER_PLATO),
+				new Plato(3, "Pollo asado", 12.0, Categoria.SEGUNDO_PLATO),
+				new Plato(4, "Flan de huevo", 3.5, Categoria.POSTRE)));
+		indice.cartaActualizada("A12345678", List.of(new Plato(1, "Piña asada", 4.5, Categoria.POSTRE),
+				new Plato(3, "Pollo asado", 12.0, Categoria.SEGUNDO_PLATO)), List.of());
+	}
+
+	@Test
+	void buscaPorPrefijoSinTildesNiMayusculas() {
+		assertEquals(List.of(1), ids(buscar("PINA", null, null, null, null)));
+		assertEquals(List.of(1, 2), ids(buscar("pi", null, null, null, null)));
+		assertEquals(List.of(2), ids(buscar("pi padron", null, null, null, null)));
+		assertEquals(List.of(1, 3), ids(buscar("asad", null, null, null, null)));
+	}
+
+	@Test
+	void combinaFiltrosYCuentaFacetasSinElFiltroDeCategoria() {
+		ResultadoBusqueda resultado = buscar(null, Categoria.POSTRE, 4.0, null, null);
+
+		assertEquals(List.of(1), ids(resultado));
+		assertEquals(Map.of("Entrante", 1, "Plato principal", 1, "Postre", 1), resultado.getFacetas());
+		assertEquals(List.of(3), ids(buscar(null, null, 10.0, 20.0, "A12345678")));
+		assertEquals(List.of(), ids(buscar(null, null, null, null, "B00000000")));
+	}
+
+	@Test
+	void seActualizaConLosCambiosDelCatalogo() {
+		indice.platoActualizado(new Plato(4, "Natillas", 9.0, Categoria.POSTRE));
+		indice.platoEliminado(1);
+		indice.platoQuitadoDeCarta("A12345678", 3);
+
+		assertEquals(List.of(), ids(buscar("flan", null, null, null, null)));
+		assertEquals(List.of(4), ids(buscar("natillas", null, 8.0, 9.0, null)));
+		assertEquals(List.of(), ids(buscar(null, null, null, null, "A12345678")));
+		assertEquals(3, indice.size());
+	}
+
+	private ResultadoBusqueda buscar(String texto, Categoria categoria, Double min, Double max, String cif) {
+		return indice.buscar(new ConsultaPlatos(texto, categoria, min, max, cif, 10));
+	}
+
+	private static List<Integer> ids(ResultadoBusqueda resultado) {
+		return resultado.getPlatos().stream().map(Plato::getId).toList();
+	}
+}
@@ -0,0 +1,70 @@
+package com.helloworld.babel.restaurant.servicios.cambios;
+
+import com.helloworld.babel.restaurant.model.Cambio;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+class CambiosServiceImplTests {
+
+	@Autowired
+	private CambiosService cambiosService;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void unaTransaccionAbiertaNoBloqueaLosCambiosDeLasDemas() throws Exception {
+		long desde = cambiosService.getCambios(null, 100).getUltimo();
+		TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+		CountDownLatch registrado = new CountDownLatch(1);
+		CountDownLatch confirmar = new CountDownLatch(1);
+		ExecutorService hilo = Executors.newSingleThreadExecutor();
+		try {
+			Future<?> abierta = hilo.submit(() -> transaccion.executeWithoutResult(estado -> {
+				cambiosService.registrar(oyente -> oyente.platoEliminado(9001));
+				registrado.countDown();
+				try {
+					confirmar.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}));
+			assertTrue(registrado.await(10, TimeUnit.SECONDS));
+
+			// Con la primera aun abierta, la segunda se confirma y se lee sin esperarla
+			transaccion.executeWithoutResult(estado -> cambiosService.registrar(oyente -> oyente.platoEliminado(9002)));
+			assertEquals(List.of(9002), platos(cambiosService.getCambios(desde, 100).getCambios()));
+
+			confirmar.countDown();
+			abierta.get(10, TimeUnit.SECONDS);
+			List<Cambio> cambios = cambiosService.getCambios(desde, 100).getCambios();
+			assertEquals(List.of(9002, 9001), platos(cambios));
+			for (int i = 1; i < cambios.size(); i++) {
+				assertEquals(cambios.get(i - 1).getSeq() + 1, cambios.get(i).getSeq());
+			}
+		} finally {
+			confirmar.countDown();
+			hilo.shutdownNow();
+		}
+	}
+
+	private static List<Integer> platos(List<Cambio> cambios) {
+		return cambios.stream().map(Cambio::getPlato).filter(plato -> plato != null && plato >= 9001).toList();
+	}
+}
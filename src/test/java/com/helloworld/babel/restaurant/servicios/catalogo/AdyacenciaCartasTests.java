@@ -0,0 +1,51 @@
+package com.helloworld.babel.restaurant.servicios.catalogo;
+
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.Plato.Categoria;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AdyacenciaCartasTests {
+
+	private AdyacenciaCartas adyacencia;
+
+	@BeforeEach
+	void crearAdyacencia() {
+		adyacencia = new AdyacenciaCartas(null);
+		adyacencia.cartaActualizada("B87654321", List.of(plato(3), plato(1)), List.of());
+		adyacencia.cartaActualizada("A12345678", List.of(plato(1), plato(2), plato(1)), List.of());
+	}
+
+	@Test
+	void respondeEnLosDosSentidos() {
+		assertArrayEquals(new int[]{1, 3}, adyacencia.getPlatos("B87654321"));
+		assertArrayEquals(new int[]{1, 2}, adyacencia.getPlatos("A12345678"));
+		assertEquals(List.of("A12345678", "B87654321"), adyacencia.getLocales(1));
+		assertEquals(List.of("B87654321"), adyacencia.getLocales(3));
+		assertEquals(List.of(), adyacencia.getLocales(9));
+		assertArrayEquals(new int[0], adyacencia.getPlatos("C00000000"));
+	}
+
+	@Test
+	void seActualizaConLosCambiosDelCatalogo() {
+		adyacencia.platoQuitadoDeCarta("A12345678", 2);
+		adyacencia.platoEliminado(1);
+		adyacencia.localEliminado("B87654321");
+		adyacencia.platoAnadidoACarta("A12345678", plato(3));
+
+		assertArrayEquals(new int[]{3}, adyacencia.getPlatos("A12345678"));
+		assertArrayEquals(new int[0], adyacencia.getPlatos("B87654321"));
+		assertEquals(List.of(), adyacencia.getLocales(1));
+		assertEquals(List.of(), adyacencia.getLocales(2));
+		assertEquals(List.of("A12345678"), adyacencia.getLocales(3));
+	}
+
+	private static Plato plato(int id) {
+		return new Plato(id, "Plato " + id, 5.0, Categoria.PRIMER_PLATO);
+	}
+}
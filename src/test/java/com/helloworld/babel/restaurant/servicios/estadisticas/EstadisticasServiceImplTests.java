@@ -0,0 +1,74 @@
+package com.helloworld.babel.restaurant.servicios.estadisticas;
+
+import com.helloworld.babel.restaurant.model.Estadisticas;
+import com.helloworld.babel.restaurant.model.EstadisticasCategoria;
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.Plato.Categoria;
+import com.helloworld.babel.restaurant.servicios.exceptions.NotFoundException;
+import com.helloworld.babel.restaurant.servicios.locales.LocalesService;
+import com.helloworld.babel.restaurant.servicios.platos.PlatosService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+class EstadisticasServiceImplTests {
+
+	@Autowired
+	private EstadisticasService estadisticasService;
+
+	@Autowired
+	private LocalesService localesService;
+
+	@Autowired
+	private PlatosService platosService;
+
+	@Test
+	void losCambiosDeCartasYPlatosActualizanLosAgregados() {
+		// Los eventos se publican tras el commit: los cambios se confirman y se deshacen al final
+		try {
+			localesService.addPlato("C12345678", 1);
+			platosService.upsertPlato(new Plato(2, "Gazpacho", 11.0, Categoria.PRIMER_PLATO));
+			localesService.removePlato("A12345678", 1);
+			long tarta = platosService.createPlato(new Plato(null, "Tarta", 4.0, Categoria.POSTRE));
+			localesService.addPlato("C12345678", (int) tarta);
+			platosService.deletePlato((int) tarta);
+
+			Estadisticas local = estadisticasService.getEstadisticasLocal("C12345678");
+			EstadisticasCategoria entrantes = local.getCategorias().get("Entrante");
+			assertEquals(3, entrantes.getPlatos());
+			assertEquals(8.67, entrantes.getPrecioMedio());
+			assertEquals(6.0, entrantes.getPrecioMinimo());
+			assertEquals(11.0, entrantes.getPrecioMaximo());
+			assertEquals(2, entrantes.getHistograma().get("5-10"));
+			assertEquals(1, entrantes.getHistograma().get("10-15"));
+			assertEquals(2, local.getCategorias().get("Postre").getPlatos());
+			assertEquals(7, local.getPlatos());
+
+			Estadisticas todas = estadisticasService.getEstadisticas();
+			assertEquals(3, todas.getLocales());
+			assertEquals(6, todas.getCategorias().get("Entrante").getPlatos());
+			assertEquals(18, todas.getPlatos());
+
+			assertTrue(estadisticasService.reconstruirEstadisticas());
+		} finally {
+			localesService.removePlato("C12345678", 1);
+			localesService.addPlato("A12345678", 1);
+			platosService.upsertPlato(new Plato(2, "Gazpacho", 7.0, Categoria.PRIMER_PLATO));
+		}
+		assertTrue(estadisticasService.reconstruirEstadisticas());
+	}
+
+	@Test
+	void unLocalInexistenteNoTieneEstadisticas() {
+		assertThrows(NotFoundException.class, () -> estadisticasService.getEstadisticasLocal("Z99999999"));
+		assertNull(estadisticasService.getEstadisticasLocal("C12345678").getLocales());
+	}
+}
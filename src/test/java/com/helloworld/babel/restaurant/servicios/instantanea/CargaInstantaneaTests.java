@@ -0,0 +1,93 @@
+package com.helloworld.babel.restaurant.servicios.instantanea;
+
+import com.helloworld.babel.restaurant.daos.model.Instantanea;
+import com.helloworld.babel.restaurant.daos.model.Instantanea.FilaLocal;
+import com.helloworld.babel.restaurant.daos.model.Instantanea.FilaPlato;
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.Plato.Categoria;
+import com.helloworld.babel.restaurant.servicios.busqueda.IndicePlatos;
+import com.helloworld.babel.restaurant.servicios.cambios.CambiosService;
+import com.helloworld.babel.restaurant.servicios.catalogo.AdyacenciaCartas;
+import com.helloworld.babel.restaurant.servicios.estadisticas.EstadisticasCatalogo;
+import com.helloworld.babel.restaurant.servicios.platos.PlatosService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext
+class CargaInstantaneaTests {
+
+	private static final long ULTIMO_CAMBIO = 40;
+
+	@Autowired
+	private IndicePlatos indice;
+
+	@Autowired
+	private AdyacenciaCartas adyacencia;
+
+	@Autowired
+	private EstadisticasCatalogo estadisticas;
+
+	@Autowired
+	private CambiosService cambiosService;
+
+	@Autowired
+	private PlatosService platosService;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	@DynamicPropertySource
+	static void instantanea(DynamicPropertyRegistry propiedades) throws IOException {
+		Path fichero = Path.of("target/instantaneas/arranque.instantanea");
+		Files.createDirectories(fichero.getParent());
+		FormatoInstantanea.escribir(new Instantanea(ULTIMO_CAMBIO,
+				List.of(new FilaPlato(1, "Sopa de arranque", 650, 1, 5), new FilaPlato(2, "Tarta", 800, 3, 6)),
+				List.of(new FilaLocal("H00000001", "Local", "Calle Arranque, 1", "600000001", 7, new int[]{1, 2}))),
+				fichero);
+		propiedades.add("restaurant.instantanea.cargar", fichero::toString);
+	}
+
+	@Test
+	void losModelosDeLecturaSeConstruyenConLaInstantaneaSinLeerLasCartas() {
+		assertEquals(2, indice.size());
+		assertArrayEquals(new int[]{1, 2}, adyacencia.getPlatos("H00000001"));
+		assertEquals(List.of("H00000001"), adyacencia.getLocales(2));
+		assertEquals(2, estadisticas.getEstadisticas().getPlatos());
+		assertEquals(0, llamadas("streamCartas") + llamadas("streamRestaurantesConPlatos"));
+	}
+
+	@Test
+	@Transactional
+	void elRegistroDeCambiosSigueDesdeLaInstantanea() {
+		assertEquals(ULTIMO_CAMBIO, cambiosService.getCambios(null, 10).getUltimo());
+		assertTrue(cambiosService.getCambios(0L, 10).getCambios().isEmpty());
+
+		platosService.createPlato(new Plato(0, "Tras el arranque", 4.0, Categoria.POSTRE));
+		assertEquals(ULTIMO_CAMBIO + 1, cambiosService.getCambios(ULTIMO_CAMBIO, 10).getCambios().get(0).getSeq());
+	}
+
+	private long llamadas(String metodo) {
+		return registry.find("restaurant.dao.consultas").tag("metodo", metodo).timers().stream()
+				.mapToLong(Timer::count)
+				.sum();
+	}
+}
@@ -0,0 +1,115 @@
+package com.helloworld.babel.restaurant.servicios.instantanea;
+
+import com.helloworld.babel.restaurant.model.Cambio;
+import com.helloworld.babel.restaurant.model.Local;
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.Plato.Categoria;
+import com.helloworld.babel.restaurant.model.ResumenInstantanea;
+import com.helloworld.babel.restaurant.servicios.cambios.CambiosService;
+import com.helloworld.babel.restaurant.servicios.estadisticas.EstadisticasService;
+import com.helloworld.babel.restaurant.servicios.locales.LocalesService;
+import com.helloworld.babel.restaurant.servicios.platos.PlatosService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Cargar una instantanea sustituye el catalogo entero: el contexto no se reutiliza en otras clases
+@SpringBootTest(properties = "restaurant.instantanea.fichero=target/instantaneas/catalogo.instantanea")
+@AutoConfigureTestDatabase
+@DirtiesContext
+class InstantaneaServiceImplTests {
+
+	@Autowired
+	private InstantaneaService instantaneaService;
+
+	@Autowired
+	private PlatosService platosService;
+
+	@Autowired
+	private LocalesService localesService;
+
+	@Autowired
+	private EstadisticasService estadisticasService;
+
+	@Autowired
+	private CambiosService cambiosService;
+
+	@Test
+	void cargarDevuelveElCatalogoExportadoConSusVersiones() throws IOException {
+		int plato = (int) platosService.createPlato(new Plato(0, "Ñoquis de la instantánea", 12.35, Categoria.PRIMER_PLATO));
+		localesService.upsertLocal(new Local("G00000001", "Local exportado", "Calle Copia, 1", "600000001"));
+		localesService.addPlato("G00000001", plato);
+		List<String> platos = platos();
+		List<String> locales = locales();
+		long versionPlato = platosService.getVersion(plato).orElseThrow();
+		long versionLocal = localesService.getVersion("G00000001").orElseThrow();
+		int platosEnCartas = estadisticasService.getEstadisticas().getPlatos();
+
+		ResumenInstantanea exportada = instantaneaService.exportar();
+		assertEquals(platos.size(), exportada.getPlatos());
+		assertEquals(locales.size(), exportada.getLocales());
+
+		// Cambios posteriores a la instantanea que la carga debe deshacer
+		int posterior = (int) platosService.createPlato(new Plato(0, "Posterior", 3.0, Categoria.POSTRE));
+		localesService.addPlato("G00000001", posterior);
+		localesService.deleteLocal(locales.get(0).split("\\|")[0]);
+		long ultimoCambio = cambiosService.getCambios(null, 1).getUltimo();
+		assertTrue(ultimoCambio > exportada.getUltimoCambio());
+
+		instantaneaService.cargar(Path.of(exportada.getFichero()));
+
+		assertEquals(platos, platos());
+		assertEquals(locales, locales());
+		assertEquals(versionPlato, platosService.getVersion(plato).orElseThrow());
+		assertEquals(versionLocal, localesService.getVersion("G00000001").orElseThrow());
+		assertEquals(platosEnCartas, estadisticasService.getEstadisticas().getPlatos());
+		// Ni los IDs ni las versiones cargadas se vuelven a generar
+		int nuevo = (int) platosService.createPlato(new Plato(0, "Tras la carga", 4.0, Categoria.POSTRE));
+		assertTrue(nuevo > posterior);
+		assertTrue(platosService.getVersion(nuevo).orElseThrow() > versionPlato);
+		// El registro se vacia y los numeros ya servidos no se repiten
+		List<Cambio> cambios = cambiosService.getCambios(0L, 10).getCambios();
+		assertFalse(cambios.isEmpty());
+		assertTrue(cambios.get(0).getSeq() > ultimoCambio);
+	}
+
+	@Test
+	void rechazaUnaInstantaneaDanada() throws IOException {
+		Path fichero = Path.of(instantaneaService.exportar().getFichero());
+		byte[] bytes = Files.readAllBytes(fichero);
+		bytes[bytes.length / 2] ^= 1;
+		Path danada = Files.write(fichero.resolveSibling("danada.instantanea"), bytes);
+		List<String> platos = platos();
+
+		assertThrows(IOException.class, () -> instantaneaService.cargar(danada));
+		assertFalse(platos.isEmpty());
+		assertEquals(platos, platos());
+	}
+
+	private List<String> platos() {
+		return platosService.getPlatos().stream()
+				.map(p -> p.getId() + "|" + p.getNombre() + "|" + p.getPrecio() + "|" + p.getCategoria())
+				.sorted()
+				.toList();
+	}
+
+	private List<String> locales() {
+		return localesService.getLocales().stream()
+				.map(l -> l.getCif() + "|" + l.getNombre() + "|" + l.getDireccion() + "|" + l.getTelefono() + "|" +
+						  localesService.getPlatosByLocal(l.getCif()).stream().map(Plato::getId).sorted().toList())
+				.sorted()
+				.toList();
+	}
+}
@@ -0,0 +1,77 @@
+package com.helloworld.babel.restaurant.servicios.locales;
+
+import com.helloworld.babel.restaurant.model.Local;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Sin @AutoConfigureTestDatabase, que cambiaria el pool por un DataSource embebido sin limite de conexiones.
+// Con dos conexiones y mas peticiones que conexiones, una peticion que retuviera la suya dejaria sin pool a sus hilos
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:carga-paralela-tests;DB_CLOSE_DELAY=-1",
+		"spring.datasource.hikari.maximum-pool-size=2",
+		"spring.datasource.hikari.connection-timeout=2000",
+		"restaurant.locales.carga-cartas=paralela"})
+class CargaParalelaCartasTests {
+
+	private static final int PETICIONES = 6;
+
+	@Autowired
+	private LocalesService localesService;
+
+	@Autowired
+	private CartasCache cartasCache;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Test
+	void variasPeticionesALaVezNoAgotanElPool() throws Exception {
+		ExecutorService peticiones = Executors.newFixedThreadPool(PETICIONES);
+		try {
+			for (int ronda = 0; ronda < 5; ronda++) {
+				// Sin cartas en cache cada peticion tiene que cargarlas
+				cartasCache.invalidar();
+				CyclicBarrier salida = new CyclicBarrier(PETICIONES);
+				List<Future<List<Local>>> resultados = new ArrayList<>();
+				for (int i = 0; i < PETICIONES; i++) {
+					resultados.add(peticiones.submit(() -> {
+						salida.await();
+						return localesService.getLocales();
+					}));
+				}
+				for (Future<List<Local>> resultado : resultados) {
+					comprobarCartas(resultado.get(10, TimeUnit.SECONDS));
+				}
+			}
+		} finally {
+			peticiones.shutdownNow();
+		}
+	}
+
+	@Test
+	void dentroDeUnaTransaccionLeeEnLoteConSuConexion() {
+		cartasCache.invalidar();
+
+		comprobarCartas(transactionTemplate.execute(status -> localesService.getLocales()));
+
+		// La lectura en lote no pasa por la cache
+		assertEquals(0, cartasCache.size());
+	}
+
+	private static void comprobarCartas(List<Local> locales) {
+		assertEquals(3, locales.size());
+		locales.forEach(local -> assertEquals(6, local.getCarta().size()));
+	}
+}
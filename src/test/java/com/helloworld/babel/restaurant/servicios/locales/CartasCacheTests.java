@@ -0,0 +1,96 @@
+package com.helloworld.babel.restaurant.servicios.locales;
+
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.Plato.Categoria;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CartasCacheTests {
+
+	private static final String CIF = "A12345678";
+	private static final Plato FLAN = new Plato(4, "Flan de huevo", 3.5, Categoria.POSTRE);
+
+	private CartasCache cache;
+	private ExecutorService hilo;
+
+	@BeforeEach
+	void crearCache() {
+		cache = new CartasCache(100);
+		hilo = Executors.newSingleThreadExecutor();
+	}
+
+	@AfterEach
+	void pararHilo() {
+		hilo.shutdownNow();
+	}
+
+	@Test
+	void unaCargaSinCambiosSeGuarda() {
+		CartaLocal carta = cache.obtener(CIF, cif -> List.of(FLAN));
+
+		assertEquals(carta, cache.get(CIF));
+		assertEquals(1, cache.getCargas());
+	}
+
+	@Test
+	void unPlatoActualizadoDuranteLaCargaDescartaLaCartaLeida() throws Exception {
+		CartaLocal carta = cargarMientras(cache -> cache.platoActualizado(new Plato(4, "Flan de queso", 4.0, Categoria.POSTRE)));
+
+		// Quien cargo recibe lo que leyo, pero la siguiente consulta vuelve a la base de datos
+		assertEquals(3.5, carta.getPlatos().get(0).getPrecio());
+		assertNull(cache.get(CIF));
+	}
+
+	@Test
+	void unPlatoEliminadoDuranteLaCargaDescartaLaCartaLeida() throws Exception {
+		cargarMientras(cache -> cache.platoEliminado(FLAN.getId()));
+
+		assertNull(cache.get(CIF));
+		assertNotNull(cache.obtener(CIF, cif -> List.of()));
+		assertEquals(0, cache.get(CIF).getPlatos().size());
+	}
+
+	@Test
+	void unCambioDeCartaDuranteLaCargaNoLaEsperaNiSePierde() throws Exception {
+		// El cambio se aplica mientras la carga sigue leyendo: no hay bloqueo que esperar
+		CartaLocal carta = cargarMientras(cache -> cache.platoQuitadoDeCarta(CIF, FLAN.getId()));
+
+		assertEquals(1, carta.getPlatos().size());
+		assertNull(cache.get(CIF));
+	}
+
+	/**
+	 * Carga la carta en otro hilo y aplica el cambio mientras la carga esta leyendo.
+	 */
+	private CartaLocal cargarMientras(Consumer<CartasCache> cambio) throws Exception {
+		CountDownLatch leyendo = new CountDownLatch(1);
+		CountDownLatch cambiado = new CountDownLatch(1);
+		Future<CartaLocal> carga = hilo.submit(() -> cache.obtener(CIF, cif -> {
+			leyendo.countDown();
+			try {
+				assertTrue(cambiado.await(5, TimeUnit.SECONDS));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return List.of(FLAN);
+		}));
+		assertTrue(leyendo.await(5, TimeUnit.SECONDS));
+		cambio.accept(cache);
+		cambiado.countDown();
+		return carga.get(5, TimeUnit.SECONDS);
+	}
+}
@@ -0,0 +1,64 @@
+package com.helloworld.babel.restaurant.servicios.locales;
+
+import com.helloworld.babel.restaurant.model.Local;
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.servicios.exceptions.ConflictoVersionException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Sin @AutoConfigureTestDatabase, que cambiaria el pool por un DataSource embebido sin limite de conexiones.
+// Con una sola conexion, un volcado que pidiera otra dentro de la transaccion del servicio no la conseguiria nunca
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:escritura-diferida-pool-tests;DB_CLOSE_DELAY=-1",
+		"spring.datasource.hikari.maximum-pool-size=1",
+		"spring.datasource.hikari.connection-timeout=1000",
+		"restaurant.locales.escritura-cartas=diferida",
+		"restaurant.locales.escritura-diferida.intervalo=1h"})
+class EscrituraDiferidaCartasPoolTests {
+
+	private static final String CIF = "C12345678";
+
+	@Autowired
+	private EscrituraDiferidaCartas escritura;
+
+	@Autowired
+	private LocalesService localesService;
+
+	@Test
+	void losVolcadosDentroDelServicioUsanSuConexion() {
+		assertEquals(1, localesService.addPlato(CIF, 1));
+		List<Plato> carta = localesService.updateCarta(CIF, Set.of(4), Set.of());
+		assertTrue(contiene(carta, 1));
+		assertTrue(contiene(carta, 4));
+		assertEquals(0, escritura.getPendientes());
+
+		localesService.removePlato(CIF, 4);
+		Local local = localesService.getLocalByCif(CIF).orElseThrow();
+		long version = localesService.getVersion(CIF).orElseThrow();
+		localesService.removePlato(CIF, 1);
+		localesService.updateLocal(local, localesService.getVersion(CIF).orElseThrow());
+		assertEquals(0, escritura.getPendientes());
+		assertFalse(contiene(localesService.getPlatosByLocal(CIF), 1));
+
+		// Si la transaccion del servicio se deshace, lo volcado en ella vuelve a la cola
+		localesService.addPlato(CIF, 1);
+		assertThrows(ConflictoVersionException.class, () -> localesService.updateLocal(local, version));
+		assertEquals(1, escritura.getPendientes());
+		assertTrue(contiene(localesService.getPlatosByLocal(CIF), 1));
+		escritura.volcar();
+		assertEquals(0, escritura.getPendientes());
+	}
+
+	private static boolean contiene(List<Plato> platos, int id) {
+		return platos.stream().anyMatch(plato -> plato.getId() == id);
+	}
+}
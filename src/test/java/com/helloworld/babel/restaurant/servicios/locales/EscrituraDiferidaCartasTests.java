@@ -0,0 +1,135 @@
+package com.helloworld.babel.restaurant.servicios.locales;
+
+import com.helloworld.babel.restaurant.daos.platos.PlatosDao;
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.Plato.Categoria;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// El intervalo largo deja los volcados en manos del test
+@SpringBootTest(properties = {
+		"restaurant.locales.escritura-cartas=diferida",
+		"restaurant.locales.escritura-diferida.intervalo=1h"})
+@AutoConfigureTestDatabase
+class EscrituraDiferidaCartasTests {
+
+	@Autowired
+	private EscrituraDiferidaCartas escritura;
+
+	@Autowired
+	private LocalesService localesService;
+
+	@Autowired
+	private PlatosDao platosDao;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	@Test
+	void losCambiosSeAgrupanYSeEscribenAlVolcar() {
+		long version = localesService.getVersion("C12345678").orElseThrow();
+		try {
+			// Anadir y quitar antes del volcado no deja nada pendiente
+			assertEquals(1, localesService.addPlato("C12345678", 1));
+			assertEquals(0, localesService.addPlato("C12345678", 1));
+			localesService.removePlato("C12345678", 1);
+			assertEquals(0, escritura.getPendientes());
+
+			assertEquals(1, localesService.addPlato("C12345678", 1));
+			localesService.removePlato("A12345678", 1);
+			assertEquals(2, escritura.getPendientes());
+
+			// La API ya ve los cambios, la base de datos todavia no
+			assertTrue(contiene(localesService.getPlatosByLocal("C12345678"), 1));
+			assertFalse(contiene(localesService.getPlatosByLocal("A12345678"), 1));
+			assertFalse(contiene(guardada("C12345678"), 1));
+			assertTrue(contiene(guardada("A12345678"), 1));
+
+			escritura.volcar();
+			assertEquals(0, escritura.getPendientes());
+			assertTrue(contiene(guardada("C12345678"), 1));
+			assertFalse(contiene(guardada("A12345678"), 1));
+			assertNotEquals(version, localesService.getVersion("C12345678").orElseThrow());
+			assertTrue(contiene(localesService.getPlatosByLocal("C12345678"), 1));
+		} finally {
+			localesService.removePlato("C12345678", 1);
+			localesService.addPlato("A12345678", 1);
+			escritura.volcar();
+		}
+	}
+
+	@Test
+	void laVersionIncluyeLosCambiosEnCola() {
+		long version = localesService.getVersion("C12345678").orElseThrow();
+		try {
+			localesService.addPlato("C12345678", 1);
+			assertNotEquals(version, localesService.getVersion("C12345678").orElseThrow());
+			assertEquals(0, escritura.getPendientes());
+		} finally {
+			localesService.removePlato("C12345678", 1);
+			escritura.volcar();
+		}
+	}
+
+	@Test
+	void unCambioQueNoSePuedeEscribirNoDescartaLosDemas() {
+		Counter descartados = registry.get("restaurant.cartas.descartados").counter();
+		double antes = descartados.count();
+		long version = localesService.getVersion("C12345678").orElseThrow();
+		try {
+			// Un plato que no existe incumple la clave ajena y hace fallar el lote entero
+			assertTrue(escritura.anadir("C12345678", new Plato(99999, "No existe", 1.0, Categoria.POSTRE), id -> false));
+			assertEquals(1, localesService.addPlato("C12345678", 1));
+			localesService.removePlato("C12345678", 2);
+			assertEquals(3, escritura.getPendientes());
+
+			escritura.volcar();
+
+			assertEquals(0, escritura.getPendientes());
+			assertEquals(antes + 1, descartados.count());
+			assertTrue(contiene(guardada("C12345678"), 1));
+			assertFalse(contiene(guardada("C12345678"), 2));
+			assertFalse(contiene(guardada("C12345678"), 99999));
+			assertNotEquals(version, localesService.getVersion("C12345678").orElseThrow());
+		} finally {
+			localesService.removePlato("C12345678", 1);
+			localesService.addPlato("C12345678", 2);
+			escritura.volcar();
+		}
+	}
+
+	@Test
+	void unCambioQueLlegaMientrasSeEliminaElLocalSigueEnSuCola() {
+		Plato plato = new Plato(1, "Ensalada", 6.0, Categoria.PRIMER_PLATO);
+		// El local se elimina con la cola ya obtenida por quien anade el plato
+		assertTrue(escritura.anadir("Z00000001", plato, id -> {
+			escritura.localEliminado("Z00000001");
+			return false;
+		}));
+		assertTrue(escritura.tienePendientes("Z00000001"));
+		assertEquals(1, escritura.getPendientes());
+
+		// El local no existe: el volcado lo descarta y no queda nada pendiente
+		escritura.volcar();
+		assertEquals(0, escritura.getPendientes());
+	}
+
+	private List<Plato> guardada(String cif) {
+		return platosDao.getPlatosByRestauranteCif(cif, Plato::fromFila);
+	}
+
+	private static boolean contiene(List<Plato> platos, int id) {
+		return platos.stream().anyMatch(plato -> plato.getId() == id);
+	}
+}
@@ -0,0 +1,175 @@
+package com.helloworld.babel.restaurant.servicios.locales;
+
+import com.helloworld.babel.restaurant.ContadorConsultas;
+import com.helloworld.babel.restaurant.model.Local;
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.servicios.catalogo.OyenteCatalogo;
+import com.helloworld.babel.restaurant.servicios.exceptions.NotFoundException;
+import com.helloworld.babel.restaurant.servicios.platos.PlatosService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@Import({ContadorConsultas.class, LocalesServiceImplTests.CartasActualizadas.class})
+@Transactional
+class LocalesServiceImplTests {
+
+	private static final Set<Integer> CARTA_B = Set.of(1, 3, 4, 6, 7, 9);
+
+	@Autowired
+	private LocalesService localesService;
+
+	@Autowired
+	private ContadorConsultas contadorConsultas;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatosService platosService;
+
+	@Autowired
+	private CartasCache cartasCache;
+
+	@Autowired
+	private CartasActualizadas cartasActualizadas;
+
+	@AfterEach
+	void vaciarCartas() {
+		// Las transacciones de test se deshacen sin avisar a la cache
+		cartasCache.invalidar();
+	}
+
+	@Test
+	void getLocalesNoDependeDelNumeroDeLocales() {
+		for (int i = 0; i < 50; i++) {
+			String cif = String.format("Z%08d", i);
+			jdbcTemplate.update("INSERT INTO restaurante(cif, nombre, direccion, telefono) VALUES(?, ?, ?, ?)",
+					cif, "Local " + i, "Calle Prueba, " + i, "600000000");
+			jdbcTemplate.update("INSERT INTO restaurante_plato(id_plato, cif_restaurante) VALUES(?, ?)", 1 + i % 9, cif);
+		}
+
+		contadorConsultas.reiniciar();
+		List<Local> locales = localesService.getLocales();
+
+		assertEquals(2, contadorConsultas.getConsultas());
+		assertEquals(53, locales.size());
+		locales.stream()
+				.filter(local -> local.getCif().startsWith("Z"))
+				.forEach(local -> assertEquals(1, local.getCarta().size()));
+	}
+
+	@Test
+	void getLocalesMantieneLasCartas() {
+		List<Local> locales = localesService.getLocales();
+
+		locales.forEach(local -> assertEquals(
+				localesService.getLocalByCif(local.getCif()).orElseThrow().getCarta().size(),
+				local.getCarta().size()));
+	}
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void addPlatoYRemovePlatoActualizanLaCartaSinRecargarla() {
+		localesService.getPlatosByLocal("C12345678");
+		platosService.getPlatosById(1);
+
+		contadorConsultas.reiniciar();
+		localesService.addPlato("C12345678", 1);
+		assertTrue(localesService.getPlatosByLocal("C12345678").stream().anyMatch(p -> p.getId() == 1));
+		// La insercion, el cambio de version del local y su entrada en el registro de cambios, que se numera despues
+		assertEquals(3, contadorConsultas.getConsultas());
+
+		localesService.removePlato("C12345678", 1);
+		assertFalse(localesService.getPlatosByLocal("C12345678").stream().anyMatch(p -> p.getId() == 1));
+		assertEquals(6, contadorConsultas.getConsultas());
+	}
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void replaceCartaAnadeYQuitaLaDiferenciaConUnSoloEvento() {
+		cartasActualizadas.eventos.clear();
+		try {
+			List<Plato> carta = localesService.replaceCarta("B12345678", new LinkedHashSet<>(List.of(2, 1, 3)));
+
+			assertEquals(Set.of(1, 2, 3), ids(carta));
+			assertEquals(Set.of(1, 2, 3), ids(localesService.getPlatosByLocal("B12345678")));
+			assertEquals(List.of(new CartaActualizada("B12345678", List.of(2), Set.of(4, 6, 7, 9))),
+					cartasActualizadas.eventos);
+		} finally {
+			localesService.replaceCarta("B12345678", CARTA_B);
+		}
+	}
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void updateCartaIgnoraLosQueYaEstabanYLosQueNoEstaban() {
+		cartasActualizadas.eventos.clear();
+		try {
+			List<Plato> carta = localesService.updateCarta("B12345678", Set.of(2, 3), Set.of(1, 5));
+
+			assertEquals(Set.of(2, 3, 4, 6, 7, 9), ids(carta));
+			assertEquals(List.of(new CartaActualizada("B12345678", List.of(2), Set.of(1))), cartasActualizadas.eventos);
+		} finally {
+			localesService.replaceCarta("B12345678", CARTA_B);
+		}
+	}
+
+	@Test
+	void unPlatoQueNoExisteNoCambiaLaCarta() {
+		NotFoundException e = assertThrows(NotFoundException.class,
+				() -> localesService.updateCarta("B12345678", Set.of(2, 999, 998), Set.of()));
+
+		assertEquals("Platos no encontrados: [998, 999]", e.getMessage());
+		assertEquals(CARTA_B, ids(localesService.getPlatosByLocal("B12345678")));
+		assertThrows(NotFoundException.class, () -> localesService.replaceCarta("B12345678", Set.of(999)));
+	}
+
+	@Test
+	void unPlatoNoSePuedeAnadirYQuitarALaVez() {
+		assertThrows(IllegalArgumentException.class,
+				() -> localesService.updateCarta("B12345678", Set.of(2, 5), Set.of(5)));
+	}
+
+	private static Set<Integer> ids(List<Plato> carta) {
+		return carta.stream().map(Plato::getId).collect(Collectors.toSet());
+	}
+
+	record CartaActualizada(String cif, List<Integer> anadidos, Set<Integer> quitados) {
+	}
+
+	/**
+	 * Eventos de carta confirmados, para comprobar que un cambio de varios platos se publica una sola vez.
+	 */
+	@TestConfiguration
+	static class CartasActualizadas implements OyenteCatalogo {
+
+		final List<CartaActualizada> eventos = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void cartaActualizada(String cif, Collection<Plato> anadidos, Collection<Integer> quitados) {
+			eventos.add(new CartaActualizada(cif, anadidos.stream().map(Plato::getId).toList(), Set.copyOf(quitados)));
+		}
+	}
+}
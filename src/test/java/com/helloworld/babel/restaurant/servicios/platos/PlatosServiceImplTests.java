@@ -0,0 +1,64 @@
+package com.helloworld.babel.restaurant.servicios.platos;
+
+import com.helloworld.babel.restaurant.model.Plato;
+import com.helloworld.babel.restaurant.model.Plato.Categoria;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sin transaccion en el test: se comprueba lo que queda confirmado.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+class PlatosServiceImplTests {
+
+	@Autowired
+	private PlatosService platosService;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final List<Integer> creados = new ArrayList<>();
+
+	@AfterEach
+	void borrarCreados() {
+		creados.forEach(platosService::deletePlato);
+	}
+
+	@Test
+	void unFalloDespuesDelUpsertLoDeshaceEntero() {
+		assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+			assertTrue(platosService.upsertPlato(new Plato(7000, "Deshecho", 5.0, Categoria.POSTRE)));
+			throw new IllegalStateException("Fallo tras el upsert");
+		}));
+
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM plato WHERE id = 7000", Integer.class));
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cambio WHERE plato = 7000", Integer.class));
+	}
+
+	@Test
+	void createPlatoNoReutilizaUnIdCreadoPorUpsert() {
+		assertTrue(platosService.upsertPlato(new Plato(7100, "Con ID", 5.0, Categoria.POSTRE)));
+		creados.add(7100);
+
+		long id = platosService.createPlato(new Plato(null, "Sin ID", 5.0, Categoria.POSTRE));
+		creados.add((int) id);
+
+		assertTrue(id > 7100);
+	}
+}